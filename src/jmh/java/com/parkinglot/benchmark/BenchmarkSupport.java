@@ -0,0 +1,75 @@
+package com.parkinglot.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.Car;
+import com.parkinglot.service.ParkingService;
+
+/**
+ * Helpers shared by the benchmarks
+ * 
+ * @author Balasaheb
+ */
+final class BenchmarkSupport
+{
+	static final String[] COLOURS = { "White", "Black", "Red", "Blue", "Silver", "Grey", "Green", "Yellow",
+			"Brown", "Orange", "Maroon", "Beige" };
+	
+	private BenchmarkSupport()
+	{
+	}
+	
+	static String registrationNo(int i)
+	{
+		return "KA-01-" + i;
+	}
+	
+	static String colour(int i)
+	{
+		return COLOURS[i % COLOURS.length];
+	}
+	
+	/**
+	 * Parks the given percentage of the capacity of a level
+	 */
+	static void fill(ParkingService parkingService, int level, int capacity, int occupancy)
+			throws ParkingException
+	{
+		int vehicles = (int) ((long) capacity * occupancy / 100);
+		for (int i = 0; i < vehicles; i++)
+		{
+			parkingService.park(level, new Car(registrationNo(level * capacity + i), colour(i)));
+		}
+	}
+	
+	/**
+	 * Deletes a directory of files, e.g. the journal of a benchmark
+	 */
+	static void deleteDirectory(Path directory) throws IOException
+	{
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory))
+		{
+			for (Path file : files)
+			{
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+	
+	/**
+	 * @return heap in use after a full GC, for measuring the heap retained by
+	 *         a structure
+	 */
+	static long usedHeap()
+	{
+		System.gc();
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+}
@@ -0,0 +1,126 @@
+package com.parkinglot.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.constants.ConcurrencyMode;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.result.LeaveResult;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.stratergy.BitSetParkingStrategy;
+import com.parkinglot.service.ParkingService;
+import com.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * A batch of vehicles parked and then leaving, one call per vehicle against
+ * one {@link ParkingService#parkAll} and {@link ParkingService#leaveAll} per
+ * batch. Scores are per vehicle.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkParkBenchmark
+{
+	private static final int	LEVEL		= 1;
+	private static final int	LOT_SIZE	= 10_000;
+	private static final int	OCCUPANCY	= 50;
+	// largest batch size, for OperationsPerInvocation
+	private static final int	MAX_BATCH	= 256;
+	
+	@Param({ "1", "16", "256" })
+	private int batchSize;
+	
+	@Param({ "MAP", "ARRAY", "OFF_HEAP" })
+	private SlotStoreType slotStoreType;
+	
+	private ParkingService	parkingService;
+	private List<Vehicle>	batch;
+	private int[]			slots;
+	
+	@Setup(Level.Trial)
+	public void setup() throws ParkingException
+	{
+		parkingService = new ParkingServiceImpl(slotStoreType, BitSetParkingStrategy::new, ConcurrencyMode.LOCKED);
+		parkingService.createParkingLot(LEVEL, LOT_SIZE);
+		BenchmarkSupport.fill(parkingService, LEVEL, LOT_SIZE, OCCUPANCY);
+		// The same batch is parked every time, it has left by the next one
+		batch = new ArrayList<>(MAX_BATCH);
+		for (int i = 0; i < MAX_BATCH; i++)
+		{
+			batch.add(new Car("BATCH-" + i, BenchmarkSupport.colour(i)));
+		}
+		slots = new int[MAX_BATCH];
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		parkingService.doCleanup();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(MAX_BATCH)
+	public int single() throws ParkingException
+	{
+		int freed = 0;
+		for (int start = 0; start < MAX_BATCH; start += batchSize)
+		{
+			for (int i = start; i < start + batchSize; i++)
+			{
+				slots[i] = parkingService.park(LEVEL, batch.get(i)).getSlotNumber();
+			}
+			for (int i = start; i < start + batchSize; i++)
+			{
+				if (parkingService.unPark(LEVEL, slots[i]).isFreed())
+					freed++;
+			}
+		}
+		return freed;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(MAX_BATCH)
+	public int bulk() throws ParkingException
+	{
+		int freed = 0;
+		int[] batchSlots = new int[batchSize];
+		for (int start = 0; start < MAX_BATCH; start += batchSize)
+		{
+			List<ParkResult> parked = parkingService.parkAll(LEVEL, batch.subList(start, start + batchSize));
+			for (int i = 0; i < batchSize; i++)
+			{
+				batchSlots[i] = parked.get(i).getSlotNumber();
+			}
+			for (LeaveResult left : parkingService.leaveAll(LEVEL, batchSlots))
+			{
+				if (left.isFreed())
+					freed++;
+			}
+		}
+		return freed;
+	}
+}
@@ -0,0 +1,89 @@
+package com.parkinglot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.processor.AbstractProcessor;
+import com.parkinglot.processor.Command;
+import com.parkinglot.processor.CommandResult;
+import com.parkinglot.processor.RequestProcessor;
+import com.parkinglot.service.ParkingService;
+import com.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * Cost of parsing a command line and dispatching it to its handler. Run with
+ * -prof gc for the allocation per command. The lines leave the lot unchanged
+ * (the vehicle is already parked, the slot is already empty), so every
+ * invocation does the same work; the last two lines take the error paths.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark
+{
+	private static final int	LOT_SIZE	= 100;
+	
+	@Param({ "park KA-01-100 White", "leave 60 2", "status", "slot_number_for_registration_number KA-01-110",
+			"registration_numbers_for_cars_with_colour White", "leave x 2", "unknown_command 1" })
+	private String				line;
+	
+	private AbstractProcessor	processor;
+	
+	@Setup(Level.Trial)
+	public void setup() throws ParkingException
+	{
+		ParkingService parkingService = new ParkingServiceImpl();
+		parkingService.createParkingLot(1, LOT_SIZE);
+		BenchmarkSupport.fill(parkingService, 1, LOT_SIZE, 50);
+		processor = new RequestProcessor();
+		processor.setService(parkingService);
+	}
+	
+	@Benchmark
+	public Object parse()
+	{
+		try
+		{
+			return Command.parse(line);
+		}
+		catch (ParkingException e)
+		{
+			return e;
+		}
+	}
+	
+	@Benchmark
+	public Object parseAndExecute()
+	{
+		try
+		{
+			Command command = Command.parse(line);
+			if (command == null)
+				return null;
+			CommandResult result = processor.execute(command);
+			return result;
+		}
+		catch (ParkingException e)
+		{
+			return e;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.parkinglot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.dao.SlotStore;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.dao.impl.ArraySlotStore;
+import com.parkinglot.dao.impl.MapSlotStore;
+import com.parkinglot.dao.impl.OffHeapSlotStore;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.stratergy.ParkingStrategy;
+
+/**
+ * Memory needed by the per slot structures of an empty level. Run with
+ * {@code -prof gc}: gc.alloc.rate.norm is the number of bytes allocated to
+ * build the structure, which is its footprint. The records of the
+ * {@code OFF_HEAP} store are direct memory and are not counted.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class FootprintBenchmark
+{
+	@Param({ "10000", "100000", "1000000" })
+	private int lotSize;
+	
+	@State(Scope.Benchmark)
+	public static class SlotStoreParams
+	{
+		@Param({ "MAP", "ARRAY", "OFF_HEAP" })
+		private SlotStoreType slotStoreType;
+	}
+	
+	@State(Scope.Benchmark)
+	public static class StrategyParams
+	{
+		@Param({ "NEAREST_FIRST", "BITSET" })
+		private String strategy;
+	}
+	
+	@Benchmark
+	public SlotStore<Vehicle> slotStore(SlotStoreParams params)
+	{
+		if (params.slotStoreType == SlotStoreType.ARRAY)
+			return new ArraySlotStore<>(lotSize);
+		if (params.slotStoreType == SlotStoreType.OFF_HEAP)
+			return new OffHeapSlotStore<>(lotSize);
+		return new MapSlotStore<>(lotSize);
+	}
+	
+	@Benchmark
+	public ParkingStrategy freeSlots(StrategyParams params)
+	{
+		ParkingStrategy parkingStrategy = ParkingStrategyBenchmark.createStrategy(params.strategy, lotSize);
+		for (int i = 1; i <= lotSize; i++)
+		{
+			parkingStrategy.add(i);
+		}
+		return parkingStrategy;
+	}
+}
@@ -0,0 +1,116 @@
+package com.parkinglot.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import com.parkinglot.constants.ConcurrencyMode;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.stratergy.NearestFirstParkingStrategy;
+import com.parkinglot.persistence.ParkingPersistence;
+import com.parkinglot.service.ParkingService;
+import com.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * Gate throughput of park and leave with journaling disabled, journaled
+ * without fsync, and journaled with a group commit fsync. Each gate parks on
+ * its own level, so the records of the gates share fsyncs.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JournalBenchmark
+{
+	private static final int	LEVELS			= 4;
+	private static final int	LEVEL_CAPACITY	= 1000;
+	
+	@Param({ "NONE", "WRITE", "FSYNC" })
+	private String				journal;
+	
+	private ParkingService		parkingService;
+	private ParkingPersistence	persistence;
+	private Path				directory;
+	
+	@State(Scope.Thread)
+	public static class Gate
+	{
+		private int		level;
+		private String	prefix;
+		private int		next;
+		
+		@Setup(Level.Trial)
+		public void setup(ThreadParams threadParams)
+		{
+			level = threadParams.getThreadIndex() % LEVELS + 1;
+			prefix = "GATE-" + threadParams.getThreadIndex() + "-";
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup() throws ParkingException, IOException
+	{
+		if ("NONE".equals(journal))
+		{
+			parkingService = new ParkingServiceImpl();
+		}
+		else
+		{
+			directory = Files.createTempDirectory("parking-journal");
+			persistence = new ParkingPersistence(directory, "FSYNC".equals(journal),
+					ParkingPersistence.DEFAULT_SNAPSHOT_INTERVAL);
+			parkingService = new ParkingServiceImpl(SlotStoreType.MAP, NearestFirstParkingStrategy::new,
+					ConcurrencyMode.LOCKED, persistence);
+		}
+		parkingService.createParkingLot(new int[] { LEVEL_CAPACITY, LEVEL_CAPACITY, LEVEL_CAPACITY, LEVEL_CAPACITY });
+		for (int level = 1; level <= LEVELS; level++)
+		{
+			BenchmarkSupport.fill(parkingService, level, LEVEL_CAPACITY, 50);
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException
+	{
+		parkingService.doCleanup();
+		if (persistence != null)
+		{
+			persistence.close();
+			BenchmarkSupport.deleteDirectory(directory);
+		}
+	}
+	
+	@Benchmark
+	public ParkResult parkAndLeave(Gate gate) throws ParkingException
+	{
+		ParkResult result = parkingService.park(gate.level, new Car(gate.prefix + (gate.next++), "White"));
+		if (result.isParked())
+			parkingService.unPark(gate.level, result.getSlotNumber(), 1);
+		return result;
+	}
+}
@@ -0,0 +1,78 @@
+package com.parkinglot.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.dao.impl.ParkingManager;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.stratergy.BitSetParkingStrategy;
+
+/**
+ * Heap retained by one level, with its indexes and vehicles, once the given
+ * percentage of its slots is parked. The {@code heapKB} counter is the heap
+ * in use after a GC with the level held in a field, less the heap in use once
+ * it is dropped; the score is the time to fill and measure the level. Run with
+ * {@code -prof gc} to compare the GC time. An {@code OFF_HEAP} level keeps
+ * about the same heap at any occupancy. JMH sums the counter over the
+ * iterations, so there is one measured iteration.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgs = { "-Xms3g", "-Xmx3g" })
+public class LevelHeapBenchmark
+{
+	private static final int		LEVEL = 1;
+	
+	@Param({ "1000000" })
+	private int						lotSize;
+	
+	@Param({ "0", "100" })
+	private int						occupancy;
+	
+	@Param({ "MAP", "ARRAY", "OFF_HEAP" })
+	private SlotStoreType			slotStoreType;
+	
+	private ParkingManager<Vehicle>	parkingManager;
+	
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Heap
+	{
+		public long heapKB;
+	}
+	
+	@Benchmark
+	public void fillLevel(Heap heap)
+	{
+		parkingManager = new ParkingManager<>(Collections.singletonList(LEVEL),
+				Collections.singletonList(lotSize), Collections.singletonList(new BitSetParkingStrategy(lotSize)),
+				slotStoreType);
+		int vehicles = (int) ((long) lotSize * occupancy / 100);
+		for (int i = 0; i < vehicles; i++)
+		{
+			parkingManager.parkCar(LEVEL, new Car(BenchmarkSupport.registrationNo(i), BenchmarkSupport.colour(i)));
+		}
+		long withLevel = BenchmarkSupport.usedHeap();
+		parkingManager = null;
+		heap.heapKB = (withLevel - BenchmarkSupport.usedHeap()) / 1024;
+	}
+}
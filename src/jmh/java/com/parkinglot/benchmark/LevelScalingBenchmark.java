@@ -0,0 +1,95 @@
+package com.parkinglot.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.service.ParkingService;
+import com.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * Gate throughput of 8 gates spread over the levels of a lot. With per level
+ * locks throughput should grow with the number of levels.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class LevelScalingBenchmark
+{
+	private static final int LEVEL_CAPACITY = 1000;
+	
+	@Param({ "1", "2", "4", "8" })
+	private int levels;
+	
+	private ParkingService parkingService;
+	
+	/**
+	 * A gate parks on one level only
+	 */
+	@State(Scope.Thread)
+	public static class Gate
+	{
+		private int		level;
+		private String	prefix;
+		private int		next;
+		
+		@Setup(Level.Trial)
+		public void setup(LevelScalingBenchmark benchmark, ThreadParams threadParams)
+		{
+			level = threadParams.getThreadIndex() % benchmark.levels + 1;
+			prefix = "GATE-" + threadParams.getThreadIndex() + "-";
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup() throws ParkingException
+	{
+		int[] capacities = new int[levels];
+		Arrays.fill(capacities, LEVEL_CAPACITY);
+		parkingService = new ParkingServiceImpl();
+		parkingService.createParkingLot(capacities);
+		for (int level = 1; level <= levels; level++)
+		{
+			BenchmarkSupport.fill(parkingService, level, LEVEL_CAPACITY, 50);
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		parkingService.doCleanup();
+	}
+	
+	@Benchmark
+	public ParkResult parkAndLeave(Gate gate) throws ParkingException
+	{
+		ParkResult result = parkingService.park(gate.level, new Car(gate.prefix + (gate.next++), "White"));
+		if (result.isParked())
+			parkingService.unPark(gate.level, result.getSlotNumber(), 1);
+		return result;
+	}
+}
@@ -0,0 +1,91 @@
+package com.parkinglot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.constants.ConcurrencyMode;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.stratergy.NearestFirstParkingStrategy;
+import com.parkinglot.service.ParkingService;
+import com.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * Monitoring style queries running next to a gate that keeps parking, to
+ * compare read locked queries with optimistic ones.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixedReadWriteBenchmark
+{
+	private static final int LEVEL = 1;
+	
+	@Param({ "10000" })
+	private int lotSize;
+	
+	@Param({ "LOCKED", "OPTIMISTIC_READ" })
+	private ConcurrencyMode concurrencyMode;
+	
+	private ParkingService	parkingService;
+	private String			parkedRegistrationNo;
+	private int				next;
+	
+	@Setup(Level.Trial)
+	public void setup() throws ParkingException
+	{
+		parkingService = new ParkingServiceImpl(SlotStoreType.ARRAY, NearestFirstParkingStrategy::new,
+				concurrencyMode);
+		parkingService.createParkingLot(LEVEL, lotSize);
+		BenchmarkSupport.fill(parkingService, LEVEL, lotSize, 50);
+		parkedRegistrationNo = BenchmarkSupport.registrationNo(LEVEL * lotSize + 1);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		parkingService.doCleanup();
+	}
+	
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public ParkResult gate() throws ParkingException
+	{
+		ParkResult result = parkingService.park(LEVEL, new Car("GATE-" + (next++), "White"));
+		if (result.isParked())
+			parkingService.unPark(LEVEL, result.getSlotNumber(), 1);
+		return result;
+	}
+	
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(3)
+	public int monitor() throws ParkingException
+	{
+		return parkingService.getAvailableSlotsCount(LEVEL).get()
+				+ parkingService.getSlotNoFromRegistrationNo(LEVEL, parkedRegistrationNo).get().getSlotNumber();
+	}
+}
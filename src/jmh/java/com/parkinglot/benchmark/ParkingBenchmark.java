@@ -0,0 +1,157 @@
+package com.parkinglot.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import com.parkinglot.constants.ConcurrencyMode;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.result.LevelStatus;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.result.SlotLocation;
+import com.parkinglot.model.stratergy.NearestFirstParkingStrategy;
+import com.parkinglot.service.ParkingService;
+import com.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * Gate latency of every parking command on a single level lot, across lot
+ * sizes and occupancy. Run multi threaded with {@code -t <threads>}.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingBenchmark
+{
+	private static final int LEVEL = 1;
+	
+	@Param({ "100", "10000", "1000000" })
+	private int lotSize;
+	
+	// percentage of the slots parked before measuring
+	@Param({ "0", "50", "100" })
+	private int occupancy;
+	
+	@Param({ "MAP", "ARRAY", "OFF_HEAP" })
+	private SlotStoreType slotStoreType;
+	
+	@Param({ "LOCKED", "LOCK_FREE" })
+	private ConcurrencyMode concurrencyMode;
+	
+	private ParkingService	parkingService;
+	private String			parkedRegistrationNo;
+	
+	/**
+	 * Registrations of one gate thread, never parked by another thread
+	 */
+	@State(Scope.Thread)
+	public static class Gate
+	{
+		private String	prefix;
+		private int		next;
+		
+		@Setup(Level.Trial)
+		public void setup(ThreadParams threadParams)
+		{
+			prefix = "GATE-" + threadParams.getThreadIndex() + "-";
+		}
+		
+		Car nextVehicle()
+		{
+			return new Car(prefix + (next++), "White");
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup() throws ParkingException
+	{
+		parkingService = new ParkingServiceImpl(slotStoreType, NearestFirstParkingStrategy::new, concurrencyMode);
+		parkingService.createParkingLot(LEVEL, lotSize);
+		BenchmarkSupport.fill(parkingService, LEVEL, lotSize, occupancy);
+		parkedRegistrationNo = BenchmarkSupport.registrationNo(LEVEL * lotSize + lotSize * occupancy / 200);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		parkingService.doCleanup();
+	}
+	
+	/**
+	 * park and leave are measured together so that occupancy stays put, a full
+	 * lot measures the rejected park
+	 */
+	@Benchmark
+	public ParkResult parkAndLeave(Gate gate) throws ParkingException
+	{
+		ParkResult result = parkingService.park(LEVEL, gate.nextVehicle());
+		if (result.isParked())
+			parkingService.unPark(LEVEL, result.getSlotNumber(), 1);
+		return result;
+	}
+	
+	/**
+	 * Status of a lot that did not change, served from the cached snapshot
+	 */
+	@Benchmark
+	public List<LevelStatus> status() throws ParkingException
+	{
+		return parkingService.getStatus(LEVEL);
+	}
+	
+	/**
+	 * Status after a park and leave, which rebuilds the snapshot from the rows
+	 */
+	@Benchmark
+	public List<LevelStatus> statusAfterChange(Gate gate) throws ParkingException
+	{
+		parkAndLeave(gate);
+		return parkingService.getStatus(LEVEL);
+	}
+	
+	@Benchmark
+	public Map<String, Integer> colorCounts() throws ParkingException
+	{
+		return parkingService.getColorCounts(LEVEL);
+	}
+	
+	@Benchmark
+	public List<String> registrationNumbersForColour() throws ParkingException
+	{
+		return parkingService.getRegNumberForColor(LEVEL, "red");
+	}
+	
+	@Benchmark
+	public List<SlotLocation> slotNumbersForColour() throws ParkingException
+	{
+		return parkingService.getSlotNumbersFromColor(LEVEL, "red");
+	}
+	
+	@Benchmark
+	public Optional<SlotLocation> slotNumberForRegistrationNumber() throws ParkingException
+	{
+		return parkingService.getSlotNoFromRegistrationNo(LEVEL, parkedRegistrationNo);
+	}
+}
@@ -0,0 +1,80 @@
+package com.parkinglot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.model.stratergy.BitSetParkingStrategy;
+import com.parkinglot.model.stratergy.ConcurrentBitSetParkingStrategy;
+import com.parkinglot.model.stratergy.NearestFirstParkingStrategy;
+import com.parkinglot.model.stratergy.ParkingStrategy;
+
+/**
+ * Cost of claiming the nearest free slot and giving it back. The occupied
+ * slots are the lowest ones, so the nearest free slot sits behind them the
+ * way it does in a lot filled from the entrance.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingStrategyBenchmark
+{
+	@Param({ "100", "10000", "1000000" })
+	private int lotSize;
+	
+	@Param({ "0", "50", "99" })
+	private int occupancy;
+	
+	@Param({ "NEAREST_FIRST", "BITSET", "CONCURRENT_BITSET" })
+	private String strategy;
+	
+	private ParkingStrategy parkingStrategy;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		parkingStrategy = createStrategy(strategy, lotSize);
+		int occupied = (int) ((long) lotSize * occupancy / 100);
+		for (int i = occupied + 1; i <= lotSize; i++)
+		{
+			parkingStrategy.add(i);
+		}
+	}
+	
+	static ParkingStrategy createStrategy(String strategy, int lotSize)
+	{
+		switch (strategy)
+		{
+			case "BITSET":
+				return new BitSetParkingStrategy(lotSize);
+			case "CONCURRENT_BITSET":
+				return new ConcurrentBitSetParkingStrategy(lotSize);
+			default:
+				return new NearestFirstParkingStrategy();
+		}
+	}
+	
+	@Benchmark
+	public int claimAndRelease()
+	{
+		int slot = parkingStrategy.claimSlot();
+		parkingStrategy.add(slot);
+		return slot;
+	}
+}
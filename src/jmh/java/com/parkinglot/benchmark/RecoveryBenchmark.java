@@ -0,0 +1,127 @@
+package com.parkinglot.benchmark;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.constants.ConcurrencyMode;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.stratergy.NearestFirstParkingStrategy;
+import com.parkinglot.persistence.ParkingPersistence;
+import com.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * Time to recover a lot from a journal of 1M park/leave events, with no
+ * snapshot or with a snapshot taken before the last 10% of the events.
+ * Each invocation restores the lot into a new service from a copy of the
+ * saved state, as recovery opens a new journal segment.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RecoveryBenchmark
+{
+	private static final int	EVENTS		= 1_000_000;
+	private static final int	LOT_SIZE	= 100_000;
+	
+	@Param({ "false", "true" })
+	private boolean				snapshot;
+	
+	private Path				saved;
+	private Path				directory;
+	private ParkingPersistence	persistence;
+	
+	@Setup(Level.Trial)
+	public void save() throws ParkingException, IOException
+	{
+		saved = Files.createTempDirectory("parking-saved");
+		try (ParkingPersistence writer = new ParkingPersistence(saved, false, Integer.MAX_VALUE))
+		{
+			ParkingServiceImpl parkingService = new ParkingServiceImpl(SlotStoreType.MAP,
+					NearestFirstParkingStrategy::new, ConcurrencyMode.LOCKED, writer);
+			parkingService.createParkingLot(1, LOT_SIZE);
+			// parks fill the lot up to ~90%, then every other event is a leave
+			int events = 1;
+			int next = 0;
+			int leaveSlot = 1;
+			while (events < EVENTS)
+			{
+				if (snapshot && events == EVENTS - EVENTS / 10)
+					parkingService.snapshot();
+				boolean leave = events >= LOT_SIZE * 9 / 10 && (events & 1) == 0;
+				if (leave)
+				{
+					parkingService.unPark(1, leaveSlot, 1);
+					leaveSlot = leaveSlot % LOT_SIZE + 1;
+				}
+				else
+				{
+					ParkResult result = parkingService.park(1,
+							new Car(BenchmarkSupport.registrationNo(next), BenchmarkSupport.colour(next)));
+					next++;
+					if (!result.isParked())
+						throw new IllegalStateException("Lot full after " + events + " events");
+				}
+				events++;
+			}
+		}
+	}
+	
+	@Setup(Level.Invocation)
+	public void copy() throws IOException
+	{
+		directory = Files.createTempDirectory("parking-recovery");
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(saved))
+		{
+			for (Path file : files)
+			{
+				Files.copy(file, directory.resolve(file.getFileName()));
+			}
+		}
+	}
+	
+	@Benchmark
+	public ParkingServiceImpl recover() throws ParkingException
+	{
+		persistence = new ParkingPersistence(directory, false, Integer.MAX_VALUE);
+		return new ParkingServiceImpl(SlotStoreType.MAP, NearestFirstParkingStrategy::new, ConcurrencyMode.LOCKED,
+				persistence);
+	}
+	
+	@TearDown(Level.Invocation)
+	public void closeCopy() throws IOException
+	{
+		persistence.close();
+		BenchmarkSupport.deleteDirectory(directory);
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteSaved() throws IOException
+	{
+		BenchmarkSupport.deleteDirectory(saved);
+	}
+}
@@ -0,0 +1,128 @@
+package com.parkinglot.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.constants.ConcurrencyMode;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.result.Reservation;
+import com.parkinglot.model.stratergy.BitSetParkingStrategy;
+import com.parkinglot.service.ParkingService;
+import com.parkinglot.service.impl.ParkingServiceImpl;
+import com.parkinglot.time.ManualClock;
+
+/**
+ * Holds expiring continuously: every operation moves the clock on a
+ * millisecond and adds a hold, while about as many expire, so the number of
+ * outstanding holds stays put.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationBenchmark
+{
+	private static final int	LEVEL			= 1;
+	private static final int	LOT_SIZE		= 1_000_000;
+	// registrations cycled through, more than the outstanding holds
+	private static final int	REGISTRATIONS	= 1 << 20;
+	
+	// holds outstanding at any time
+	@Param({ "1000", "100000" })
+	private int outstanding;
+	
+	@Param({ "MAP", "OFF_HEAP" })
+	private SlotStoreType slotStoreType;
+	
+	private ParkingService		parkingService;
+	private ManualClock			clock;
+	private SplittableRandom	random;
+	private String[]			registrationNos;
+	private int					next;
+	
+	@Setup(Level.Trial)
+	public void setup() throws ParkingException
+	{
+		ParkingServiceImpl service = new ParkingServiceImpl(slotStoreType, BitSetParkingStrategy::new,
+				ConcurrencyMode.LOCKED);
+		clock = new ManualClock(Instant.EPOCH, ZoneOffset.UTC);
+		service.setClock(clock);
+		service.createParkingLot(LEVEL, LOT_SIZE);
+		parkingService = service;
+		random = new SplittableRandom(42);
+		registrationNos = new String[REGISTRATIONS];
+		for (int i = 0; i < REGISTRATIONS; i++)
+		{
+			registrationNos[i] = BenchmarkSupport.registrationNo(i);
+		}
+		for (int i = 0; i < outstanding; i++)
+		{
+			reserve();
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		parkingService.doCleanup();
+	}
+	
+	/**
+	 * A hold of 1 to 2 x outstanding milliseconds, a hold is added every
+	 * millisecond so about outstanding are held at any time
+	 */
+	private Reservation reserve() throws ParkingException
+	{
+		String registrationNo = registrationNos[next++ & (REGISTRATIONS - 1)];
+		return parkingService.reserve(LEVEL, registrationNo,
+				Duration.ofMillis(outstanding + random.nextInt(outstanding)));
+	}
+	
+	/**
+	 * Moves the clock on, which expires the due holds, and adds a hold
+	 */
+	@Benchmark
+	public Reservation reserveAndExpire() throws ParkingException
+	{
+		clock.advanceMillis(1);
+		return reserve();
+	}
+	
+	/**
+	 * A hold is added and parked in straight away, then the vehicle leaves
+	 */
+	@Benchmark
+	public ParkResult reserveParkAndLeave() throws ParkingException
+	{
+		clock.advanceMillis(1);
+		Reservation reservation = reserve();
+		ParkResult result = parkingService.park(LEVEL, new Car(reservation.getRegistrationNo(), "White"));
+		if (result.isParked())
+			parkingService.unPark(LEVEL, result.getSlotNumber(), 1);
+		return result;
+	}
+}
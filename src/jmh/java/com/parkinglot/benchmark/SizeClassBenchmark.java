@@ -0,0 +1,133 @@
+package com.parkinglot.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.constants.Constants;
+import com.parkinglot.model.SizeClass;
+import com.parkinglot.model.stratergy.ParkingStrategy;
+import com.parkinglot.model.stratergy.SizeClassParkingStrategy;
+
+/**
+ * Cost of claiming the nearest free slot a vehicle fits in, and giving it
+ * back, on a fragmented lot: every oversize bay but the farthest one is
+ * taken, and half of the other bays at random. The pool per size class of
+ * {@link SizeClassParkingStrategy} against a scan of the free slots for the
+ * first one that fits.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SizeClassBenchmark
+{
+	// one oversize bay in 20, then 4 motorcycle, 5 compact and 10 standard bays
+	private static final IntFunction<SizeClass>	SLOT_SIZES	= slot -> {
+		int bay = slot % 20;
+		if (bay == 0)
+			return SizeClass.OVERSIZE;
+		if (bay <= 4)
+			return SizeClass.MOTORCYCLE;
+		return bay <= 9 ? SizeClass.COMPACT : SizeClass.STANDARD;
+	};
+	
+	@Param({ "10000", "1000000" })
+	private int									lotSize;
+	
+	@Param({ "MOTORCYCLE", "OVERSIZE" })
+	private SizeClass							sizeClass;
+	
+	@Param({ "SIZE_CLASS", "SCAN" })
+	private String								strategy;
+	
+	private ParkingStrategy						parkingStrategy;
+	
+	/**
+	 * Nearest first over all the free slots, skipping those the vehicle does
+	 * not fit in
+	 */
+	static class ScanParkingStrategy implements ParkingStrategy
+	{
+		private final TreeSet<Integer> freeSlots = new TreeSet<>();
+		
+		@Override
+		public void add(int i)
+		{
+			freeSlots.add(i);
+		}
+		
+		@Override
+		public int getSlot()
+		{
+			return freeSlots.first();
+		}
+		
+		@Override
+		public void removeSlot(int slot)
+		{
+			freeSlots.remove(slot);
+		}
+		
+		@Override
+		public int claimSlot(SizeClass sizeClass)
+		{
+			for (Integer slot : freeSlots)
+			{
+				if (SLOT_SIZES.apply(slot).fits(sizeClass))
+				{
+					freeSlots.remove(slot);
+					return slot;
+				}
+			}
+			return Constants.NOT_AVAILABLE;
+		}
+		
+		@Override
+		public boolean hasSizeClasses()
+		{
+			return true;
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		parkingStrategy = "SCAN".equals(strategy) ? new ScanParkingStrategy()
+				: new SizeClassParkingStrategy(SLOT_SIZES);
+		SplittableRandom random = new SplittableRandom(42);
+		int lastOversize = lotSize - lotSize % 20;
+		for (int i = 1; i <= lotSize; i++)
+		{
+			boolean free = SLOT_SIZES.apply(i) == SizeClass.OVERSIZE ? i == lastOversize : random.nextBoolean();
+			if (free)
+				parkingStrategy.add(i);
+		}
+	}
+	
+	@Benchmark
+	public int claimAndRelease()
+	{
+		int slot = parkingStrategy.claimSlot(sizeClass);
+		parkingStrategy.add(slot);
+		return slot;
+	}
+}
@@ -0,0 +1,116 @@
+package com.parkinglot.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.ResponseFormatter;
+import com.parkinglot.constants.ConcurrencyMode;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.stratergy.BitSetParkingStrategy;
+import com.parkinglot.service.ParkingService;
+import com.parkinglot.service.impl.ParkingServiceImpl;
+
+/**
+ * Status response of a full level written to a writer, formatted from the
+ * status list as one String against streamed row by row. Run with
+ * {@code -prof gc}: the list response allocates about twice the size of the
+ * output per call (109 MB for 1M slots), the streamed one a fixed 60 KB of
+ * chunk buffers on a heap level. An {@code OFF_HEAP} level still decodes a
+ * registration String per row, which is garbage as soon as it is written.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class StatusStreamBenchmark
+{
+	private static final int	LEVEL	= 1;
+	
+	@Param({ "1000000" })
+	private int					lotSize;
+	
+	@Param({ "ARRAY", "OFF_HEAP" })
+	private SlotStoreType		slotStoreType;
+	
+	private ParkingService		parkingService;
+	private final CountingWriter	writer	= new CountingWriter();
+	
+	/**
+	 * Discards what is written, so only the response is measured
+	 */
+	private static final class CountingWriter extends Writer
+	{
+		private long chars;
+		
+		@Override
+		public void write(char[] buffer, int offset, int length)
+		{
+			chars += length;
+		}
+		
+		@Override
+		public void write(String string)
+		{
+			chars += string.length();
+		}
+		
+		@Override
+		public void flush()
+		{
+		}
+		
+		@Override
+		public void close()
+		{
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup() throws ParkingException
+	{
+		parkingService = new ParkingServiceImpl(slotStoreType, BitSetParkingStrategy::new, ConcurrencyMode.LOCKED);
+		parkingService.createParkingLot(LEVEL, lotSize);
+		BenchmarkSupport.fill(parkingService, LEVEL, lotSize, 100);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		parkingService.doCleanup();
+	}
+	
+	@Benchmark
+	public long formattedList() throws ParkingException, IOException
+	{
+		writer.write(ResponseFormatter.formatStatus(parkingService.getStatus(LEVEL), false));
+		writer.write(System.lineSeparator());
+		return writer.chars;
+	}
+	
+	@Benchmark
+	public long streamed() throws ParkingException, IOException
+	{
+		parkingService.streamStatus(LEVEL, ResponseFormatter.statusWriter(writer, false));
+		return writer.chars;
+	}
+}
@@ -0,0 +1,100 @@
+package com.parkinglot.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.billing.LevelTariff;
+import com.parkinglot.billing.Tariff;
+import com.parkinglot.billing.TariffSchedule;
+
+/**
+ * Fee of a leave under tariffs of growing complexity, for stays of growing
+ * length. The fees are looked up in the tables of the schedules, so the time
+ * should not grow with either.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TariffBenchmark
+{
+	private static final int	LEVELS	= 8;
+	
+	@Param({ "1", "30", "10000" })
+	private int					hours;
+	
+	/**
+	 * DEFAULT: flat rate; TIME_OF_DAY: day and night rates with a daily cap;
+	 * PER_LEVEL: a time of day schedule per level
+	 */
+	@Param({ "DEFAULT", "TIME_OF_DAY", "PER_LEVEL" })
+	private String				tariffType;
+	
+	private Tariff				tariff;
+	private long[]				parkingTimes;
+	private int					next;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		switch (tariffType)
+		{
+			case "DEFAULT":
+				tariff = TariffSchedule.DEFAULT;
+				break;
+			case "TIME_OF_DAY":
+				tariff = dayAndNight(20, 5, 120);
+				break;
+			default:
+				Map<Integer, Tariff> levelTariffs = new HashMap<>();
+				for (int level = 1; level <= LEVELS; level++)
+				{
+					levelTariffs.put(level, dayAndNight(10 + level, level, 100 + 10 * level));
+				}
+				tariff = new LevelTariff(TariffSchedule.DEFAULT, levelTariffs);
+		}
+		parkingTimes = new long[24];
+		for (int hour = 0; hour < parkingTimes.length; hour++)
+		{
+			parkingTimes[hour] = LocalDateTime.of(2020, 1, 1, hour, 15).atZone(ZoneId.systemDefault()).toInstant()
+					.toEpochMilli();
+		}
+	}
+	
+	private static TariffSchedule dayAndNight(int dayRate, int nightRate, int dailyCap)
+	{
+		int[] hourlyRates = new int[24];
+		for (int hour = 0; hour < hourlyRates.length; hour++)
+		{
+			hourlyRates[hour] = hour >= 8 && hour < 20 ? dayRate : nightRate;
+		}
+		return new TariffSchedule(1, dayRate, hourlyRates, dailyCap);
+	}
+	
+	@Benchmark
+	public int fee()
+	{
+		int i = next++;
+		return tariff.getFee(1 + i % LEVELS, parkingTimes[i % parkingTimes.length], hours);
+	}
+}
@@ -0,0 +1,130 @@
+package com.parkinglot.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.parkinglot.model.Car;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.persistence.VehicleCodec;
+
+/**
+ * Encoding and decoding {@value #VEHICLES} vehicles with {@link VehicleCodec}
+ * against the Externalizable path through object streams. Scores are per
+ * vehicle; run with {@code -prof gc} for the allocation per vehicle.
+ * 
+ * A vehicle with a 9 character registration number takes 28 bytes with the
+ * codec, against 47 bytes in a stream of vehicles and 154 bytes for a single
+ * vehicle stream with Externalizable.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleCodecBenchmark
+{
+	static final int		VEHICLES	= 1000;
+	
+	private Vehicle[]		vehicles;
+	private VehicleCodec	codec;
+	private ByteBuffer		buffer;
+	private byte[]			externalized;
+	
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		vehicles = new Vehicle[VEHICLES];
+		for (int i = 0; i < VEHICLES; i++)
+		{
+			vehicles[i] = new Car(BenchmarkSupport.registrationNo(i), BenchmarkSupport.colour(i));
+		}
+		codec = new VehicleCodec();
+		buffer = ByteBuffer.allocate(VEHICLES * 64);
+		for (Vehicle vehicle : vehicles)
+		{
+			codec.write(vehicle, buffer);
+		}
+		buffer.flip();
+		externalized = externalize();
+	}
+	
+	private byte[] externalize() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(VEHICLES * 256);
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes))
+		{
+			for (Vehicle vehicle : vehicles)
+			{
+				output.writeObject(vehicle);
+			}
+		}
+		return bytes.toByteArray();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(VEHICLES)
+	public int codecWrite()
+	{
+		ByteBuffer output = buffer.duplicate();
+		output.clear();
+		for (Vehicle vehicle : vehicles)
+		{
+			codec.write(vehicle, output);
+		}
+		return output.position();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(VEHICLES)
+	public void codecRead(Blackhole blackhole)
+	{
+		ByteBuffer input = buffer.duplicate();
+		for (int i = 0; i < VEHICLES; i++)
+		{
+			blackhole.consume(codec.read(input));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(VEHICLES)
+	public int externalizableWrite() throws IOException
+	{
+		byte[] bytes = externalize();
+		return bytes.length;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(VEHICLES)
+	public void externalizableRead(Blackhole blackhole) throws IOException, ClassNotFoundException
+	{
+		try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(externalized)))
+		{
+			for (int i = 0; i < VEHICLES; i++)
+			{
+				blackhole.consume(input.readObject());
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.parkinglot.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkinglot.model.Car;
+
+/**
+ * Heap retained by the vehicles of a full 1M slot lot. Each vehicle is built
+ * from freshly parsed Strings, as a park command does. The {@code STRING}
+ * layout keeps the parsed colour in every vehicle, as the vehicles did before
+ * the colour dictionary; {@code ID} is {@link Car}, which keeps only the id of
+ * the colour and the parking time as epoch milliseconds. The
+ * {@code bytesPerVehicle} counter is the heap in use after a GC with the
+ * vehicles held in a field, less the heap in use once they are dropped, per
+ * vehicle. JMH sums the counter over the iterations, so there is one
+ * measured iteration.
+ * 
+ * @author Balasaheb
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class VehicleFootprintBenchmark
+{
+	private static final int	VEHICLES	= 1_000_000;
+	
+	@Param({ "STRING", "ID" })
+	private String				layout;
+	
+	private String[]			registrationNos;
+	private Object[]			vehicles;
+	
+	/**
+	 * Vehicle layout before the colour dictionary
+	 */
+	static class StringColourCar
+	{
+		final String		registrationNo;
+		final String		color;
+		final LocalDateTime	parkingtime;
+		
+		StringColourCar(String registrationNo, String color)
+		{
+			this.registrationNo = registrationNo;
+			this.color = color;
+			this.parkingtime = LocalDateTime.now();
+		}
+	}
+	
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Heap
+	{
+		public long bytesPerVehicle;
+	}
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		// Registration numbers are retained by both layouts, so they are not part
+		// of the measurement
+		registrationNos = new String[VEHICLES];
+		for (int i = 0; i < VEHICLES; i++)
+		{
+			registrationNos[i] = BenchmarkSupport.registrationNo(i);
+		}
+	}
+	
+	@Benchmark
+	public void fullLot(Heap heap)
+	{
+		vehicles = new Object[VEHICLES];
+		boolean id = "ID".equals(layout);
+		for (int i = 0; i < VEHICLES; i++)
+		{
+			// a new String per vehicle, as the command parser creates
+			String colour = new String(BenchmarkSupport.colour(i).toCharArray());
+			vehicles[i] = id ? new Car(registrationNos[i], colour) : new StringColourCar(registrationNos[i], colour);
+		}
+		long withVehicles = BenchmarkSupport.usedHeap();
+		vehicles = null;
+		heap.bytesPerVehicle = (withVehicles - BenchmarkSupport.usedHeap()) / VEHICLES;
+	}
+}
@@ -1,24 +1,48 @@
 package com.parkinglot;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 
+import com.parkinglot.batch.BatchRunner;
+import com.parkinglot.batch.CommandSource;
+import com.parkinglot.batch.LineCommandSource;
+import com.parkinglot.batch.MappedCommandSource;
+import com.parkinglot.batch.PipelinedBatchRunner;
 import com.parkinglot.exception.ErrorCode;
 import com.parkinglot.exception.ParkingException;
 import com.parkinglot.processor.AbstractProcessor;
+import com.parkinglot.processor.Command;
+import com.parkinglot.processor.CommandResult;
 import com.parkinglot.processor.RequestProcessor;
 import com.parkinglot.service.impl.ParkingServiceImpl;
 
 public class ParkingLot
 {
+	private static final String	BATCH_OPTION	= "--batch";
+	private static final String	MMAP_OPTION		= "--mmap";
+	private static final String	PIPELINE_OPTION	= "--pipeline";
+	
 	public static void main(String[] args)
 	{
 		AbstractProcessor processor = new RequestProcessor();
 		processor.setService(new ParkingServiceImpl());
+		if (isBatch(args))
+		{
+			List<String> options = Arrays.asList(args).subList(0, args.length - 1);
+			runBatch(processor, args[args.length - 1], options.contains(MMAP_OPTION),
+					options.contains(PIPELINE_OPTION));
+			return;
+		}
 		BufferedReader bufferReader = null;
 		String input = null;
 		try
@@ -44,23 +68,9 @@ public class ParkingLot
 							{
 								break;
 							}
-							else
+							else if (!execute(processor, input))
 							{
-								if (processor.validate(input))
-								{
-									try
-									{
-										processor.execute(input.trim());
-									}
-									catch (Exception e)
-									{
-										System.out.println(e.getMessage());
-									}
-								}
-								else
-								{
-									printUsage();
-								}
+								printUsage();
 							}
 						}
 						catch (Exception e)
@@ -83,18 +93,7 @@ public class ParkingLot
 						while ((input = bufferReader.readLine()) != null)
 						{
 							input = input.trim();
-							if (processor.validate(input))
-							{
-								try
-								{
-									processor.execute(input);
-								}
-								catch (Exception e)
-								{
-									System.out.println(e.getMessage());
-								}
-							}
-							else
+							if (!execute(processor, input))
 								System.out.println("Incorrect Command Found at line: " + lineNo + " ,Input: " + input);
 							lineNo++;
 						}
@@ -106,7 +105,8 @@ public class ParkingLot
 					break;
 				}
 				default:
-					System.out.println("Invalid input. Usage Style: java -jar <jar_file_path> <input_file_path>");
+					System.out.println("Invalid input. Usage Style: java -jar <jar_file_path> [" + BATCH_OPTION + "] ["
+							+ MMAP_OPTION + "] [" + PIPELINE_OPTION + "] <input_file_path>");
 			}
 		}
 		catch (ParkingException e)
@@ -127,6 +127,74 @@ public class ParkingLot
 		}
 	}
 	
+	/**
+	 * @return true if the file name is preceded by batch options only
+	 */
+	private static boolean isBatch(String[] args)
+	{
+		if (args.length < 2)
+			return false;
+		for (int i = 0; i < args.length - 1; i++)
+		{
+			if (!BATCH_OPTION.equals(args[i]) && !MMAP_OPTION.equals(args[i]) && !PIPELINE_OPTION.equals(args[i]))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Batch mode: only the responses go to standard output, the throughput is
+	 * reported on standard error once the file is processed. The file is memory
+	 * mapped and tokenised from its bytes if mapped is set, and parsing,
+	 * execution and output run on separate threads if pipelined is set.
+	 */
+	private static void runBatch(AbstractProcessor processor, String fileName, boolean mapped, boolean pipelined)
+	{
+		Writer writer = new BufferedWriter(new OutputStreamWriter(System.out), BatchRunner.OUTPUT_BUFFER_SIZE);
+		try (CommandSource source = mapped ? new MappedCommandSource(Paths.get(fileName))
+				: new LineCommandSource(new BufferedReader(new FileReader(fileName), BatchRunner.INPUT_BUFFER_SIZE)))
+		{
+			long start = System.nanoTime();
+			long commands = pipelined ? new PipelinedBatchRunner(processor).run(source, writer)
+					: new BatchRunner(processor).run(source, writer);
+			long elapsed = Math.max(System.nanoTime() - start, 1);
+			System.err.printf("Processed %d commands in %.3f ms (%.0f commands/sec)%n", commands, elapsed / 1e6,
+					commands * 1e9 / elapsed);
+		}
+		catch (IOException e)
+		{
+			System.err.println(ErrorCode.INVALID_FILE.getMessage() + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Parses the line once, as batch mode does, and executes it
+	 * 
+	 * @return false if the command is unknown or has a wrong number of
+	 *         parameters, nothing is executed then
+	 */
+	private static boolean execute(AbstractProcessor processor, String input)
+	{
+		try
+		{
+			Command command = Command.parse(input);
+			if (command == null)
+				return false;
+			print(processor.execute(command));
+		}
+		catch (Exception e)
+		{
+			System.out.println(e.getMessage());
+		}
+		return true;
+	}
+	
+	private static void print(CommandResult result)
+	{
+		if (result != null)
+			System.out.println(ResponseFormatter.format(result));
+	}
+	
 	private static void printUsage()
 	{
 		StringBuffer buffer = new StringBuffer();
@@ -135,6 +203,9 @@ public class ParkingLot
 				.append("\n");
 		buffer = buffer.append("A) For creating parking lot of size n               ---> create_parking_lot {capacity}")
 				.append("\n");
+		buffer = buffer.append(
+				"   For creating parking lot with levels             ---> create_parking_lot {capacity_level_1} {capacity_level_2} ...")
+				.append("\n");
 		buffer = buffer
 				.append("B) To park a car                                    ---> park <<car_number>> {car_clour}")
 				.append("\n");
@@ -150,6 +221,9 @@ public class ParkingLot
 		buffer = buffer.append(
 				"G) Get slot number for the given car number         ---> slot_number_for_registration_number {car_number}")
 				.append("\n");
+		buffer = buffer.append(
+				"Commands B) to G) accept an optional {level} at the end, park uses the lowest level with a free slot without it")
+				.append("\n");
 		System.out.println(buffer.toString());
 	}
 	
@@ -0,0 +1,190 @@
+package com.parkinglot;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+import com.parkinglot.model.result.LeaveResult;
+import com.parkinglot.model.result.LevelStatus;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.result.SlotLocation;
+import com.parkinglot.model.result.SlotStatus;
+import com.parkinglot.model.result.StatusSink;
+import com.parkinglot.processor.CommandResult;
+
+/**
+ * Turns command results into the text printed by the parking lot console
+ * 
+ * @author Balasaheb
+ */
+public class ResponseFormatter
+{
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	
+	private ResponseFormatter()
+	{
+	}
+	
+	/**
+	 * @return output lines of the command, without a trailing line separator
+	 */
+	public static String format(CommandResult commandResult)
+	{
+		return commandResult.format();
+	}
+	
+	/**
+	 * @return response to create_parking_lot
+	 */
+	public static String formatCreate(int[] capacities)
+	{
+		int totalCapacity = 0;
+		for (int capacity : capacities)
+		{
+			totalCapacity += capacity;
+		}
+		if (capacities.length == 1)
+			return "Created parking lot with " + totalCapacity + " slots";
+		return "Created parking lot with " + capacities.length + " levels and " + totalCapacity + " slots";
+	}
+	
+	/**
+	 * @return response to park
+	 */
+	public static String formatPark(ParkResult result, boolean multiLevel)
+	{
+		if (result.isLotFull())
+			return "Sorry, parking lot is full";
+		if (result.isAlreadyParked())
+			return "Sorry, vehicle is already parked.";
+		return "Allocated slot number: " + result.getSlotNumber() + getLevelSuffix(result.getLevel(), multiLevel);
+	}
+	
+	/**
+	 * @return response to leave
+	 */
+	public static String formatLeave(LeaveResult result, boolean multiLevel)
+	{
+		if (!result.isFreed())
+			return "Slot number is Empty Already.";
+		return "Slot number " + result.getSlotNumber() + getLevelSuffix(result.getLevel(), multiLevel)
+				+ " is free with charge " + result.getParkingFees();
+	}
+	
+	/**
+	 * @return response to status, the same lines as {@link #statusWriter}
+	 *         writes
+	 */
+	public static String formatStatus(List<LevelStatus> statusList, boolean multiLevel)
+	{
+		StringJoiner lines = new StringJoiner(LINE_SEPARATOR);
+		for (LevelStatus levelStatus : statusList)
+		{
+			if (multiLevel)
+				lines.add("Level " + levelStatus.getLevel());
+			lines.add("Slot No.\tRegistration No.\tColor");
+			if (levelStatus.getSlots().isEmpty())
+				lines.add("Sorry, parking lot is empty.");
+			for (SlotStatus slotStatus : levelStatus.getSlots())
+			{
+				lines.add(slotStatus.getSlotNumber() + "\t\t" + slotStatus.getRegistrationNo() + "\t\t"
+						+ slotStatus.getColor());
+			}
+		}
+		return lines.toString();
+	}
+	
+	/**
+	 * @return sink writing the same lines as the status response, each followed
+	 *         by a line separator
+	 */
+	public static StatusSink statusWriter(Writer writer, boolean multiLevel)
+	{
+		return new StatusSink()
+		{
+			// digits of a slot number, written without a String per row
+			private final char[] digits = new char[10];
+			
+			@Override
+			public void beginLevel(int level) throws IOException
+			{
+				if (multiLevel)
+					writeLine(writer, "Level " + level);
+				writeLine(writer, "Slot No.\tRegistration No.\tColor");
+			}
+			
+			@Override
+			public void slot(int slotNumber, String registrationNo, String color) throws IOException
+			{
+				int start = digits.length;
+				do
+				{
+					digits[--start] = (char) ('0' + slotNumber % 10);
+					slotNumber /= 10;
+				}
+				while (slotNumber > 0);
+				writer.write(digits, start, digits.length - start);
+				writer.write("\t\t");
+				writer.write(registrationNo);
+				writer.write("\t\t");
+				writeLine(writer, color);
+			}
+			
+			@Override
+			public void endLevel(int level, int slots) throws IOException
+			{
+				// the empty level message follows the header
+				if (slots == 0)
+					writeLine(writer, "Sorry, parking lot is empty.");
+			}
+		};
+	}
+	
+	private static void writeLine(Writer writer, String line) throws IOException
+	{
+		writer.write(line);
+		writer.write(LINE_SEPARATOR);
+	}
+	
+	/**
+	 * @return registration numbers joined with commas
+	 */
+	public static String formatRegistrations(List<String> registrationList)
+	{
+		return registrationList.isEmpty() ? "Not Found" : String.join(",", registrationList);
+	}
+	
+	/**
+	 * Slots of a multi level lot are reported as level:slot
+	 */
+	public static String formatSlots(List<SlotLocation> slotList, boolean multiLevel)
+	{
+		if (slotList.isEmpty())
+			return "Not Found";
+		StringJoiner joiner = new StringJoiner(",");
+		for (SlotLocation slot : slotList)
+		{
+			joiner.add(multiLevel ? slot.getLevel() + ":" + slot.getSlotNumber() : slot.getSlotNumber() + "");
+		}
+		return joiner.toString();
+	}
+	
+	/**
+	 * @return response to a registration number lookup
+	 */
+	public static String formatSlot(Optional<SlotLocation> slot, boolean multiLevel)
+	{
+		return slot.isPresent() ? slot.get().getSlotNumber() + getLevelSuffix(slot.get().getLevel(), multiLevel)
+				: "Not Found";
+	}
+	
+	/**
+	 * @return level to report a slot with, empty for a single level lot
+	 */
+	private static String getLevelSuffix(int level, boolean multiLevel)
+	{
+		return multiLevel ? " on level " + level : "";
+	}
+}
@@ -0,0 +1,116 @@
+package com.parkinglot.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.parkinglot.ResponseFormatter;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.processor.AbstractProcessor;
+import com.parkinglot.processor.CommandResult;
+
+/**
+ * Runs a command file in one pass. Every line is parsed once into a
+ * {@link com.parkinglot.processor.Command} and the responses are written to a
+ * single writer, which the caller is expected to buffer, instead of printing
+ * line by line. The output is the same as the file mode of
+ * {@link com.parkinglot.ParkingLot}. Status rows are written as they are read,
+ * so a status of a large lot needs no more memory than a small one.
+ * 
+ * @author Balasaheb
+ */
+public class BatchRunner
+{
+	public static final int		INPUT_BUFFER_SIZE	= 1 << 16;
+	public static final int		OUTPUT_BUFFER_SIZE	= 1 << 20;
+	
+	private final AbstractProcessor processor;
+	
+	public BatchRunner(AbstractProcessor processor)
+	{
+		this.processor = processor;
+	}
+	
+	/**
+	 * @param source
+	 *            command lines
+	 * @param writer
+	 *            responses, flushed once all the lines are processed
+	 * @return number of lines processed
+	 * @throws IOException
+	 */
+	public long run(CommandSource source, Writer writer) throws IOException
+	{
+		long lines = 0;
+		ParsedLine line;
+		while ((line = source.next()) != null)
+		{
+			lines++;
+			if (write(processor, line, writer))
+				continue;
+			String response = format(execute(processor, line));
+			if (response != null)
+			{
+				writer.write(response);
+				writer.write(System.lineSeparator());
+			}
+		}
+		writer.flush();
+		return lines;
+	}
+	
+	/**
+	 * Executes the command on the line if it streams its response, e.g. status,
+	 * so that a large response is not built in memory
+	 * 
+	 * @return false if the line is to be executed and formatted as a result
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	static boolean write(AbstractProcessor processor, ParsedLine line, Writer writer) throws IOException
+	{
+		if (line.getCommand() == null)
+			return false;
+		try
+		{
+			return processor.write(line.getCommand(), writer);
+		}
+		catch (ParkingException | RuntimeException e)
+		{
+			// the lot and level are checked before the first line is written
+			writer.write(String.valueOf(e.getMessage()));
+			writer.write(System.lineSeparator());
+			return true;
+		}
+	}
+	
+	/**
+	 * @return result of the command on the line, the response to print for a
+	 *         line that could not be parsed or executed, null if there is nothing
+	 *         to print
+	 */
+	static Object execute(AbstractProcessor processor, ParsedLine line)
+	{
+		if (line.getCommand() == null)
+			return line.getResponse();
+		try
+		{
+			return processor.execute(line.getCommand());
+		}
+		catch (Exception e)
+		{
+			return String.valueOf(e.getMessage());
+		}
+	}
+	
+	/**
+	 * @param executed
+	 *            value returned by {@link #execute(AbstractProcessor, ParsedLine)}
+	 * @return response to print, null if there is nothing to print
+	 */
+	static String format(Object executed)
+	{
+		if (executed instanceof CommandResult)
+			return ResponseFormatter.format((CommandResult) executed);
+		return (String) executed;
+	}
+}
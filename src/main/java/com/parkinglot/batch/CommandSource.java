@@ -0,0 +1,18 @@
+package com.parkinglot.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Supplies the lines of a command file, in order, already parsed
+ * 
+ * @author Balasaheb
+ */
+public interface CommandSource extends Closeable
+{
+	/**
+	 * @return next line, null at the end of the input
+	 * @throws IOException
+	 */
+	public ParsedLine next() throws IOException;
+}
@@ -0,0 +1,49 @@
+package com.parkinglot.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.processor.Command;
+
+/**
+ * Reads the command file line by line and parses each line with
+ * {@link Command#parse(String)}
+ * 
+ * @author Balasaheb
+ */
+public class LineCommandSource implements CommandSource
+{
+	private final BufferedReader	reader;
+	private long					lineNo;
+	
+	public LineCommandSource(BufferedReader reader)
+	{
+		this.reader = reader;
+	}
+	
+	@Override
+	public ParsedLine next() throws IOException
+	{
+		String input = reader.readLine();
+		if (input == null)
+			return null;
+		lineNo++;
+		input = input.trim();
+		try
+		{
+			Command command = Command.parse(input);
+			return command != null ? ParsedLine.command(command) : ParsedLine.incorrectCommand(lineNo, input);
+		}
+		catch (ParkingException e)
+		{
+			return ParsedLine.error(e.getMessage());
+		}
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+}
@@ -0,0 +1,263 @@
+package com.parkinglot.batch;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.processor.Command;
+import com.parkinglot.processor.CommandHandler;
+import com.parkinglot.processor.CommandRegistry;
+import com.parkinglot.processor.CommandTokens;
+
+/**
+ * Memory maps the command file and tokenises the commands straight from the
+ * mapped bytes. The keyword is matched against the registered commands byte by
+ * byte and numbers are parsed from the bytes, so the only Strings created per
+ * line are the registration number and colour kept by the vehicle. The
+ * parameters are read through {@link CommandTokens} by the same
+ * {@link CommandHandler} that parses split lines. The file is
+ * mapped in segments of at most {@link #SEGMENT_SIZE} bytes, so files larger
+ * than 2 GB can be replayed. The file is read in the default charset, same as
+ * FileReader, which is expected to be ASCII compatible.
+ * 
+ * Lines are split on single spaces after trimming, same as
+ * {@link Command#parse(String)}, so the responses match the file mode.
+ * 
+ * @author Balasaheb
+ */
+public class MappedCommandSource implements CommandSource, CommandTokens
+{
+	static final long				SEGMENT_SIZE	= 1L << 30;
+	
+	private final FileChannel		channel;
+	private final long				size;
+	private MappedByteBuffer		buffer;
+	// file offset of the start of buffer
+	private long					segmentStart;
+	private long					lineNo;
+	
+	// command keywords, as bytes, with their handlers
+	private final byte[][]			keywords;
+	private final CommandHandler[]	handlers;
+	
+	// token offsets in buffer of the current line
+	private int						tokens;
+	private int[]					tokenStart		= new int[8];
+	private int[]					tokenEnd		= new int[8];
+	private byte[]					scratch			= new byte[64];
+	private final Charset			charset			= Charset.defaultCharset();
+	
+	public MappedCommandSource(Path file) throws IOException
+	{
+		this(file, CommandRegistry.getDefault());
+	}
+	
+	public MappedCommandSource(Path file, CommandRegistry registry) throws IOException
+	{
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		size = channel.size();
+		map(0);
+		Collection<CommandHandler> commands = registry.getHandlers();
+		keywords = new byte[commands.size()][];
+		handlers = new CommandHandler[commands.size()];
+		int i = 0;
+		for (CommandHandler handler : commands)
+		{
+			handlers[i] = handler;
+			keywords[i++] = handler.getName().getBytes(charset);
+		}
+	}
+	
+	private void map(long position) throws IOException
+	{
+		segmentStart = position;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+	}
+	
+	@Override
+	public ParsedLine next() throws IOException
+	{
+		int start = buffer.position();
+		if (segmentStart + start >= size)
+			return null;
+		int limit = buffer.limit();
+		int end = start;
+		while (end < limit && !isLineEnd(buffer.get(end)))
+		{
+			end++;
+		}
+		// The line, or its \r\n, runs past this segment: map the next segment from
+		// the start of the line
+		if (end + 1 >= limit && segmentStart + limit < size)
+		{
+			if (start == 0)
+				throw new IOException("Line " + (lineNo + 1) + " is longer than " + SEGMENT_SIZE + " bytes");
+			map(segmentStart + start);
+			return next();
+		}
+		int next = end;
+		if (end < limit)
+		{
+			next++;
+			if (buffer.get(end) == '\r' && next < limit && buffer.get(next) == '\n')
+				next++;
+		}
+		buffer.position(next);
+		lineNo++;
+		// String.trim semantics: drop leading and trailing bytes <= ' '
+		while (start < end && (buffer.get(start) & 0xff) <= ' ')
+		{
+			start++;
+		}
+		while (end > start && (buffer.get(end - 1) & 0xff) <= ' ')
+		{
+			end--;
+		}
+		try
+		{
+			Command command = parse(start, end);
+			return command != null ? ParsedLine.command(command)
+					: ParsedLine.incorrectCommand(lineNo, decode(start, end));
+		}
+		catch (ParkingException e)
+		{
+			return ParsedLine.error(e.getMessage());
+		}
+	}
+	
+	private static boolean isLineEnd(byte b)
+	{
+		return b == '\n' || b == '\r';
+	}
+	
+	/**
+	 * @return parsed command for the trimmed line in [start, end), null if the
+	 *         command is unknown or has a wrong number of parameters
+	 */
+	private Command parse(int start, int end) throws ParkingException
+	{
+		tokens = tokenise(start, end);
+		CommandHandler handler = keyword(tokenStart[0], tokenEnd[0]);
+		if (handler == null || !handler.accepts(tokens - 1))
+			return null;
+		return handler.parse(this);
+	}
+	
+	@Override
+	public int count()
+	{
+		return tokens;
+	}
+	
+	@Override
+	public String getString(int index)
+	{
+		return decode(tokenStart[index], tokenEnd[index]);
+	}
+	
+	/**
+	 * Splits [start, end) on every space, like String.split(" ") on a trimmed
+	 * line
+	 * 
+	 * @return number of tokens
+	 */
+	private int tokenise(int start, int end)
+	{
+		int tokens = 0;
+		int tokenBegin = start;
+		for (int i = start; i <= end; i++)
+		{
+			if (i == end || buffer.get(i) == ' ')
+			{
+				if (tokens == tokenStart.length)
+				{
+					tokenStart = Arrays.copyOf(tokenStart, tokens * 2);
+					tokenEnd = Arrays.copyOf(tokenEnd, tokens * 2);
+				}
+				tokenStart[tokens] = tokenBegin;
+				tokenEnd[tokens++] = i;
+				tokenBegin = i + 1;
+			}
+		}
+		return tokens;
+	}
+	
+	/**
+	 * @return handler of the command matching the bytes in [start, end), null if
+	 *         none
+	 */
+	private CommandHandler keyword(int start, int end)
+	{
+		int length = end - start;
+		for (int k = 0; k < keywords.length; k++)
+		{
+			byte[] keyword = keywords[k];
+			if (keyword.length != length)
+				continue;
+			int i = 0;
+			while (i < length && keyword[i] == buffer.get(start + i))
+			{
+				i++;
+			}
+			if (i == length)
+				return handlers[k];
+		}
+		return null;
+	}
+	
+	/**
+	 * Same as Integer.parseInt for ASCII digits
+	 */
+	@Override
+	public int getInt(int index, String errorMessage) throws ParkingException
+	{
+		int i = tokenStart[index];
+		int end = tokenEnd[index];
+		if (i == end)
+			throw new ParkingException(errorMessage);
+		boolean negative = false;
+		byte first = buffer.get(i);
+		if (first == '-' || first == '+')
+		{
+			negative = first == '-';
+			if (++i == end)
+				throw new ParkingException(errorMessage);
+		}
+		long max = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+		long value = 0;
+		for (; i < end; i++)
+		{
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9)
+				throw new ParkingException(errorMessage);
+			value = value * 10 + digit;
+			if (value > max)
+				throw new ParkingException(errorMessage);
+		}
+		return (int) (negative ? -value : value);
+	}
+	
+	private String decode(int start, int end)
+	{
+		int length = end - start;
+		if (scratch.length < length)
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		for (int i = 0; i < length; i++)
+		{
+			scratch[i] = buffer.get(start + i);
+		}
+		return new String(scratch, 0, length, charset);
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
@@ -0,0 +1,56 @@
+package com.parkinglot.batch;
+
+import com.parkinglot.processor.Command;
+
+/**
+ * One line of a command file: either a command to execute or the response to
+ * emit in its place when the line could not be parsed
+ * 
+ * @author Balasaheb
+ */
+public final class ParsedLine
+{
+	private final Command	command;
+	private final String	response;
+	
+	private ParsedLine(Command command, String response)
+	{
+		this.command = command;
+		this.response = response;
+	}
+	
+	public static ParsedLine command(Command command)
+	{
+		return new ParsedLine(command, null);
+	}
+	
+	public static ParsedLine error(String response)
+	{
+		return new ParsedLine(null, String.valueOf(response));
+	}
+	
+	/**
+	 * @return response for a line that is not a valid command, same as the file
+	 *         mode of {@link com.parkinglot.ParkingLot}
+	 */
+	public static ParsedLine incorrectCommand(long lineNo, String input)
+	{
+		return error("Incorrect Command Found at line: " + lineNo + " ,Input: " + input);
+	}
+	
+	/**
+	 * @return the command, null if the line could not be parsed
+	 */
+	public Command getCommand()
+	{
+		return command;
+	}
+	
+	/**
+	 * @return the response for a line that could not be parsed
+	 */
+	public String getResponse()
+	{
+		return response;
+	}
+}
@@ -0,0 +1,206 @@
+package com.parkinglot.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.parkinglot.processor.AbstractProcessor;
+
+/**
+ * Runs a command file as a pipeline of three stages connected by bounded
+ * queues:
+ * <ol>
+ * <li>a reader thread that reads and parses the lines,</li>
+ * <li>a single executor thread that applies the commands to the service in
+ * file order,</li>
+ * <li>the calling thread, which formats and writes the responses.</li>
+ * </ol>
+ * Lines are handed over in batches of {@link #BATCH_SIZE} to keep the cost of
+ * the queues low. As the commands are executed by one thread in order the
+ * output is the same as {@link BatchRunner}. Status responses are collected
+ * by the executor, as the writer formats them after later commands have run.
+ * 
+ * @author Balasaheb
+ */
+public class PipelinedBatchRunner
+{
+	public static final int			BATCH_SIZE				= 256;
+	public static final int			DEFAULT_QUEUE_CAPACITY	= 64;
+	
+	// Marks the end of the input on both queues
+	private static final Object[]	END						= new Object[0];
+	
+	private final AbstractProcessor	processor;
+	private final int				queueCapacity;
+	
+	public PipelinedBatchRunner(AbstractProcessor processor)
+	{
+		this(processor, DEFAULT_QUEUE_CAPACITY);
+	}
+	
+	/**
+	 * @param queueCapacity
+	 *            number of batches each queue holds before the stage feeding it
+	 *            blocks
+	 */
+	public PipelinedBatchRunner(AbstractProcessor processor, int queueCapacity)
+	{
+		this.processor = processor;
+		this.queueCapacity = queueCapacity;
+	}
+	
+	/**
+	 * @param source
+	 *            command lines
+	 * @param writer
+	 *            responses, flushed once all the lines are processed
+	 * @return number of lines processed
+	 * @throws IOException
+	 *             if reading, executing or writing fails; the other stages are
+	 *             stopped
+	 */
+	public long run(CommandSource source, Writer writer) throws IOException
+	{
+		BlockingQueue<Object[]> parsed = new ArrayBlockingQueue<>(queueCapacity);
+		BlockingQueue<Object[]> executed = new ArrayBlockingQueue<>(queueCapacity);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread writerThread = Thread.currentThread();
+		Thread[] stages = new Thread[3];
+		stages[0] = new Thread(() -> {
+			try
+			{
+				read(source, parsed);
+			}
+			catch (Throwable e)
+			{
+				fail(failure, e, stages);
+			}
+		}, "batch-reader");
+		stages[1] = new Thread(() -> {
+			try
+			{
+				execute(parsed, executed);
+			}
+			catch (Throwable e)
+			{
+				fail(failure, e, stages);
+			}
+		}, "batch-executor");
+		stages[2] = writerThread;
+		stages[0].start();
+		stages[1].start();
+		long lines = 0;
+		try
+		{
+			lines = write(executed, writer);
+		}
+		catch (Throwable e)
+		{
+			fail(failure, e, stages);
+		}
+		try
+		{
+			stages[0].join();
+			stages[1].join();
+		}
+		catch (InterruptedException e)
+		{
+			// A failed stage interrupts the writer, the failure is reported below
+		}
+		// Clear an interrupt from a failed stage
+		Thread.interrupted();
+		Throwable cause = failure.get();
+		if (cause instanceof IOException)
+			throw (IOException) cause;
+		if (cause != null)
+			throw new IOException(cause);
+		return lines;
+	}
+	
+	/**
+	 * Records the first failure and stops all the stages. A stage interrupted
+	 * because of the failure of another one is not a failure of its own.
+	 */
+	private static void fail(AtomicReference<Throwable> failure, Throwable e, Thread[] stages)
+	{
+		if (e instanceof InterruptedException && failure.get() != null)
+			return;
+		if (failure.compareAndSet(null, e))
+		{
+			for (Thread stage : stages)
+			{
+				if (stage != null && stage != Thread.currentThread())
+					stage.interrupt();
+			}
+		}
+	}
+	
+	private static void read(CommandSource source, BlockingQueue<Object[]> parsed)
+			throws IOException, InterruptedException
+	{
+		Object[] batch = new Object[BATCH_SIZE];
+		int size = 0;
+		ParsedLine line;
+		while ((line = source.next()) != null)
+		{
+			batch[size++] = line;
+			if (size == BATCH_SIZE)
+			{
+				parsed.put(batch);
+				batch = new Object[BATCH_SIZE];
+				size = 0;
+			}
+		}
+		if (size > 0)
+			parsed.put(trim(batch, size));
+		parsed.put(END);
+	}
+	
+	private void execute(BlockingQueue<Object[]> parsed, BlockingQueue<Object[]> executed)
+			throws InterruptedException
+	{
+		Object[] batch;
+		while ((batch = parsed.take()) != END)
+		{
+			// Results replace the lines in place, the batch is not used by the reader
+			// any more
+			for (int i = 0; i < batch.length; i++)
+			{
+				batch[i] = BatchRunner.execute(processor, (ParsedLine) batch[i]);
+			}
+			executed.put(batch);
+		}
+		executed.put(END);
+	}
+	
+	private static long write(BlockingQueue<Object[]> executed, Writer writer)
+			throws IOException, InterruptedException
+	{
+		long lines = 0;
+		Object[] batch;
+		while ((batch = executed.take()) != END)
+		{
+			lines += batch.length;
+			for (Object result : batch)
+			{
+				String response = BatchRunner.format(result);
+				if (response != null)
+				{
+					writer.write(response);
+					writer.write(System.lineSeparator());
+				}
+			}
+		}
+		writer.flush();
+		return lines;
+	}
+	
+	private static Object[] trim(Object[] batch, int size)
+	{
+		Object[] trimmed = new Object[size];
+		System.arraycopy(batch, 0, trimmed, 0, size);
+		return trimmed;
+	}
+}
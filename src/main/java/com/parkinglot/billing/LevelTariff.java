@@ -0,0 +1,42 @@
+package com.parkinglot.billing;
+
+import java.util.Map;
+
+/**
+ * Tariff chosen by the level a vehicle was parked on, looked up by index
+ * 
+ * @author Balasaheb
+ */
+public class LevelTariff implements Tariff
+{
+	private final Tariff	defaultTariff;
+	// level - tariff, null for the levels charged the default tariff
+	private final Tariff[]	levelTariffs;
+	
+	/**
+	 * @param defaultTariff
+	 *            tariff of the levels without one of their own
+	 * @param levelTariffs
+	 *            level - tariff
+	 */
+	public LevelTariff(Tariff defaultTariff, Map<Integer, Tariff> levelTariffs)
+	{
+		this.defaultTariff = defaultTariff;
+		int maxLevel = 0;
+		for (int level : levelTariffs.keySet())
+		{
+			if (level < 1)
+				throw new IllegalArgumentException("Invalid level " + level);
+			maxLevel = Math.max(maxLevel, level);
+		}
+		this.levelTariffs = new Tariff[maxLevel + 1];
+		levelTariffs.forEach((level, tariff) -> this.levelTariffs[level] = tariff);
+	}
+	
+	@Override
+	public int getFee(int level, long parkingTime, int hours)
+	{
+		Tariff tariff = level > 0 && level < levelTariffs.length ? levelTariffs[level] : null;
+		return (tariff != null ? tariff : defaultTariff).getFee(level, parkingTime, hours);
+	}
+}
@@ -0,0 +1,23 @@
+package com.parkinglot.billing;
+
+/**
+ * Fee charged when a vehicle leaves. Implementations are evaluated on every
+ * leave, so they look the fee up in tables built when the tariff is created
+ * instead of walking the stay hour by hour.
+ * 
+ * @author Balasaheb
+ */
+@FunctionalInterface
+public interface Tariff
+{
+	/**
+	 * @param level
+	 *            level the vehicle was parked on
+	 * @param parkingTime
+	 *            time the vehicle was parked, in epoch milliseconds
+	 * @param hours
+	 *            length of the stay in started hours
+	 * @return fee of the stay
+	 */
+	public int getFee(int level, long parkingTime, int hours);
+}
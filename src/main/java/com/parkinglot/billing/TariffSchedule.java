@@ -0,0 +1,132 @@
+package com.parkinglot.billing;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+
+/**
+ * Tariff with an initial fee covering the first hours, an hourly rate per hour
+ * of the day after that and a cap on the fee of each 24 hours of a stay.
+ * 
+ * The fee of a stay depends only on the hour of the day it started, in the
+ * zone of the schedule, and on its
+ * number of hours, so the fee of every part of a day is computed once, when
+ * the schedule is created:
+ * <ul>
+ * <li>the first 24 hours, for each start hour and length, with the initial
+ * fee</li>
+ * <li>any later 24 hours, for each start hour and length</li>
+ * </ul>
+ * A stay costs its first day, plus the full later days, plus the part of its
+ * last day, which are three table lookups whatever its length.
+ * 
+ * @author Balasaheb
+ */
+public class TariffSchedule implements Tariff
+{
+	public static final int				NO_CAP			= Integer.MAX_VALUE;
+	
+	/**
+	 * 10 for the first 2 hours, 10 per hour after that
+	 */
+	public static final TariffSchedule	DEFAULT			= flat(2, 10, 10);
+	
+	private static final int			HOURS_PER_DAY	= 24;
+	private static final int			ROW				= HOURS_PER_DAY + 1;
+	private static final long			MILLIS_PER_HOUR	= 3_600_000L;
+	
+	private final ZoneRules				zoneRules;
+	// offset of a zone without daylight saving, so the hour needs no lookup
+	private final long					fixedOffsetMillis;
+	
+	// [start hour * ROW + hours] - fee of the first day of a stay
+	private final int[]					firstDayFees	= new int[HOURS_PER_DAY * ROW];
+	// [start hour * ROW + hours] - fee of a later day of a stay
+	private final int[]					dayFees			= new int[HOURS_PER_DAY * ROW];
+	
+	/**
+	 * @param initialHours
+	 *            hours covered by the initial fee, at most 24
+	 * @param initialFee
+	 *            fee of a stay of up to initialHours
+	 * @param hourlyRates
+	 *            24 rates, rate n is charged for an hour starting at n o'clock
+	 * @param dailyCap
+	 *            highest fee of any 24 hours of a stay, {@link #NO_CAP} for
+	 *            none
+	 */
+	public TariffSchedule(int initialHours, int initialFee, int[] hourlyRates, int dailyCap)
+	{
+		this(initialHours, initialFee, hourlyRates, dailyCap, ZoneId.systemDefault());
+	}
+	
+	/**
+	 * @param zone
+	 *            zone of the hours of the day of hourlyRates
+	 */
+	public TariffSchedule(int initialHours, int initialFee, int[] hourlyRates, int dailyCap, ZoneId zone)
+	{
+		this.zoneRules = zone.getRules();
+		this.fixedOffsetMillis = zoneRules.isFixedOffset()
+				? zoneRules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L : 0;
+		if (initialHours < 0 || initialHours > HOURS_PER_DAY)
+			throw new IllegalArgumentException("Initial hours must be from 0 to 24: " + initialHours);
+		if (hourlyRates.length != HOURS_PER_DAY)
+			throw new IllegalArgumentException("One hourly rate per hour of the day expected: " + hourlyRates.length);
+		for (int start = 0; start < HOURS_PER_DAY; start++)
+		{
+			long firstDayFee = initialFee;
+			long dayFee = 0;
+			firstDayFees[start * ROW] = cap(firstDayFee, dailyCap);
+			for (int hours = 1; hours <= HOURS_PER_DAY; hours++)
+			{
+				int rate = hourlyRates[(start + hours - 1) % HOURS_PER_DAY];
+				if (hours > initialHours)
+					firstDayFee += rate;
+				dayFee += rate;
+				firstDayFees[start * ROW + hours] = cap(firstDayFee, dailyCap);
+				dayFees[start * ROW + hours] = cap(dayFee, dailyCap);
+			}
+		}
+	}
+	
+	/**
+	 * @return schedule charging the same rate at every hour of the day, with no
+	 *         cap
+	 */
+	public static TariffSchedule flat(int initialHours, int initialFee, int hourlyRate)
+	{
+		int[] hourlyRates = new int[HOURS_PER_DAY];
+		Arrays.fill(hourlyRates, hourlyRate);
+		return new TariffSchedule(initialHours, initialFee, hourlyRates, NO_CAP);
+	}
+	
+	private static int cap(long fee, int dailyCap)
+	{
+		return (int) Math.min(fee, dailyCap);
+	}
+	
+	/**
+	 * A stay of no more than the initial hours, including 0 or less, is charged
+	 * the initial fee
+	 */
+	@Override
+	public int getFee(int level, long parkingTime, int hours)
+	{
+		int row = getHourOfDay(parkingTime) * ROW;
+		if (hours <= HOURS_PER_DAY)
+			return firstDayFees[row + Math.max(hours, 0)];
+		int laterDays = hours / HOURS_PER_DAY - 1;
+		long fee = firstDayFees[row + HOURS_PER_DAY] + (long) laterDays * dayFees[row + HOURS_PER_DAY]
+				+ dayFees[row + hours % HOURS_PER_DAY];
+		return (int) Math.min(fee, Integer.MAX_VALUE);
+	}
+	
+	private int getHourOfDay(long epochMilli)
+	{
+		long offsetMillis = zoneRules.isFixedOffset() ? fixedOffsetMillis
+				: zoneRules.getOffset(Instant.ofEpochMilli(epochMilli)).getTotalSeconds() * 1000L;
+		return (int) Math.floorMod(Math.floorDiv(epochMilli + offsetMillis, MILLIS_PER_HOUR), HOURS_PER_DAY);
+	}
+}
@@ -4,12 +4,18 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
+ * Number of parameters of each command, read by the handlers of
+ * com.parkinglot.processor.CommandRegistry when they are created. A new
+ * command is added by registering its handler with the registry.
+ * 
  * @author Balasaheb
  *
  */
 public class CommandInputMap
 {
 	private static volatile Map<String, Integer> commandsParameterMap = new HashMap<String, Integer>();
+	// number of optional trailing parameters, e.g. the level a command targets
+	private static volatile Map<String, Integer> commandsOptionalParameterMap = new HashMap<String, Integer>();
 	
 	static
 	{
@@ -20,6 +26,15 @@ public class CommandInputMap
 		commandsParameterMap.put(Constants.REG_NUMBER_FOR_CARS_WITH_COLOR, 1);
 		commandsParameterMap.put(Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR, 1);
 		commandsParameterMap.put(Constants.SLOTS_NUMBER_FOR_REG_NUMBER, 1);
+		
+		// create_parking_lot {capacity of level 1} {capacity of level 2} ...
+		commandsOptionalParameterMap.put(Constants.CREATE_PARKING_LOT, Integer.MAX_VALUE);
+		commandsOptionalParameterMap.put(Constants.PARK, 1);
+		commandsOptionalParameterMap.put(Constants.LEAVE, 1);
+		commandsOptionalParameterMap.put(Constants.STATUS, 1);
+		commandsOptionalParameterMap.put(Constants.REG_NUMBER_FOR_CARS_WITH_COLOR, 1);
+		commandsOptionalParameterMap.put(Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR, 1);
+		commandsOptionalParameterMap.put(Constants.SLOTS_NUMBER_FOR_REG_NUMBER, 1);
 	}
 	
 	/**
@@ -31,12 +46,11 @@ public class CommandInputMap
 	}
 	
 	/**
-	 * @param commandsParameterMap
-	 *            the commandsParameterMap to set
+	 * @return the commandsOptionalParameterMap
 	 */
-	public static void addCommand(String command, int parameterCount)
+	public static Map<String, Integer> getCommandsOptionalParameterMap()
 	{
-		commandsParameterMap.put(command, parameterCount);
+		return commandsOptionalParameterMap;
 	}
 	
 }
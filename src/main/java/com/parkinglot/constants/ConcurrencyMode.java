@@ -0,0 +1,24 @@
+package com.parkinglot.constants;
+
+/**
+ * How the parking service guards the parking levels against concurrent gates
+ * 
+ * @author Balasaheb
+ */
+public enum ConcurrencyMode
+{
+	/**
+	 * Actions take the write lock of their level and queries its read lock
+	 */
+	LOCKED,
+	/**
+	 * As {@link #LOCKED} but queries first read without locking and only take
+	 * the read lock if a write overlapped
+	 */
+	OPTIMISTIC_READ,
+	/**
+	 * Levels are claimed with CAS and no lock is taken for park/leave, size
+	 * classes are not supported
+	 */
+	LOCK_FREE;
+}
@@ -18,4 +18,10 @@ public interface Constants
 	public static final int	VEHICLE_ALREADY_EXIST	= -2;
 	
 	public static final int NOT_FOUND = -1;
+	
+	// parking time returned for a slot that was empty
+	public static final long NOT_PARKED = Long.MIN_VALUE;
+	
+	// no level given, levels are numbered from 1
+	public static final int ANY_LEVEL = 0;
 }
@@ -1,8 +1,12 @@
 package com.parkinglot.dao;
 
 import java.util.List;
+import java.util.Map;
 
+import com.parkinglot.model.SizeClass;
 import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.result.SlotStatus;
+import com.parkinglot.model.result.SlotStatusVisitor;
 
 /**
  * @author Balasaheb
@@ -14,7 +18,61 @@ public interface ParkingDataManager<T extends Vehicle>
 	
 	public boolean leaveCar(int level, int slotNumber);
 	
-	public List<String> getStatus(int level);
+	/**
+	 * @see ParkingLevelDataManager#holdSlot(SizeClass)
+	 */
+	public int holdSlot(int level, SizeClass sizeClass);
+	
+	/**
+	 * @see ParkingLevelDataManager#parkHeld(int, Vehicle)
+	 */
+	public boolean parkHeld(int level, int slotNumber, T vehicle);
+	
+	/**
+	 * @see ParkingLevelDataManager#releaseHeld(int)
+	 */
+	public void releaseHeld(int level, int slotNumber);
+	
+	/**
+	 * @see ParkingLevelDataManager#removeCar(int)
+	 */
+	public long removeCar(int level, int slotNumber);
+	
+	/**
+	 * @see ParkingLevelDataManager#parkCars(List)
+	 */
+	public int[] parkCars(int level, List<T> vehicles);
+	
+	/**
+	 * @see ParkingLevelDataManager#removeCars(int[])
+	 */
+	public long[] removeCars(int level, int[] slotNumbers);
+	
+	/**
+	 * Parks the vehicle in the given slot, used to restore saved state
+	 * 
+	 * @return false if the slot is taken or the vehicle is already parked
+	 */
+	public boolean parkCarAt(int level, int slotNumber, T vehicle);
+	
+	/**
+	 * @return vehicle parked in the slot, null if the slot is empty
+	 */
+	public T getVehicle(int level, int slotNumber);
+	
+	public int getCapacity(int level);
+	
+	/**
+	 * @see ParkingLevelDataManager#getStatus()
+	 */
+	public List<SlotStatus> getStatus(int level);
+	
+	/**
+	 * @see ParkingLevelDataManager#visitStatus(int, SlotStatusVisitor)
+	 */
+	public int visitStatus(int level, int fromSlot, SlotStatusVisitor visitor);
+	
+	public Map<String, Integer> getColourCounts(int level);
 	
 	public List<String> getRegNumberForColor(int level, String color);
 	
@@ -24,5 +82,36 @@ public interface ParkingDataManager<T extends Vehicle>
 	
 	public int getAvailableSlotsCount(int level);
 	
+	/**
+	 * @return level numbers in ascending order
+	 */
+	public List<Integer> getLevels();
+	
+	/**
+	 * @return number of levels, without copying them as {@link #getLevels()}
+	 *         does
+	 */
+	public int getLevelCount();
+	
+	public boolean hasLevel(int level);
+	
+	/**
+	 * @return lowest level with a free slot, Constants.NOT_AVAILABLE if all
+	 *         levels are full
+	 */
+	public int getLevelWithAvailability();
+	
+	/**
+	 * @return lowest level from the given one up with a free slot,
+	 *         Constants.NOT_AVAILABLE if none
+	 */
+	public int getLevelWithAvailability(int fromLevel);
+	
+	/**
+	 * @return level the vehicle is parked on, Constants.NOT_FOUND if it is not
+	 *         parked
+	 */
+	public int getLevelFromRegistrationNo(String registrationNo);
+	
 	public void doCleanup();
 }
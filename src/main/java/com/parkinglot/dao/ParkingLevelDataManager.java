@@ -1,8 +1,12 @@
 package com.parkinglot.dao;
 
 import java.util.List;
+import java.util.Map;
 
+import com.parkinglot.model.SizeClass;
 import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.result.SlotStatus;
+import com.parkinglot.model.result.SlotStatusVisitor;
 
 /**
  * @author Balasaheb
@@ -12,9 +16,109 @@ public interface ParkingLevelDataManager<T extends Vehicle>
 {
 	public int parkCar(T vehicle);
 	
+	/**
+	 * Parks the vehicles in order, with the same results as parking them one
+	 * by one
+	 * 
+	 * @return slot of each vehicle, or the reason it was not parked
+	 */
+	public default int[] parkCars(List<T> vehicles)
+	{
+		int[] slots = new int[vehicles.size()];
+		for (int i = 0; i < slots.length; i++)
+		{
+			slots[i] = parkCar(vehicles.get(i));
+		}
+		return slots;
+	}
+	
 	public boolean leaveCar(int slotNumber);
 	
-	public List<String> getStatus();
+	/**
+	 * Takes the next free slot a vehicle of the size class fits in out of the
+	 * free slots without parking in it, for a reservation. The slot stays out
+	 * until it is parked in with {@link #parkHeld(int, Vehicle)} or given back
+	 * with {@link #releaseHeld(int)}.
+	 * 
+	 * @return held slot, or Constants.NOT_AVAILABLE if no free slot fits
+	 */
+	public int holdSlot(SizeClass sizeClass);
+	
+	/**
+	 * Parks the vehicle in a slot taken with {@link #holdSlot(SizeClass)}
+	 * 
+	 * @return false if the vehicle is already parked on the level, the slot
+	 *         stays held then
+	 */
+	public boolean parkHeld(int slotNumber, T vehicle);
+	
+	/**
+	 * Gives a slot taken with {@link #holdSlot(SizeClass)} back to the free slots
+	 */
+	public void releaseHeld(int slotNumber);
+	
+	/**
+	 * Same as {@link #leaveCar(int)}, for a leave that is billed
+	 * 
+	 * @return park time of the vehicle that left in epoch milliseconds,
+	 *         {@link com.parkinglot.constants.Constants#NOT_PARKED} if the slot
+	 *         was empty
+	 */
+	public long removeCar(int slotNumber);
+	
+	/**
+	 * Same as {@link #removeCar(int)}, for a caller that needs to know which
+	 * vehicle left
+	 * 
+	 * @return vehicle that left, null if the slot was empty
+	 */
+	public T takeCar(int slotNumber);
+	
+	/**
+	 * Same as {@link #removeCar(int)} for each slot, in order
+	 */
+	public default long[] removeCars(int[] slotNumbers)
+	{
+		long[] parkingTimes = new long[slotNumbers.length];
+		for (int i = 0; i < slotNumbers.length; i++)
+		{
+			parkingTimes[i] = removeCar(slotNumbers[i]);
+		}
+		return parkingTimes;
+	}
+	
+	/**
+	 * Parks the vehicle in the given slot, used to restore saved state
+	 * 
+	 * @return false if the slot is taken or the vehicle is already parked
+	 */
+	public boolean parkCarAt(int slotNumber, T vehicle);
+	
+	/**
+	 * @return vehicle parked in the slot, null if the slot is empty
+	 */
+	public T getVehicle(int slotNumber);
+	
+	public int getCapacity();
+	
+	/**
+	 * @return occupied slots in slot order, an immutable list that is the same
+	 *         object while the level does not change
+	 */
+	public List<SlotStatus> getStatus();
+	
+	/**
+	 * Visits the occupied slots from the given slot on, in slot order, until the
+	 * visitor stops
+	 * 
+	 * @return slot to resume from, 0 once the last slot was visited
+	 */
+	public int visitStatus(int fromSlot, SlotStatusVisitor visitor);
+	
+	/**
+	 * @return number of vehicles per colour, for the colours with vehicles
+	 */
+	public Map<String, Integer> getColourCounts();
 	
 	public List<String> getRegNumberForColor(String color);
 	
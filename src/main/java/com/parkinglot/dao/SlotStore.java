@@ -0,0 +1,23 @@
+package com.parkinglot.dao;
+
+import com.parkinglot.model.Vehicle;
+
+/**
+ * Holds the vehicle parked in each slot of a level. Slots are numbered from 1
+ * to capacity and an empty slot holds null.
+ * 
+ * @author Balasaheb
+ * @param <T>
+ */
+public interface SlotStore<T extends Vehicle>
+{
+	public T get(int slotNumber);
+	
+	public void put(int slotNumber, T vehicle);
+	
+	public T remove(int slotNumber);
+	
+	public int getCapacity();
+	
+	public void clear();
+}
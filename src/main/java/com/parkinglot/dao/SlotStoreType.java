@@ -0,0 +1,25 @@
+package com.parkinglot.dao;
+
+/**
+ * Available {@link SlotStore} implementations for a parking level
+ * 
+ * @author Balasaheb
+ */
+public enum SlotStoreType
+{
+	/**
+	 * ConcurrentHashMap of slot number to Optional vehicle, one entry per slot
+	 */
+	MAP,
+	/**
+	 * Plain array indexed by slot number, null for an empty slot
+	 */
+	ARRAY,
+	/**
+	 * Fixed width records in direct buffers, see
+	 * {@link com.parkinglot.dao.impl.OffHeapSlotStore}. Levels of a lot with this
+	 * store are {@link com.parkinglot.dao.impl.OffHeapParkingLevelManager}s,
+	 * which keep the registration index off heap as well.
+	 */
+	OFF_HEAP;
+}
@@ -0,0 +1,346 @@
+package com.parkinglot.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.parkinglot.constants.Constants;
+import com.parkinglot.dao.ParkingLevelDataManager;
+import com.parkinglot.model.ColorDictionary;
+import com.parkinglot.model.SizeClass;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.result.SlotStatus;
+import com.parkinglot.model.result.SlotStatusVisitor;
+import com.parkinglot.model.stratergy.ConcurrentBitSetParkingStrategy;
+
+/**
+ * Parking level that can be parked into and left from by many threads without
+ * an external lock.
+ * 
+ * <ul>
+ * <li>availability is taken as a permit before a slot is claimed, so a park
+ * that gets a permit always finds a free slot</li>
+ * <li>the slot is claimed with a CAS in {@link ConcurrentBitSetParkingStrategy},
+ * indexed, and only then published with a CAS on the slot array</li>
+ * <li>the registration index is reserved with putIfAbsent before a slot is
+ * claimed, so the same vehicle can not be parked twice</li>
+ * </ul>
+ * Queries read the concurrent structures directly and see each slot either
+ * before or after a concurrent park/leave.
+ * 
+ * @author Balasaheb
+ * @param <T>
+ */
+public class ConcurrentParkingLevelManager<T extends Vehicle> implements ParkingLevelDataManager<T>
+{
+	// registration index value while the slot is being claimed
+	static final Integer RESERVED = 0;
+	
+	private final int								level;
+	private final int								capacity;
+	private final AtomicInteger						availability;
+	private final ConcurrentBitSetParkingStrategy	parkingStrategy;
+	// slot - vehicle, index 0 is unused
+	private final AtomicReferenceArray<T>			slots;
+	// registration no (upper case) - slot
+	final Map<String, Integer>						registrationSlotMap;
+	// colour id - slots in ascending order
+	private final Map<Integer, NavigableSet<Integer>>	colourSlotMap;
+	// status rows and colour counts, updated after every park and leave
+	private final LevelStatusView						statusView;
+	
+	public ConcurrentParkingLevelManager(int level, int capacity)
+	{
+		this.level = level;
+		this.capacity = capacity;
+		this.availability = new AtomicInteger(capacity);
+		this.parkingStrategy = new ConcurrentBitSetParkingStrategy(capacity);
+		this.slots = new AtomicReferenceArray<>(capacity + 1);
+		this.registrationSlotMap = new ConcurrentHashMap<>();
+		this.colourSlotMap = new ConcurrentHashMap<>();
+		this.statusView = new LevelStatusView(capacity);
+		for (int i = 1; i <= capacity; i++)
+		{
+			parkingStrategy.add(i);
+		}
+	}
+	
+	@Override
+	public int parkCar(T vehicle)
+	{
+		String registrationKey = getRegistrationKey(vehicle.getRegistrationNo());
+		if (registrationSlotMap.putIfAbsent(registrationKey, RESERVED) != null)
+			return Constants.VEHICLE_ALREADY_EXIST;
+		if (!acquirePermit())
+		{
+			registrationSlotMap.remove(registrationKey, RESERVED);
+			return Constants.NOT_AVAILABLE;
+		}
+		int slot;
+		try
+		{
+			slot = parkingStrategy.claimPermittedSlot();
+		}
+		catch (RuntimeException e)
+		{
+			// give back the permit and the registration, or both leak for good
+			availability.incrementAndGet();
+			registrationSlotMap.remove(registrationKey, RESERVED);
+			throw e;
+		}
+		// index first, a leave can only find the vehicle once it is published
+		registrationSlotMap.put(registrationKey, slot);
+		colourSlotMap.computeIfAbsent(vehicle.getCanonicalColorId(), key -> new ConcurrentSkipListSet<>())
+				.add(slot);
+		// before it is published, a leave of the vehicle then always comes after
+		statusView.parked(slot, vehicle.getRegistrationNo(), vehicle.getColorId());
+		if (!slots.compareAndSet(slot, null, vehicle))
+			throw new IllegalStateException("Slot " + slot + " allocated twice");
+		return slot;
+	}
+	
+	/**
+	 * The slots of a lock free level have no size classes
+	 */
+	@Override
+	public int holdSlot(SizeClass sizeClass)
+	{
+		if (!acquirePermit())
+			return Constants.NOT_AVAILABLE;
+		try
+		{
+			return parkingStrategy.claimPermittedSlot();
+		}
+		catch (RuntimeException e)
+		{
+			availability.incrementAndGet();
+			throw e;
+		}
+	}
+	
+	/**
+	 * The permit was taken when the slot was held
+	 */
+	@Override
+	public boolean parkHeld(int slotNumber, T vehicle)
+	{
+		String registrationKey = getRegistrationKey(vehicle.getRegistrationNo());
+		if (registrationSlotMap.putIfAbsent(registrationKey, slotNumber) != null)
+			return false;
+		colourSlotMap.computeIfAbsent(vehicle.getCanonicalColorId(), key -> new ConcurrentSkipListSet<>())
+				.add(slotNumber);
+		statusView.parked(slotNumber, vehicle.getRegistrationNo(), vehicle.getColorId());
+		if (!slots.compareAndSet(slotNumber, null, vehicle))
+			throw new IllegalStateException("Slot " + slotNumber + " allocated twice");
+		return true;
+	}
+	
+	@Override
+	public void releaseHeld(int slotNumber)
+	{
+		parkingStrategy.add(slotNumber);
+		availability.incrementAndGet();
+	}
+	
+	@Override
+	public boolean leaveCar(int slotNumber)
+	{
+		return removeCar(slotNumber) != Constants.NOT_PARKED;
+	}
+	
+	@Override
+	public long removeCar(int slotNumber)
+	{
+		T vehicle = takeCar(slotNumber);
+		return vehicle != null ? vehicle.getParkingTime() : Constants.NOT_PARKED;
+	}
+	
+	@Override
+	public T takeCar(int slotNumber)
+	{
+		if (slotNumber < 1 || slotNumber > capacity)
+			throw new IllegalArgumentException("Invalid slot number " + slotNumber);
+		T vehicle = slots.getAndSet(slotNumber, null);
+		if (vehicle == null) // Slot already empty
+			return null;
+		registrationSlotMap.remove(getRegistrationKey(vehicle.getRegistrationNo()), slotNumber);
+		NavigableSet<Integer> colourSlots = colourSlotMap.get(vehicle.getCanonicalColorId());
+		if (colourSlots != null)
+			colourSlots.remove(slotNumber);
+		// before the slot can be claimed again
+		statusView.left(slotNumber, vehicle.getColorId());
+		parkingStrategy.add(slotNumber);
+		availability.incrementAndGet();
+		return vehicle;
+	}
+	
+	@Override
+	public boolean parkCarAt(int slotNumber, T vehicle)
+	{
+		if (slotNumber < 1 || slotNumber > capacity)
+			throw new IllegalArgumentException("Invalid slot number " + slotNumber);
+		String registrationKey = getRegistrationKey(vehicle.getRegistrationNo());
+		if (registrationSlotMap.putIfAbsent(registrationKey, RESERVED) != null)
+			return false;
+		if (!acquirePermit())
+		{
+			registrationSlotMap.remove(registrationKey, RESERVED);
+			return false;
+		}
+		if (!parkingStrategy.claimSlot(slotNumber))
+		{
+			availability.incrementAndGet();
+			registrationSlotMap.remove(registrationKey, RESERVED);
+			return false;
+		}
+		registrationSlotMap.put(registrationKey, slotNumber);
+		colourSlotMap.computeIfAbsent(vehicle.getCanonicalColorId(), key -> new ConcurrentSkipListSet<>())
+				.add(slotNumber);
+		statusView.parked(slotNumber, vehicle.getRegistrationNo(), vehicle.getColorId());
+		if (!slots.compareAndSet(slotNumber, null, vehicle))
+			throw new IllegalStateException("Slot " + slotNumber + " allocated twice");
+		return true;
+	}
+	
+	@Override
+	public T getVehicle(int slotNumber)
+	{
+		return slots.get(slotNumber);
+	}
+	
+	@Override
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	/**
+	 * @return false if the level is full
+	 */
+	private boolean acquirePermit()
+	{
+		int available;
+		do
+		{
+			available = availability.get();
+			if (available == 0)
+				return false;
+		}
+		while (!availability.compareAndSet(available, available - 1));
+		return true;
+	}
+	
+	@Override
+	public List<SlotStatus> getStatus()
+	{
+		return statusView.getStatus();
+	}
+	
+	@Override
+	public int visitStatus(int fromSlot, SlotStatusVisitor visitor)
+	{
+		return statusView.visit(fromSlot, visitor);
+	}
+	
+	@Override
+	public Map<String, Integer> getColourCounts()
+	{
+		return statusView.getColourCounts();
+	}
+	
+	@Override
+	public int getAvailableSlotsCount()
+	{
+		return availability.get();
+	}
+	
+	@Override
+	public List<String> getRegNumberForColor(String color)
+	{
+		List<String> registrationList = new ArrayList<>();
+		int colourId = getColourKey(color);
+		for (Integer slot : getColourSlots(colourId))
+		{
+			T vehicle = slots.get(slot);
+			if (vehicle != null && vehicle.getCanonicalColorId() == colourId)
+			{
+				registrationList.add(vehicle.getRegistrationNo());
+			}
+		}
+		return registrationList;
+	}
+	
+	@Override
+	public List<Integer> getSlotNumbersFromColor(String colour)
+	{
+		List<Integer> slotList = new ArrayList<>();
+		int colourId = getColourKey(colour);
+		for (Integer slot : getColourSlots(colourId))
+		{
+			T vehicle = slots.get(slot);
+			if (vehicle != null && vehicle.getCanonicalColorId() == colourId)
+			{
+				slotList.add(slot);
+			}
+		}
+		return slotList;
+	}
+	
+	@Override
+	public int getSlotNoFromRegistrationNo(String registrationNo)
+	{
+		Integer slot = registrationSlotMap.get(getRegistrationKey(registrationNo));
+		return slot != null && !RESERVED.equals(slot) ? slot : Constants.NOT_FOUND;
+	}
+	
+	/**
+	 * Empty colour sets are kept, a lot only ever sees a handful of colours and
+	 * removing them would race with a concurrent park of the same colour. The
+	 * sets may briefly hold a slot that is being parked or left, so callers
+	 * check the vehicle in the slot.
+	 * 
+	 * @param colourId
+	 * @return slots occupied by vehicles of the given colour, in ascending order
+	 */
+	private NavigableSet<Integer> getColourSlots(int colourId)
+	{
+		NavigableSet<Integer> colourSlots = colourSlotMap.get(colourId);
+		return colourSlots != null ? colourSlots : Collections.emptyNavigableSet();
+	}
+	
+	/**
+	 * @return canonical id of the colour in the default dictionary, which is
+	 *         the same for every spelling of the colour
+	 */
+	private static int getColourKey(String colour)
+	{
+		return ColorDictionary.getDefault().find(colour);
+	}
+	
+	private static String getRegistrationKey(String registrationNo)
+	{
+		return registrationNo.toUpperCase(Locale.ROOT);
+	}
+	
+	/**
+	 * @return level number of this parking level
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	@Override
+	public void doCleanUp()
+	{
+		registrationSlotMap.clear();
+		colourSlotMap.clear();
+	}
+}
@@ -0,0 +1,101 @@
+package com.parkinglot.dao.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.parkinglot.constants.Constants;
+import com.parkinglot.dao.ParkingLevelDataManager;
+
+/**
+ * Bitmap of the levels that have at least one free slot, bit n standing for
+ * level n. Finding the lowest such level reads one word per 64 levels, which
+ * is a single word for any real garage, instead of asking every level for its
+ * availability.
+ * 
+ * Bits are updated with CAS so that levels parked in parallel can refresh
+ * their own bit without a shared lock.
+ * 
+ * @author Balasaheb
+ */
+class LevelAvailability
+{
+	private static final int ADDRESS_BITS = 6;
+	
+	private final AtomicLongArray words;
+	
+	/**
+	 * @param maxLevel
+	 *            highest level number
+	 */
+	LevelAvailability(int maxLevel)
+	{
+		words = new AtomicLongArray((maxLevel >> ADDRESS_BITS) + 1);
+	}
+	
+	/**
+	 * Records whether the level has a free slot. A level that was seen full is
+	 * checked once more after its bit is cleared, so a slot freed by a
+	 * concurrent leave is never hidden.
+	 */
+	void update(int level, ParkingLevelDataManager<?> levelDataManager)
+	{
+		if (levelDataManager.getAvailableSlotsCount() > 0)
+		{
+			set(level);
+		}
+		else
+		{
+			clear(level);
+			if (levelDataManager.getAvailableSlotsCount() > 0)
+				set(level);
+		}
+	}
+	
+	/**
+	 * @return lowest level from the given one up with a free slot,
+	 *         {@link Constants#NOT_AVAILABLE} if none
+	 */
+	int first(int fromLevel)
+	{
+		int i = fromLevel >> ADDRESS_BITS;
+		if (i >= words.length())
+			return Constants.NOT_AVAILABLE;
+		// the levels below fromLevel in its word are masked out
+		long word = words.get(i) & (-1L << fromLevel);
+		while (true)
+		{
+			if (word != 0)
+				return (i << ADDRESS_BITS) + Long.numberOfTrailingZeros(word);
+			if (++i == words.length())
+				return Constants.NOT_AVAILABLE;
+			word = words.get(i);
+		}
+	}
+	
+	private void set(int level)
+	{
+		int index = level >> ADDRESS_BITS;
+		long bit = 1L << level;
+		long word;
+		do
+		{
+			word = words.get(index);
+			if ((word & bit) != 0)
+				return;
+		}
+		while (!words.compareAndSet(index, word, word | bit));
+	}
+	
+	private void clear(int level)
+	{
+		int index = level >> ADDRESS_BITS;
+		long bit = 1L << level;
+		long word;
+		do
+		{
+			word = words.get(index);
+			if ((word & bit) == 0)
+				return;
+		}
+		while (!words.compareAndSet(index, word, word & ~bit));
+	}
+}
@@ -0,0 +1,253 @@
+package com.parkinglot.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntFunction;
+
+import com.parkinglot.model.ColorDictionary;
+import com.parkinglot.model.result.SlotStatus;
+import com.parkinglot.model.result.SlotStatusVisitor;
+
+/**
+ * Status of a level kept up to date by its parks and leaves, so that status
+ * queries do not rebuild it from the vehicles.
+ * 
+ * <ul>
+ * <li>the status row of a slot is built once, when it is parked, and reused by
+ * every status until the slot is left</li>
+ * <li>every change bumps a version; the status list is built from the rows
+ * and cached as an immutable snapshot, which is returned as is while the
+ * version does not change</li>
+ * <li>a view that does not keep the rows marks the changed slots instead, and
+ * patches the previous status with the rows of those slots only</li>
+ * <li>vehicles are counted per canonical colour id, so per colour ignoring
+ * case</li>
+ * </ul>
+ * A snapshot is only cached when no change completed while it was built; a
+ * change in flight bumps the version once it completes, so a snapshot that
+ * missed it is rebuilt by the next query. Changes are counted with atomics, so
+ * a lock free level can update the view from many threads.
+ * 
+ * @author Balasaheb
+ */
+class LevelStatusView
+{
+	private static final int					ADDRESS_BITS	= 6;
+	
+	private final int							capacity;
+	// slot - row, index 0 is unused; null when the rows are read from the level
+	private final SlotStatus[]					rows;
+	private final IntFunction<SlotStatus>		rowReader;
+	// bit n set when slot n changed since the rows were read, with rowReader
+	private final AtomicLongArray				changedSlots;
+	// status the changes are applied to, null if the rows must all be read
+	private List<SlotStatus>					patchBase;
+	private final AtomicInteger					occupied		= new AtomicInteger();
+	private final AtomicLong					version			= new AtomicLong();
+	// canonical colour id - vehicles
+	private final Map<Integer, AtomicInteger>	colourCounts	= new ConcurrentHashMap<>();
+	private volatile Snapshot					snapshot;
+	
+	private static final class Snapshot
+	{
+		private final long				version;
+		private final List<SlotStatus>	rows;
+		
+		private Snapshot(long version, List<SlotStatus> rows)
+		{
+			this.version = version;
+			this.rows = rows;
+		}
+	}
+	
+	/**
+	 * View that keeps the row of every occupied slot
+	 */
+	LevelStatusView(int capacity)
+	{
+		this.capacity = capacity;
+		this.rows = new SlotStatus[capacity + 1];
+		this.rowReader = null;
+		this.changedSlots = null;
+	}
+	
+	/**
+	 * View that keeps no rows and reads them from the level when the status
+	 * changed, for levels that keep their vehicles off heap
+	 * 
+	 * @param rowReader
+	 *            row of a slot, null if the slot is empty
+	 */
+	LevelStatusView(int capacity, IntFunction<SlotStatus> rowReader)
+	{
+		this.capacity = capacity;
+		this.rows = null;
+		this.rowReader = rowReader;
+		this.changedSlots = new AtomicLongArray((capacity >> ADDRESS_BITS) + 1);
+		this.patchBase = Collections.emptyList();
+	}
+	
+	/**
+	 * Records a park, after the vehicle is in its slot
+	 */
+	void parked(int slotNumber, String registrationNo, int colourId)
+	{
+		if (rows != null)
+			rows[slotNumber] = new SlotStatus(slotNumber, registrationNo,
+					ColorDictionary.getDefault().getColor(colourId));
+		else
+			markChanged(slotNumber);
+		occupied.incrementAndGet();
+		colourCounts.computeIfAbsent(ColorDictionary.getDefault().getCanonicalId(colourId), id -> new AtomicInteger())
+				.incrementAndGet();
+		version.incrementAndGet();
+	}
+	
+	/**
+	 * Records a leave, after the slot is emptied
+	 */
+	void left(int slotNumber, int colourId)
+	{
+		if (rows != null)
+			rows[slotNumber] = null;
+		else
+			markChanged(slotNumber);
+		occupied.decrementAndGet();
+		colourCounts.get(ColorDictionary.getDefault().getCanonicalId(colourId)).decrementAndGet();
+		version.incrementAndGet();
+	}
+	
+	/**
+	 * @return immutable list of the occupied slots in slot order, the same
+	 *         list as the previous call if nothing changed since
+	 */
+	List<SlotStatus> getStatus()
+	{
+		long current = version.get();
+		Snapshot cached = snapshot;
+		if (cached != null && cached.version == current)
+			return cached.rows;
+		if (rows == null)
+			return patchStatus(current);
+		List<SlotStatus> statusList = new ArrayList<>(Math.max(occupied.get(), 0));
+		for (int i = 1; i <= capacity; i++)
+		{
+			if (rows[i] != null)
+				statusList.add(rows[i]);
+		}
+		return cache(current, statusList);
+	}
+	
+	/**
+	 * Visits the current rows from the given slot on, without building a list
+	 * 
+	 * @return slot to resume from, 0 once the last slot was visited
+	 */
+	int visit(int fromSlot, SlotStatusVisitor visitor)
+	{
+		for (int i = Math.max(fromSlot, 1); i <= capacity; i++)
+		{
+			SlotStatus row = rows != null ? rows[i] : rowReader.apply(i);
+			if (row != null && !visitor.visit(i, row.getRegistrationNo(), row.getColor()))
+				return i < capacity ? i + 1 : 0;
+		}
+		return 0;
+	}
+	
+	private List<SlotStatus> cache(long current, List<SlotStatus> statusList)
+	{
+		statusList = Collections.unmodifiableList(statusList);
+		if (version.get() == current)
+			snapshot = new Snapshot(current, statusList);
+		return statusList;
+	}
+	
+	private void markChanged(int slotNumber)
+	{
+		int wordIndex = slotNumber >> ADDRESS_BITS;
+		long bit = 1L << slotNumber;
+		changedSlots.getAndAccumulate(wordIndex, bit, (word, mask) -> word | mask);
+	}
+	
+	/**
+	 * Reads the rows of the changed slots and merges them into the previous
+	 * status. The changed marks are taken before their rows are read, so a slot
+	 * changing meanwhile is marked again and read by the next rebuild. If a read
+	 * fails, e.g. an optimistic read racing a write, all the rows are read the
+	 * next time.
+	 */
+	private synchronized List<SlotStatus> patchStatus(long current)
+	{
+		Snapshot cached = snapshot;
+		if (cached != null && cached.version == current)
+			return cached.rows;
+		List<SlotStatus> base = patchBase;
+		patchBase = null;
+		List<SlotStatus> statusList = new ArrayList<>(Math.max(occupied.get(), 0));
+		if (base == null)
+		{
+			for (int w = 0; w < changedSlots.length(); w++)
+			{
+				changedSlots.set(w, 0);
+			}
+			for (int i = 1; i <= capacity; i++)
+			{
+				SlotStatus row = rowReader.apply(i);
+				if (row != null)
+					statusList.add(row);
+			}
+		}
+		else
+		{
+			int next = 0;
+			for (int w = 0; w < changedSlots.length(); w++)
+			{
+				if (changedSlots.get(w) == 0)
+					continue;
+				long changed = changedSlots.getAndSet(w, 0);
+				while (changed != 0)
+				{
+					int slotNumber = (w << ADDRESS_BITS) + Long.numberOfTrailingZeros(changed);
+					changed &= changed - 1;
+					while (next < base.size() && base.get(next).getSlotNumber() < slotNumber)
+					{
+						statusList.add(base.get(next++));
+					}
+					if (next < base.size() && base.get(next).getSlotNumber() == slotNumber)
+						next++;
+					SlotStatus row = rowReader.apply(slotNumber);
+					if (row != null)
+						statusList.add(row);
+				}
+			}
+			statusList.addAll(base.subList(next, base.size()));
+		}
+		statusList = cache(current, statusList);
+		patchBase = statusList;
+		return statusList;
+	}
+	
+	/**
+	 * @return number of vehicles per colour, for the colours with vehicles, in
+	 *         colour order; vehicles with no colour are not counted
+	 */
+	Map<String, Integer> getColourCounts()
+	{
+		Map<String, Integer> counts = new TreeMap<>();
+		ColorDictionary colors = ColorDictionary.getDefault();
+		for (Map.Entry<Integer, AtomicInteger> entry : colourCounts.entrySet())
+		{
+			int count = entry.getValue().get();
+			if (count > 0 && entry.getKey() != ColorDictionary.NO_COLOR)
+				counts.put(colors.getColor(entry.getKey()), count);
+		}
+		return counts;
+	}
+}
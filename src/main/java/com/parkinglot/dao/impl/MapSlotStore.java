@@ -0,0 +1,62 @@
+package com.parkinglot.dao.impl;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.parkinglot.dao.SlotStore;
+import com.parkinglot.model.Vehicle;
+
+/**
+ * Slot store backed by a map pre-filled with an empty Optional for every
+ * slot. Each slot costs a boxed key, a map node and an Optional per park.
+ * 
+ * @author Balasaheb
+ * @param <T>
+ */
+public class MapSlotStore<T extends Vehicle> implements SlotStore<T>
+{
+	private final int					capacity;
+	// slot - vehicle
+	private Map<Integer, Optional<T>>	slotVehicleMap;
+	
+	public MapSlotStore(int capacity)
+	{
+		this.capacity = capacity;
+		slotVehicleMap = new ConcurrentHashMap<>(capacity);
+		for (int i = 1; i <= capacity; i++)
+		{
+			slotVehicleMap.put(i, Optional.empty());
+		}
+	}
+	
+	@Override
+	public T get(int slotNumber)
+	{
+		return slotVehicleMap.get(slotNumber).orElse(null);
+	}
+	
+	@Override
+	public void put(int slotNumber, T vehicle)
+	{
+		slotVehicleMap.put(slotNumber, Optional.of(vehicle));
+	}
+	
+	@Override
+	public T remove(int slotNumber)
+	{
+		return slotVehicleMap.put(slotNumber, Optional.empty()).orElse(null);
+	}
+	
+	@Override
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	@Override
+	public void clear()
+	{
+		slotVehicleMap = null;
+	}
+}
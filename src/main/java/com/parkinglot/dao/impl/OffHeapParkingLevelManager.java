@@ -0,0 +1,414 @@
+package com.parkinglot.dao.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.parkinglot.constants.Constants;
+import com.parkinglot.dao.ParkingLevelDataManager;
+import com.parkinglot.model.ColorDictionary;
+import com.parkinglot.model.SizeClass;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.result.SlotStatus;
+import com.parkinglot.model.result.SlotStatusVisitor;
+import com.parkinglot.model.stratergy.BitSetParkingStrategy;
+import com.parkinglot.model.stratergy.ParkingStrategy;
+
+/**
+ * Parking level for very large lots that keeps the vehicles and the
+ * registration index out of the Java heap, so the heap and the GC work do not
+ * grow with the number of parked vehicles.
+ * 
+ * <ul>
+ * <li>vehicles are fixed width records in an {@link OffHeapSlotStore}</li>
+ * <li>the registration index is an open addressing table of slot numbers in a
+ * direct buffer, sized for the capacity so it never grows; an entry is
+ * matched on the registration hash kept in the record</li>
+ * <li>there is no colour index, colour queries compare the colour id of every
+ * slot, which is a sequential scan of ints</li>
+ * <li>the status is cached until the level changes, without keeping its rows
+ * on the heap in between</li>
+ * </ul>
+ * Use a {@link BitSetParkingStrategy}, which is the default, to keep the free
+ * slots compact as well. Like {@link ParkingLevelManager} the level relies on
+ * the caller to serialise writes.
+ * 
+ * @author Balasaheb
+ * @param <T>
+ */
+public class OffHeapParkingLevelManager<T extends Vehicle> implements ParkingLevelDataManager<T>
+{
+	private static final int		EMPTY	= 0;
+	
+	private final int				level;
+	private final int				capacity;
+	private final AtomicInteger		availability;
+	private ParkingStrategy			parkingStrategy;
+	private OffHeapSlotStore<T>		slots;
+	// registration hash - slot, EMPTY for a free entry
+	private IntBuffer				registrationIndex;
+	private final int				indexMask;
+	// cached status and colour counts, the rows are read from the records
+	private LevelStatusView			statusView;
+	
+	public OffHeapParkingLevelManager(int level, int capacity)
+	{
+		this(level, capacity, null);
+	}
+	
+	public OffHeapParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy)
+	{
+		this.level = level;
+		this.capacity = capacity;
+		this.availability = new AtomicInteger(capacity);
+		if (parkingStrategy == null)
+			parkingStrategy = new BitSetParkingStrategy(capacity);
+		this.parkingStrategy = parkingStrategy;
+		this.slots = new OffHeapSlotStore<>(capacity);
+		// at most half full, so probe sequences stay short
+		int indexSize = Integer.highestOneBit(Math.max(8, capacity) * 2 - 1) << 1;
+		this.registrationIndex = ByteBuffer.allocateDirect(indexSize * Integer.BYTES).asIntBuffer();
+		this.indexMask = indexSize - 1;
+		this.statusView = new LevelStatusView(capacity, this::readRow);
+		for (int i = 1; i <= capacity; i++)
+		{
+			parkingStrategy.add(i);
+		}
+	}
+	
+	@Override
+	public int parkCar(T vehicle)
+	{
+		if (availability.get() == 0)
+			return Constants.NOT_AVAILABLE;
+		String registrationKey = OffHeapSlotStore.getRegistrationKey(vehicle.getRegistrationNo());
+		int registrationHash = registrationKey.hashCode();
+		if (findSlot(registrationKey, registrationHash) != Constants.NOT_FOUND)
+			return Constants.VEHICLE_ALREADY_EXIST;
+		int slot = parkingStrategy.claimSlot(vehicle.getSizeClass());
+		// no free slot the vehicle fits in
+		if (slot == Constants.NOT_AVAILABLE)
+			return Constants.NOT_AVAILABLE;
+		park(slot, vehicle, registrationHash);
+		return slot;
+	}
+	
+	/**
+	 * @see ParkingLevelManager#parkCars(List)
+	 */
+	@Override
+	public int[] parkCars(List<T> vehicles)
+	{
+		if (parkingStrategy.hasSizeClasses())
+			return ParkingLevelDataManager.super.parkCars(vehicles);
+		int[] results = new int[vehicles.size()];
+		int[] freeSlots = new int[Math.min(results.length, availability.get())];
+		int claimed = parkingStrategy.claimSlots(freeSlots, freeSlots.length);
+		int next = 0;
+		for (int i = 0; i < results.length; i++)
+		{
+			if (next == claimed)
+			{
+				results[i] = Constants.NOT_AVAILABLE;
+				continue;
+			}
+			T vehicle = vehicles.get(i);
+			String registrationKey = OffHeapSlotStore.getRegistrationKey(vehicle.getRegistrationNo());
+			int registrationHash = registrationKey.hashCode();
+			if (findSlot(registrationKey, registrationHash) != Constants.NOT_FOUND)
+			{
+				results[i] = Constants.VEHICLE_ALREADY_EXIST;
+				continue;
+			}
+			results[i] = freeSlots[next++];
+			park(results[i], vehicle, registrationHash);
+		}
+		for (; next < claimed; next++)
+		{
+			parkingStrategy.add(freeSlots[next]);
+		}
+		return results;
+	}
+	
+	/**
+	 * Puts the vehicle in a free slot, the caller takes the slot out of the
+	 * strategy
+	 */
+	private void park(int slotNumber, T vehicle, int registrationHash)
+	{
+		slots.put(slotNumber, vehicle, registrationHash);
+		addToIndex(slotNumber, registrationHash);
+		availability.decrementAndGet();
+		statusView.parked(slotNumber, vehicle.getRegistrationNo(), vehicle.getColorId());
+	}
+	
+	@Override
+	public int holdSlot(SizeClass sizeClass)
+	{
+		if (availability.get() == 0)
+			return Constants.NOT_AVAILABLE;
+		int slot = parkingStrategy.claimSlot(sizeClass);
+		if (slot != Constants.NOT_AVAILABLE)
+			availability.decrementAndGet();
+		return slot;
+	}
+	
+	@Override
+	public boolean parkHeld(int slotNumber, T vehicle)
+	{
+		String registrationKey = OffHeapSlotStore.getRegistrationKey(vehicle.getRegistrationNo());
+		int registrationHash = registrationKey.hashCode();
+		if (findSlot(registrationKey, registrationHash) != Constants.NOT_FOUND)
+			return false;
+		// the slot was taken from the availability when it was held
+		availability.incrementAndGet();
+		park(slotNumber, vehicle, registrationHash);
+		return true;
+	}
+	
+	@Override
+	public void releaseHeld(int slotNumber)
+	{
+		parkingStrategy.add(slotNumber);
+		availability.incrementAndGet();
+	}
+	
+	@Override
+	public boolean leaveCar(int slotNumber)
+	{
+		return removeCar(slotNumber) != Constants.NOT_PARKED;
+	}
+	
+	@Override
+	public long removeCar(int slotNumber)
+	{
+		if (slotNumber < 1 || slotNumber > capacity)
+			throw new IllegalArgumentException("Invalid slot number " + slotNumber);
+		if (!slots.isOccupied(slotNumber)) // Slot already empty
+			return Constants.NOT_PARKED;
+		// the index reads the hash of the record, so it goes first
+		removeFromIndex(slotNumber);
+		int colourId = slots.getColorId(slotNumber);
+		long parkingTime = slots.getParkingTime(slotNumber);
+		slots.delete(slotNumber);
+		availability.incrementAndGet();
+		parkingStrategy.add(slotNumber);
+		statusView.left(slotNumber, colourId);
+		return parkingTime;
+	}
+	
+	/**
+	 * Reads the vehicle back from its record before the slot is freed
+	 */
+	@Override
+	public T takeCar(int slotNumber)
+	{
+		if (slotNumber < 1 || slotNumber > capacity)
+			throw new IllegalArgumentException("Invalid slot number " + slotNumber);
+		T vehicle = slots.get(slotNumber);
+		if (vehicle != null)
+			removeCar(slotNumber);
+		return vehicle;
+	}
+	
+	@Override
+	public boolean parkCarAt(int slotNumber, T vehicle)
+	{
+		if (slotNumber < 1 || slotNumber > capacity)
+			throw new IllegalArgumentException("Invalid slot number " + slotNumber);
+		String registrationKey = OffHeapSlotStore.getRegistrationKey(vehicle.getRegistrationNo());
+		int registrationHash = registrationKey.hashCode();
+		if (slots.isOccupied(slotNumber) || findSlot(registrationKey, registrationHash) != Constants.NOT_FOUND)
+			return false;
+		park(slotNumber, vehicle, registrationHash);
+		parkingStrategy.removeSlot(slotNumber);
+		return true;
+	}
+	
+	@Override
+	public T getVehicle(int slotNumber)
+	{
+		return slots.get(slotNumber);
+	}
+	
+	@Override
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	@Override
+	public List<SlotStatus> getStatus()
+	{
+		return statusView.getStatus();
+	}
+	
+	@Override
+	public int visitStatus(int fromSlot, SlotStatusVisitor visitor)
+	{
+		// straight from the records, without a row per slot
+		ColorDictionary colors = ColorDictionary.getDefault();
+		for (int i = Math.max(fromSlot, 1); i <= capacity; i++)
+		{
+			if (slots.isOccupied(i)
+					&& !visitor.visit(i, slots.getRegistrationNo(i), colors.getColor(slots.getColorId(i))))
+				return i < capacity ? i + 1 : 0;
+		}
+		return 0;
+	}
+	
+	private SlotStatus readRow(int slotNumber)
+	{
+		if (!slots.isOccupied(slotNumber))
+			return null;
+		return new SlotStatus(slotNumber, slots.getRegistrationNo(slotNumber),
+				ColorDictionary.getDefault().getColor(slots.getColorId(slotNumber)));
+	}
+	
+	@Override
+	public Map<String, Integer> getColourCounts()
+	{
+		return statusView.getColourCounts();
+	}
+	
+	@Override
+	public int getAvailableSlotsCount()
+	{
+		return availability.get();
+	}
+	
+	@Override
+	public List<String> getRegNumberForColor(String color)
+	{
+		List<String> registrationList = new ArrayList<>();
+		ColorDictionary colors = ColorDictionary.getDefault();
+		int colourId = colors.find(color);
+		if (colourId == ColorDictionary.NO_COLOR)
+			return registrationList;
+		for (int i = 1; i <= capacity; i++)
+		{
+			if (slots.isOccupied(i) && colors.getCanonicalId(slots.getColorId(i)) == colourId)
+			{
+				registrationList.add(slots.getRegistrationNo(i));
+			}
+		}
+		return registrationList;
+	}
+	
+	@Override
+	public List<Integer> getSlotNumbersFromColor(String colour)
+	{
+		List<Integer> slotList = new ArrayList<>();
+		ColorDictionary colors = ColorDictionary.getDefault();
+		int colourId = colors.find(colour);
+		if (colourId == ColorDictionary.NO_COLOR)
+			return slotList;
+		for (int i = 1; i <= capacity; i++)
+		{
+			if (slots.isOccupied(i) && colors.getCanonicalId(slots.getColorId(i)) == colourId)
+			{
+				slotList.add(i);
+			}
+		}
+		return slotList;
+	}
+	
+	@Override
+	public int getSlotNoFromRegistrationNo(String registrationNo)
+	{
+		String registrationKey = OffHeapSlotStore.getRegistrationKey(registrationNo);
+		return findSlot(registrationKey, registrationKey.hashCode());
+	}
+	
+	/**
+	 * Spreads the hash so that keys differing in the high bits do not share
+	 * entries
+	 */
+	private int indexOf(int registrationHash)
+	{
+		return (registrationHash ^ registrationHash >>> 16) * 0x9E3779B9 >>> 1 & indexMask;
+	}
+	
+	/**
+	 * Probes at most the whole table, so a read racing a write can not loop
+	 * 
+	 * @return slot of the registration number, {@link Constants#NOT_FOUND} if
+	 *         it is not parked
+	 */
+	private int findSlot(String registrationKey, int registrationHash)
+	{
+		int index = indexOf(registrationHash);
+		for (int probes = 0; probes <= indexMask; probes++)
+		{
+			int slot = registrationIndex.get(index);
+			if (slot == EMPTY)
+				break;
+			if (slots.registrationEquals(slot, registrationKey, registrationHash))
+				return slot;
+			index = index + 1 & indexMask;
+		}
+		return Constants.NOT_FOUND;
+	}
+	
+	private void addToIndex(int slotNumber, int registrationHash)
+	{
+		int index = indexOf(registrationHash);
+		while (registrationIndex.get(index) != EMPTY)
+		{
+			index = index + 1 & indexMask;
+		}
+		registrationIndex.put(index, slotNumber);
+	}
+	
+	/**
+	 * Removes the entry of the slot and shifts back the entries after it that
+	 * probed past it, so that no tombstones are needed
+	 */
+	private void removeFromIndex(int slotNumber)
+	{
+		int hole = indexOf(slots.getRegistrationHash(slotNumber));
+		while (registrationIndex.get(hole) != slotNumber)
+		{
+			hole = hole + 1 & indexMask;
+		}
+		int index = hole;
+		while (true)
+		{
+			index = index + 1 & indexMask;
+			int slot = registrationIndex.get(index);
+			if (slot == EMPTY)
+				break;
+			int home = indexOf(slots.getRegistrationHash(slot));
+			// the entry stays if its home is cyclically in (hole, index]
+			boolean stays = hole <= index ? hole < home && home <= index : hole < home || home <= index;
+			if (!stays)
+			{
+				registrationIndex.put(hole, slot);
+				hole = index;
+			}
+		}
+		registrationIndex.put(hole, EMPTY);
+	}
+	
+	/**
+	 * @return level number of this parking level
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	@Override
+	public void doCleanUp()
+	{
+		parkingStrategy = null;
+		if (slots != null)
+			slots.clear();
+		slots = null;
+		registrationIndex = null;
+		statusView = null;
+	}
+}
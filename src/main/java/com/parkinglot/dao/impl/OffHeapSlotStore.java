@@ -0,0 +1,259 @@
+package com.parkinglot.dao.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.parkinglot.dao.SlotStore;
+import com.parkinglot.model.ColorDictionary;
+import com.parkinglot.model.SizeClass;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.VehicleKind;
+
+/**
+ * Slot store that keeps the vehicles out of the Java heap, as fixed width
+ * records in direct ByteBuffers:
+ * 
+ * <pre>
+ * byte state, byte length, byte kind, byte size class, int registration hash,
+ * int colour id, int unused, long parkedAt epoch milli, 24 bytes UTF-8 registrationNo
+ * </pre>
+ * 
+ * Records are grouped in buffers of {@link #SLOTS_PER_BUFFER} slots, so a
+ * level is not limited to the 2 GB of one buffer. A registration number longer
+ * than {@link #REGISTRATION_WIDTH} bytes is kept in a heap map, which normal
+ * registration numbers never need. The heap cost of the store does not depend
+ * on the number of parked vehicles, so neither does the GC work.
+ * 
+ * A vehicle is rebuilt, as the {@link VehicleKind} and size class it was put
+ * with, every time it is read; the fields can
+ * be read one by one without building it. Reads use absolute positions only,
+ * so they may run concurrently with each other.
+ * 
+ * @author Balasaheb
+ * @param <T>
+ */
+public class OffHeapSlotStore<T extends Vehicle> implements SlotStore<T>
+{
+	public static final int			REGISTRATION_WIDTH	= 24;
+	public static final int			RECORD_SIZE			= 24 + REGISTRATION_WIDTH;
+	static final int				SLOTS_PER_BUFFER	= 1 << 16;
+	
+	private static final int		BUFFER_SHIFT		= 16;
+	private static final int		STATE				= 0;
+	private static final int		LENGTH				= 1;
+	private static final int		KIND				= 2;
+	private static final int		SIZE_CLASS			= 3;
+	private static final int		HASH				= 4;
+	private static final int		COLOR				= 8;
+	private static final int		PARKING_TIME		= 16;
+	private static final int		REGISTRATION		= 24;
+	
+	private static final byte		EMPTY				= 0;
+	private static final byte		OCCUPIED			= 1;
+	// registration number in the overflow map
+	private static final byte		OVERFLOW			= 2;
+	
+	private final int				capacity;
+	// slot n is record n % SLOTS_PER_BUFFER of buffer n / SLOTS_PER_BUFFER
+	private ByteBuffer[]			buffers;
+	private Map<Integer, String>	overflow;
+	
+	public OffHeapSlotStore(int capacity)
+	{
+		this.capacity = capacity;
+		this.buffers = new ByteBuffer[(capacity >> BUFFER_SHIFT) + 1];
+		for (int i = 0; i < buffers.length; i++)
+		{
+			int slots = Math.min(SLOTS_PER_BUFFER, capacity + 1 - (i << BUFFER_SHIFT));
+			buffers[i] = ByteBuffer.allocateDirect(slots * RECORD_SIZE);
+		}
+		this.overflow = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Registration numbers are matched ignoring case, so the hash is that of
+	 * the upper case form.
+	 * 
+	 * @return key of the registration number for {@link #registrationEquals}
+	 */
+	public static String getRegistrationKey(String registrationNo)
+	{
+		return registrationNo.toUpperCase(Locale.ROOT);
+	}
+	
+	private ByteBuffer buffer(int slotNumber)
+	{
+		return buffers[slotNumber >>> BUFFER_SHIFT];
+	}
+	
+	private static int offset(int slotNumber)
+	{
+		return (slotNumber & (SLOTS_PER_BUFFER - 1)) * RECORD_SIZE;
+	}
+	
+	@Override
+	public T get(int slotNumber)
+	{
+		if (!isOccupied(slotNumber))
+			return null;
+		ByteBuffer buffer = buffer(slotNumber);
+		int offset = offset(slotNumber);
+		VehicleKind kind = VehicleKind.fromCode(buffer.get(offset + KIND));
+		Vehicle restored = kind.create(getRegistrationNo(slotNumber),
+				ColorDictionary.getDefault().getColor(getColorId(slotNumber)),
+				SizeClass.fromOrdinal(buffer.get(offset + SIZE_CLASS)));
+		restored.setParkingTime(getParkingTime(slotNumber));
+		@SuppressWarnings("unchecked")
+		T vehicle = (T) restored;
+		return vehicle;
+	}
+	
+	@Override
+	public void put(int slotNumber, T vehicle)
+	{
+		put(slotNumber, vehicle, getRegistrationKey(vehicle.getRegistrationNo()).hashCode());
+	}
+	
+	/**
+	 * @param registrationHash
+	 *            hash of the registration key, when the caller already has it
+	 */
+	public void put(int slotNumber, T vehicle, int registrationHash)
+	{
+		ByteBuffer buffer = buffer(slotNumber);
+		int offset = offset(slotNumber);
+		String registrationNo = vehicle.getRegistrationNo();
+		int length = putRegistration(buffer, offset + REGISTRATION, registrationNo);
+		byte state = OCCUPIED;
+		if (length < 0)
+		{
+			overflow.put(slotNumber, registrationNo);
+			state = OVERFLOW;
+			length = 0;
+		}
+		buffer.put(offset + LENGTH, (byte) length);
+		buffer.put(offset + KIND, VehicleKind.of(vehicle).getCode());
+		buffer.put(offset + SIZE_CLASS, (byte) vehicle.getSizeClass().ordinal());
+		buffer.putInt(offset + HASH, registrationHash);
+		buffer.putInt(offset + COLOR, vehicle.getColorId());
+		buffer.putLong(offset + PARKING_TIME, vehicle.getParkingTime());
+		// state last, a record is only read once it is marked occupied
+		buffer.put(offset + STATE, state);
+	}
+	
+	/**
+	 * @return number of bytes written, -1 if the registration number does not
+	 *         fit in the record
+	 */
+	private static int putRegistration(ByteBuffer buffer, int position, String registrationNo)
+	{
+		int length = registrationNo.length();
+		if (length > REGISTRATION_WIDTH)
+			return -1;
+		for (int i = 0; i < length; i++)
+		{
+			char c = registrationNo.charAt(i);
+			if (c >= 0x80)
+			{
+				byte[] bytes = registrationNo.getBytes(StandardCharsets.UTF_8);
+				if (bytes.length > REGISTRATION_WIDTH)
+					return -1;
+				for (int b = 0; b < bytes.length; b++)
+				{
+					buffer.put(position + b, bytes[b]);
+				}
+				return bytes.length;
+			}
+			buffer.put(position + i, (byte) c);
+		}
+		return length;
+	}
+	
+	@Override
+	public T remove(int slotNumber)
+	{
+		T vehicle = get(slotNumber);
+		delete(slotNumber);
+		return vehicle;
+	}
+	
+	/**
+	 * Empties the slot without reading the vehicle
+	 */
+	public void delete(int slotNumber)
+	{
+		ByteBuffer buffer = buffer(slotNumber);
+		int offset = offset(slotNumber);
+		if (buffer.get(offset + STATE) == OVERFLOW)
+			overflow.remove(slotNumber);
+		buffer.put(offset + STATE, EMPTY);
+	}
+	
+	public boolean isOccupied(int slotNumber)
+	{
+		return buffer(slotNumber).get(offset(slotNumber) + STATE) != EMPTY;
+	}
+	
+	public int getColorId(int slotNumber)
+	{
+		return buffer(slotNumber).getInt(offset(slotNumber) + COLOR);
+	}
+	
+	public int getRegistrationHash(int slotNumber)
+	{
+		return buffer(slotNumber).getInt(offset(slotNumber) + HASH);
+	}
+	
+	public String getRegistrationNo(int slotNumber)
+	{
+		ByteBuffer buffer = buffer(slotNumber);
+		int offset = offset(slotNumber);
+		if (buffer.get(offset + STATE) == OVERFLOW)
+			return overflow.get(slotNumber);
+		byte[] bytes = new byte[buffer.get(offset + LENGTH)];
+		for (int i = 0; i < bytes.length; i++)
+		{
+			bytes[i] = buffer.get(offset + REGISTRATION + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * @return parking time in epoch milliseconds
+	 */
+	public long getParkingTime(int slotNumber)
+	{
+		return buffer(slotNumber).getLong(offset(slotNumber) + PARKING_TIME);
+	}
+	
+	/**
+	 * @param registrationKey
+	 *            upper case registration number, see
+	 *            {@link #getRegistrationKey(String)}
+	 * @return true if the occupied slot holds the registration number
+	 */
+	public boolean registrationEquals(int slotNumber, String registrationKey, int registrationHash)
+	{
+		return getRegistrationHash(slotNumber) == registrationHash
+				&& registrationKey.equals(getRegistrationKey(getRegistrationNo(slotNumber)));
+	}
+	
+	@Override
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	/**
+	 * Drops the buffers, their memory is freed once they are collected
+	 */
+	@Override
+	public void clear()
+	{
+		buffers = null;
+		overflow = null;
+	}
+}
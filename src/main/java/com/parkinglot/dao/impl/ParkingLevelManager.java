@@ -1,73 +1,84 @@
 package com.parkinglot.dao.impl;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
+import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.parkinglot.constants.Constants;
 import com.parkinglot.dao.ParkingLevelDataManager;
+import com.parkinglot.dao.SlotStore;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.model.ColorDictionary;
+import com.parkinglot.model.SizeClass;
 import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.result.SlotStatus;
+import com.parkinglot.model.result.SlotStatusVisitor;
 import com.parkinglot.model.stratergy.NearestFirstParkingStrategy;
 import com.parkinglot.model.stratergy.ParkingStrategy;
 
 /**
- * This class is a singleton class to manage the data of parking system
+ * This class manages the data of one level of the parking system
  * 
  * @author Balasaheb
  * @param <T>
  */
 public class ParkingLevelManager<T extends Vehicle> implements ParkingLevelDataManager<T>
 {
-	// For Multilevel Parking lot - 0 -> Ground floor 1 -> First Floor etc
+	// For Multilevel Parking lot - 1 -> Ground floor 2 -> First Floor etc
 	private AtomicInteger	level			= new AtomicInteger(0);
 	private AtomicInteger	capacity		= new AtomicInteger();
 	private AtomicInteger	availability	= new AtomicInteger();
 	// Allocation Strategy for parking
 	private ParkingStrategy parkingStrategy;
 	// this is per level - slot - vehicle
-	private Map<Integer, Optional<T>> slotVehicleMap;
+	private SlotStore<T> slotVehicleMap;
+	// this is per level - registration no (upper case) - slot
+	private Map<String, Integer> registrationSlotMap;
+	// this is per level - canonical colour id - slots in ascending order;
+	// concurrent so an optimistic query can walk them while a park changes them
+	private Map<Integer, NavigableSet<Integer>> colourSlotMap;
+	// status rows and colour counts, updated by every park and leave
+	private LevelStatusView statusView;
 	
-	@SuppressWarnings("rawtypes")
-	private static ParkingLevelManager instance = null;
-	
-	@SuppressWarnings("unchecked")
-	public static <T extends Vehicle> ParkingLevelManager<T> getInstance(int level, int capacity,
-			ParkingStrategy parkingStrategy)
+	public ParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy)
 	{
-		if (instance == null)
-		{
-			synchronized (ParkingLevelManager.class)
-			{
-				if (instance == null)
-				{
-					instance = new ParkingLevelManager<T>(level, capacity, parkingStrategy);
-				}
-			}
-		}
-		return instance;
+		this(level, capacity, parkingStrategy, SlotStoreType.MAP);
 	}
 	
-	private ParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy)
+	public ParkingLevelManager(int level, int capacity, ParkingStrategy parkingStrategy,
+			SlotStoreType slotStoreType)
 	{
 		this.level.set(level);
 		this.capacity.set(capacity);
 		this.availability.set(capacity);
-		this.parkingStrategy = parkingStrategy;
 		if (parkingStrategy == null)
 			parkingStrategy = new NearestFirstParkingStrategy();
-		slotVehicleMap = new ConcurrentHashMap<>();
+		this.parkingStrategy = parkingStrategy;
+		slotVehicleMap = createSlotStore(slotStoreType, capacity);
+		registrationSlotMap = new ConcurrentHashMap<>();
+		colourSlotMap = new ConcurrentHashMap<>();
+		statusView = new LevelStatusView(capacity);
 		for (int i = 1; i <= capacity; i++)
 		{
-			slotVehicleMap.put(i, Optional.empty());
 			parkingStrategy.add(i);
 		}
 	}
 	
+	private static <T extends Vehicle> SlotStore<T> createSlotStore(SlotStoreType slotStoreType, int capacity)
+	{
+		if (slotStoreType == SlotStoreType.ARRAY)
+			return new ArraySlotStore<>(capacity);
+		if (slotStoreType == SlotStoreType.OFF_HEAP)
+			return new OffHeapSlotStore<>(capacity);
+		return new MapSlotStore<>(capacity);
+	}
+	
 	@Override
 	public int parkCar(T vehicle)
 	{
@@ -78,46 +89,178 @@ public class ParkingLevelManager<T extends Vehicle> implements ParkingLevelDataM
 		}
 		else
 		{
-			availableSlot = parkingStrategy.getSlot();
-			if (slotVehicleMap.containsValue(Optional.of(vehicle)))
+			String registrationKey = getRegistrationKey(vehicle.getRegistrationNo());
+			if (registrationSlotMap.containsKey(registrationKey))
 				return Constants.VEHICLE_ALREADY_EXIST;
 			
-			slotVehicleMap.put(availableSlot, Optional.of(vehicle));
-			availability.decrementAndGet();
-			parkingStrategy.removeSlot(availableSlot);
+			availableSlot = parkingStrategy.claimSlot(vehicle.getSizeClass());
+			// no free slot the vehicle fits in
+			if (availableSlot == Constants.NOT_AVAILABLE)
+				return Constants.NOT_AVAILABLE;
+			park(availableSlot, vehicle, registrationKey);
 		}
 		return availableSlot;
 	}
 	
+	/**
+	 * Claims the slots of the whole batch from the strategy in one pass. The
+	 * slots claimed for vehicles that turn out to be parked already are given
+	 * back at the end.
+	 */
 	@Override
-	public boolean leaveCar(int slotNumber)
+	public int[] parkCars(List<T> vehicles)
+	{
+		if (parkingStrategy.hasSizeClasses())
+			return ParkingLevelDataManager.super.parkCars(vehicles);
+		int[] results = new int[vehicles.size()];
+		int[] freeSlots = new int[Math.min(results.length, availability.get())];
+		int claimed = parkingStrategy.claimSlots(freeSlots, freeSlots.length);
+		int next = 0;
+		for (int i = 0; i < results.length; i++)
+		{
+			if (next == claimed)
+			{
+				results[i] = Constants.NOT_AVAILABLE;
+				continue;
+			}
+			T vehicle = vehicles.get(i);
+			String registrationKey = getRegistrationKey(vehicle.getRegistrationNo());
+			if (registrationSlotMap.containsKey(registrationKey))
+			{
+				results[i] = Constants.VEHICLE_ALREADY_EXIST;
+				continue;
+			}
+			results[i] = freeSlots[next++];
+			park(results[i], vehicle, registrationKey);
+		}
+		for (; next < claimed; next++)
+		{
+			parkingStrategy.add(freeSlots[next]);
+		}
+		return results;
+	}
+	
+	/**
+	 * Puts the vehicle in a free slot, the caller takes the slot out of the
+	 * strategy
+	 */
+	private void park(int slotNumber, T vehicle, String registrationKey)
+	{
+		slotVehicleMap.put(slotNumber, vehicle);
+		registrationSlotMap.put(registrationKey, slotNumber);
+		colourSlotMap.computeIfAbsent(vehicle.getCanonicalColorId(), key -> new ConcurrentSkipListSet<>())
+				.add(slotNumber);
+		availability.decrementAndGet();
+		statusView.parked(slotNumber, vehicle.getRegistrationNo(), vehicle.getColorId());
+	}
+	
+	@Override
+	public int holdSlot(SizeClass sizeClass)
 	{
-		//System.out.println("slotVehicleMap===>"+slotVehicleMap.get(slotNumber).get().getParkingtime());
-		//int hours  = slotVehicleMap.get(slotNumber).get().getParkingtime() - LocalDateTime.now();
-		long minutesDiff = ChronoUnit.MINUTES.between(slotVehicleMap.get(slotNumber).get().getParkingtime(), LocalDateTime.now());
-        long hoursDiff = Math.round(Math.ceil(minutesDiff/60.0));
-        //System.out.println("hoursDiff====>"+hoursDiff);
-		if (!slotVehicleMap.get(slotNumber).isPresent()) // Slot already empty
+		if (availability.get() == 0)
+			return Constants.NOT_AVAILABLE;
+		int slot = parkingStrategy.claimSlot(sizeClass);
+		if (slot != Constants.NOT_AVAILABLE)
+			availability.decrementAndGet();
+		return slot;
+	}
+	
+	@Override
+	public boolean parkHeld(int slotNumber, T vehicle)
+	{
+		String registrationKey = getRegistrationKey(vehicle.getRegistrationNo());
+		if (registrationSlotMap.containsKey(registrationKey))
 			return false;
+		// the slot was taken from the availability when it was held
 		availability.incrementAndGet();
-		parkingStrategy.add(slotNumber);
-		slotVehicleMap.put(slotNumber, Optional.empty());
+		park(slotNumber, vehicle, registrationKey);
 		return true;
 	}
 	
 	@Override
-	public List<String> getStatus()
+	public void releaseHeld(int slotNumber)
 	{
-		List<String> statusList = new ArrayList<>();
-		for (int i = 1; i <= capacity.get(); i++)
+		parkingStrategy.add(slotNumber);
+		availability.incrementAndGet();
+	}
+	
+	@Override
+	public boolean leaveCar(int slotNumber)
+	{
+		return removeCar(slotNumber) != Constants.NOT_PARKED;
+	}
+	
+	@Override
+	public long removeCar(int slotNumber)
+	{
+		T vehicle = takeCar(slotNumber);
+		return vehicle != null ? vehicle.getParkingTime() : Constants.NOT_PARKED;
+	}
+	
+	@Override
+	public T takeCar(int slotNumber)
+	{
+		if (slotNumber < 1 || slotNumber > capacity.get())
+			throw new IllegalArgumentException("Invalid slot number " + slotNumber);
+		T vehicle = slotVehicleMap.get(slotNumber);
+		if (vehicle == null) // Slot already empty
+			return null;
+		registrationSlotMap.remove(getRegistrationKey(vehicle.getRegistrationNo()));
+		NavigableSet<Integer> colourSlots = colourSlotMap.get(vehicle.getCanonicalColorId());
+		if (colourSlots != null)
 		{
-			Optional<T> vehicle = slotVehicleMap.get(i);
-			if (vehicle.isPresent())
-			{
-				statusList.add(i + "\t\t" + vehicle.get().getRegistrationNo() + "\t\t" + vehicle.get().getColor());
-			}
+			colourSlots.remove(slotNumber);
+			if (colourSlots.isEmpty())
+				colourSlotMap.remove(vehicle.getCanonicalColorId());
 		}
-		return statusList;
+		availability.incrementAndGet();
+		parkingStrategy.add(slotNumber);
+		slotVehicleMap.remove(slotNumber);
+		statusView.left(slotNumber, vehicle.getColorId());
+		return vehicle;
+	}
+	
+	@Override
+	public boolean parkCarAt(int slotNumber, T vehicle)
+	{
+		if (slotNumber < 1 || slotNumber > capacity.get())
+			throw new IllegalArgumentException("Invalid slot number " + slotNumber);
+		String registrationKey = getRegistrationKey(vehicle.getRegistrationNo());
+		if (slotVehicleMap.get(slotNumber) != null || registrationSlotMap.containsKey(registrationKey))
+			return false;
+		park(slotNumber, vehicle, registrationKey);
+		parkingStrategy.removeSlot(slotNumber);
+		return true;
+	}
+	
+	@Override
+	public T getVehicle(int slotNumber)
+	{
+		return slotVehicleMap.get(slotNumber);
+	}
+	
+	@Override
+	public int getCapacity()
+	{
+		return capacity.get();
+	}
+	
+	@Override
+	public List<SlotStatus> getStatus()
+	{
+		return statusView.getStatus();
+	}
+	
+	@Override
+	public int visitStatus(int fromSlot, SlotStatusVisitor visitor)
+	{
+		return statusView.visit(fromSlot, visitor);
+	}
+	
+	@Override
+	public Map<String, Integer> getColourCounts()
+	{
+		return statusView.getColourCounts();
 	}
 	
 	public int getAvailableSlotsCount()
@@ -129,12 +272,12 @@ public class ParkingLevelManager<T extends Vehicle> implements ParkingLevelDataM
 	public List<String> getRegNumberForColor(String color)
 	{
 		List<String> statusList = new ArrayList<>();
-		for (int i = 1; i <= capacity.get(); i++)
+		for (Integer slot : getColourSlots(color))
 		{
-			Optional<T> vehicle = slotVehicleMap.get(i);
-			if (vehicle.isPresent() && color.equalsIgnoreCase(vehicle.get().getColor()))
+			T vehicle = slotVehicleMap.get(slot);
+			if (vehicle != null)
 			{
-				statusList.add(vehicle.get().getRegistrationNo());
+				statusList.add(vehicle.getRegistrationNo());
 			}
 		}
 		return statusList;
@@ -143,31 +286,49 @@ public class ParkingLevelManager<T extends Vehicle> implements ParkingLevelDataM
 	@Override
 	public List<Integer> getSlotNumbersFromColor(String colour)
 	{
-		List<Integer> slotList = new ArrayList<>();
-		for (int i = 1; i <= capacity.get(); i++)
-		{
-			Optional<T> vehicle = slotVehicleMap.get(i);
-			if (vehicle.isPresent() && colour.equalsIgnoreCase(vehicle.get().getColor()))
-			{
-				slotList.add(i);
-			}
-		}
-		return slotList;
+		return new ArrayList<>(getColourSlots(colour));
 	}
 	
 	@Override
 	public int getSlotNoFromRegistrationNo(String registrationNo)
 	{
-		int result = Constants.NOT_FOUND;
-		for (int i = 1; i <= capacity.get(); i++)
-		{
-			Optional<T> vehicle = slotVehicleMap.get(i);
-			if (vehicle.isPresent() && registrationNo.equalsIgnoreCase(vehicle.get().getRegistrationNo()))
-			{
-				result = i;
-			}
-		}
-		return result;
+		Integer slot = registrationSlotMap.get(getRegistrationKey(registrationNo));
+		return slot != null ? slot : Constants.NOT_FOUND;
+	}
+	
+	/**
+	 * @param colour
+	 * @return slots occupied by vehicles of the given colour, in ascending order
+	 */
+	private NavigableSet<Integer> getColourSlots(String colour)
+	{
+		NavigableSet<Integer> colourSlots = colourSlotMap.get(getColourKey(colour));
+		return colourSlots != null ? colourSlots : Collections.emptyNavigableSet();
+	}
+	
+	/**
+	 * Colours are matched ignoring case, which the dictionary does by giving
+	 * every spelling of a colour the same canonical id. Looking a colour up does not add
+	 * it, so a colour no vehicle has yields an id with no slots.
+	 * 
+	 * @param colour
+	 * @return key for colourSlotMap
+	 */
+	private static Integer getColourKey(String colour)
+	{
+		return ColorDictionary.getDefault().find(colour);
+	}
+	
+	/**
+	 * Registration numbers are matched ignoring case, so the index is keyed on
+	 * the upper case form.
+	 * 
+	 * @param registrationNo
+	 * @return key for registrationSlotMap
+	 */
+	private static String getRegistrationKey(String registrationNo)
+	{
+		return registrationNo.toUpperCase(Locale.ROOT);
 	}
 	
 	public Object clone() throws CloneNotSupportedException
@@ -182,7 +343,11 @@ public class ParkingLevelManager<T extends Vehicle> implements ParkingLevelDataM
 		this.capacity = new AtomicInteger();
 		this.availability = new AtomicInteger();
 		this.parkingStrategy = null;
+		if (slotVehicleMap != null)
+			slotVehicleMap.clear();
 		slotVehicleMap = null;
-		instance = null;
+		registrationSlotMap = null;
+		colourSlotMap = null;
+		statusView = null;
 	}
 }
@@ -3,78 +3,362 @@
  */
 package com.parkinglot.dao.impl;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.parkinglot.constants.ConcurrencyMode;
+import com.parkinglot.constants.Constants;
 import com.parkinglot.dao.ParkingDataManager;
 import com.parkinglot.dao.ParkingLevelDataManager;
+import com.parkinglot.dao.SlotStoreType;
+import com.parkinglot.model.SizeClass;
 import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.result.SlotStatus;
+import com.parkinglot.model.result.SlotStatusVisitor;
 import com.parkinglot.model.stratergy.NearestFirstParkingStrategy;
 import com.parkinglot.model.stratergy.ParkingStrategy;
 
 /**
- * This class is a singleton class to manage the data of parking system
+ * This class manages the levels of the parking system, each level being an
+ * independent {@link ParkingLevelDataManager}
  * 
  * @author Balasaheb
  * @param <T>
  */
 public class ParkingManager<T extends Vehicle> implements ParkingDataManager<T>
 {
-	private Map<Integer, ParkingLevelDataManager<T>> levelParkingMap;
+	private Map<Integer, ParkingLevelDataManager<T>>	levelParkingMap;
+	// levels with at least one free slot
+	private LevelAvailability							levelAvailability;
+	// registration no (upper case) - level, claimed before the vehicle is
+	// parked so it can be parked on one level only
+	private Map<String, Integer>						registrationLevelMap;
 	
-	@SuppressWarnings("rawtypes")
-	private static ParkingManager instance = null;
+	public ParkingManager(List<Integer> parkingLevels, List<Integer> capacityList,
+			List<ParkingStrategy> parkingStrategies)
+	{
+		this(parkingLevels, capacityList, parkingStrategies, SlotStoreType.MAP);
+	}
+	
+	public ParkingManager(List<Integer> parkingLevels, List<Integer> capacityList,
+			List<ParkingStrategy> parkingStrategies, SlotStoreType slotStoreType)
+	{
+		this(parkingLevels, capacityList, parkingStrategies, slotStoreType, ConcurrencyMode.LOCKED);
+	}
+	
+	/**
+	 * @param concurrencyMode
+	 *            for {@link ConcurrencyMode#LOCK_FREE} each level is a
+	 *            {@link ConcurrentParkingLevelManager} and the parking strategies
+	 *            and slot store type are not used, a strategy with size classes
+	 *            is rejected; for
+	 *            {@link SlotStoreType#OFF_HEAP} each level is an
+	 *            {@link OffHeapParkingLevelManager}
+	 */
+	public ParkingManager(List<Integer> parkingLevels, List<Integer> capacityList,
+			List<ParkingStrategy> parkingStrategies, SlotStoreType slotStoreType, ConcurrencyMode concurrencyMode)
+	{
+		if (parkingLevels.size() != capacityList.size())
+			throw new IllegalArgumentException("Each parking level needs a capacity");
+		levelParkingMap = new TreeMap<>();
+		levelAvailability = new LevelAvailability(Collections.max(parkingLevels));
+		registrationLevelMap = new ConcurrentHashMap<>();
+		for (int i = 0; i < parkingLevels.size(); i++)
+		{
+			int level = parkingLevels.get(i);
+			ParkingLevelDataManager<T> levelDataManager;
+			if (concurrencyMode == ConcurrencyMode.LOCK_FREE)
+			{
+				// one pool of slots, it would park every size in any slot
+				if (parkingStrategies != null && i < parkingStrategies.size()
+						&& parkingStrategies.get(i).hasSizeClasses())
+					throw new IllegalArgumentException(
+							"Size classes need a parking strategy, use LOCKED or OPTIMISTIC_READ");
+				levelDataManager = new ConcurrentParkingLevelManager<>(level, capacityList.get(i));
+			}
+			else if (slotStoreType == SlotStoreType.OFF_HEAP)
+			{
+				ParkingStrategy parkingStrategy = parkingStrategies != null && i < parkingStrategies.size()
+						? parkingStrategies.get(i) : null;
+				levelDataManager = new OffHeapParkingLevelManager<>(level, capacityList.get(i), parkingStrategy);
+			}
+			else
+			{
+				ParkingStrategy parkingStrategy = parkingStrategies != null && i < parkingStrategies.size()
+						? parkingStrategies.get(i) : new NearestFirstParkingStrategy();
+				levelDataManager = new ParkingLevelManager<>(level, capacityList.get(i), parkingStrategy,
+						slotStoreType);
+			}
+			levelParkingMap.put(level, levelDataManager);
+			levelAvailability.update(level, levelDataManager);
+		}
+	}
+	
+	@Override
+	public int parkCar(int level, T vehicle)
+	{
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		// a full level says so before it looks at the registration
+		if (levelDataManager.getAvailableSlotsCount() == 0)
+			return Constants.NOT_AVAILABLE;
+		if (!claimRegistration(level, vehicle))
+			return Constants.VEHICLE_ALREADY_EXIST;
+		int slot = Constants.NOT_AVAILABLE;
+		try
+		{
+			slot = levelDataManager.parkCar(vehicle);
+		}
+		finally
+		{
+			if (slot <= 0)
+				releaseRegistration(level, vehicle);
+		}
+		levelAvailability.update(level, levelDataManager);
+		return slot;
+	}
+	
+	@Override
+	public boolean leaveCar(int level, int slotNumber)
+	{
+		return removeCar(level, slotNumber) != Constants.NOT_PARKED;
+	}
+	
+	@Override
+	public int holdSlot(int level, SizeClass sizeClass)
+	{
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		int slot = levelDataManager.holdSlot(sizeClass);
+		levelAvailability.update(level, levelDataManager);
+		return slot;
+	}
 	
-	@SuppressWarnings("unchecked")
-	public static <T extends Vehicle> ParkingManager<T> getInstance(List<Integer> parkingLevels,
-			List<Integer> capacityList, List<ParkingStrategy> parkingStrategies)
+	@Override
+	public boolean parkHeld(int level, int slotNumber, T vehicle)
 	{
-		// Make sure the each of the lists are of equal size
-		if (instance == null)
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		if (!claimRegistration(level, vehicle))
+			return false;
+		boolean parked = false;
+		try
 		{
-			synchronized (ParkingManager.class)
+			parked = levelDataManager.parkHeld(slotNumber, vehicle);
+		}
+		finally
+		{
+			if (!parked)
+				releaseRegistration(level, vehicle);
+		}
+		return parked;
+	}
+	
+	@Override
+	public void releaseHeld(int level, int slotNumber)
+	{
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		levelDataManager.releaseHeld(slotNumber);
+		levelAvailability.update(level, levelDataManager);
+	}
+	
+	/**
+	 * Claims the registrations of the batch before the level parks the vehicles
+	 * it claimed. A batch with a vehicle twice is parked one by one, so the
+	 * second one still gets the slot the first one could not.
+	 */
+	@Override
+	public int[] parkCars(int level, List<T> vehicles)
+	{
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		int[] slots = new int[vehicles.size()];
+		List<T> claimed = new ArrayList<>(slots.length);
+		for (int i = 0; i < slots.length; i++)
+		{
+			T vehicle = vehicles.get(i);
+			if (claimRegistration(level, vehicle))
 			{
-				if (instance == null)
+				claimed.add(vehicle);
+				continue;
+			}
+			if (isRepeated(vehicles, i))
+			{
+				for (T claimedVehicle : claimed)
+				{
+					releaseRegistration(level, claimedVehicle);
+				}
+				for (int j = 0; j < slots.length; j++)
+				{
+					slots[j] = parkCar(level, vehicles.get(j));
+				}
+				return slots;
+			}
+			slots[i] = Constants.VEHICLE_ALREADY_EXIST;
+		}
+		int freeSlots = levelDataManager.getAvailableSlotsCount();
+		int[] claimedSlots = null;
+		try
+		{
+			claimedSlots = levelDataManager.parkCars(claimed);
+		}
+		finally
+		{
+			if (claimedSlots == null)
+			{
+				for (T claimedVehicle : claimed)
 				{
-					instance = new ParkingManager<T>(parkingLevels, capacityList, parkingStrategies);
+					releaseRegistration(level, claimedVehicle);
 				}
 			}
 		}
-		return instance;
+		int next = 0;
+		for (int i = 0; i < slots.length; i++)
+		{
+			if (slots[i] == Constants.VEHICLE_ALREADY_EXIST)
+			{
+				// as parkCar would say once the batch has taken the last slot
+				if (freeSlots == 0)
+					slots[i] = Constants.NOT_AVAILABLE;
+				continue;
+			}
+			slots[i] = claimedSlots[next];
+			if (slots[i] > 0)
+				freeSlots--;
+			else
+				releaseRegistration(level, claimed.get(next));
+			next++;
+		}
+		levelAvailability.update(level, levelDataManager);
+		return slots;
 	}
 	
-	private ParkingManager(List<Integer> parkingLevels, List<Integer> capacityList,
-			List<ParkingStrategy> parkingStrategies)
+	@Override
+	public long[] removeCars(int level, int[] slotNumbers)
 	{
-		if (levelParkingMap == null)
-			levelParkingMap = new HashMap<>();
-		for (int i = 0; i < parkingLevels.size(); i++)
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		long[] parkingTimes = new long[slotNumbers.length];
+		for (int i = 0; i < slotNumbers.length; i++)
 		{
-			levelParkingMap.put(parkingLevels.get(i), ParkingLevelManager.getInstance(parkingLevels.get(i),
-					capacityList.get(i), new NearestFirstParkingStrategy()));
-			
+			parkingTimes[i] = release(level, levelDataManager.takeCar(slotNumbers[i]));
 		}
+		levelAvailability.update(level, levelDataManager);
+		return parkingTimes;
 	}
 	
 	@Override
-	public int parkCar(int level, T vehicle)
+	public long removeCar(int level, int slotNumber)
 	{
-		return levelParkingMap.get(level).parkCar(vehicle);
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		long parkingTime = release(level, levelDataManager.takeCar(slotNumber));
+		levelAvailability.update(level, levelDataManager);
+		return parkingTime;
 	}
 	
 	@Override
-	public boolean leaveCar(int level, int slotNumber)
+	public boolean parkCarAt(int level, int slotNumber, T vehicle)
+	{
+		ParkingLevelDataManager<T> levelDataManager = levelParkingMap.get(level);
+		if (!claimRegistration(level, vehicle))
+			return false;
+		boolean parked = false;
+		try
+		{
+			parked = levelDataManager.parkCarAt(slotNumber, vehicle);
+		}
+		finally
+		{
+			if (!parked)
+				releaseRegistration(level, vehicle);
+		}
+		levelAvailability.update(level, levelDataManager);
+		return parked;
+	}
+	
+	/**
+	 * Claims the registration for the level with putIfAbsent, so of two parks
+	 * of the same vehicle on different levels only one can go ahead
+	 * 
+	 * @return false if the vehicle is parked, or being parked, on some level
+	 */
+	private boolean claimRegistration(int level, T vehicle)
+	{
+		return registrationLevelMap.putIfAbsent(getRegistrationKey(vehicle.getRegistrationNo()), level) == null;
+	}
+	
+	private void releaseRegistration(int level, T vehicle)
+	{
+		registrationLevelMap.remove(getRegistrationKey(vehicle.getRegistrationNo()), level);
+	}
+	
+	/**
+	 * Gives back the registration of the vehicle that left
+	 * 
+	 * @return park time of the vehicle, Constants.NOT_PARKED if the slot was
+	 *         empty
+	 */
+	private long release(int level, T vehicle)
+	{
+		if (vehicle == null)
+			return Constants.NOT_PARKED;
+		releaseRegistration(level, vehicle);
+		return vehicle.getParkingTime();
+	}
+	
+	/**
+	 * @return true if the vehicle at the index is in the list before it
+	 */
+	private static boolean isRepeated(List<? extends Vehicle> vehicles, int index)
+	{
+		String registrationKey = getRegistrationKey(vehicles.get(index).getRegistrationNo());
+		for (int i = 0; i < index; i++)
+		{
+			if (registrationKey.equals(getRegistrationKey(vehicles.get(i).getRegistrationNo())))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Registration numbers are matched ignoring case, so the index is keyed on
+	 * the upper case form.
+	 */
+	private static String getRegistrationKey(String registrationNo)
+	{
+		return registrationNo.toUpperCase(Locale.ROOT);
+	}
+	
+	@Override
+	public T getVehicle(int level, int slotNumber)
+	{
+		return levelParkingMap.get(level).getVehicle(slotNumber);
+	}
+	
+	@Override
+	public int getCapacity(int level)
 	{
-		return levelParkingMap.get(level).leaveCar(slotNumber);
+		return levelParkingMap.get(level).getCapacity();
 	}
 	
 	@Override
-	public List<String> getStatus(int level)
+	public List<SlotStatus> getStatus(int level)
 	{
 		return levelParkingMap.get(level).getStatus();
 	}
 	
+	@Override
+	public int visitStatus(int level, int fromSlot, SlotStatusVisitor visitor)
+	{
+		return levelParkingMap.get(level).visitStatus(fromSlot, visitor);
+	}
+	
+	@Override
+	public Map<String, Integer> getColourCounts(int level)
+	{
+		return levelParkingMap.get(level).getColourCounts();
+	}
+	
 	public int getAvailableSlotsCount(int level)
 	{
 		return levelParkingMap.get(level).getAvailableSlotsCount();
@@ -98,6 +382,46 @@ public class ParkingManager<T extends Vehicle> implements ParkingDataManager<T>
 		return levelParkingMap.get(level).getSlotNoFromRegistrationNo(registrationNo);
 	}
 	
+	@Override
+	public List<Integer> getLevels()
+	{
+		return new ArrayList<>(levelParkingMap.keySet());
+	}
+	
+	@Override
+	public int getLevelCount()
+	{
+		return levelParkingMap.size();
+	}
+	
+	@Override
+	public boolean hasLevel(int level)
+	{
+		return levelParkingMap.containsKey(level);
+	}
+	
+	@Override
+	public int getLevelWithAvailability()
+	{
+		return levelAvailability.first(0);
+	}
+	
+	@Override
+	public int getLevelWithAvailability(int fromLevel)
+	{
+		return levelAvailability.first(fromLevel);
+	}
+	
+	/**
+	 * Also the level of a vehicle that is being parked there
+	 */
+	@Override
+	public int getLevelFromRegistrationNo(String registrationNo)
+	{
+		Integer level = registrationLevelMap.get(getRegistrationKey(registrationNo));
+		return level != null ? level : Constants.NOT_FOUND;
+	}
+	
 	public Object clone() throws CloneNotSupportedException
 	{
 		throw new CloneNotSupportedException();
@@ -110,6 +434,7 @@ public class ParkingManager<T extends Vehicle> implements ParkingDataManager<T>
 			levelDataManager.doCleanUp();
 		}
 		levelParkingMap = null;
-		instance = null;
+		levelAvailability = null;
+		registrationLevelMap = null;
 	}
 }
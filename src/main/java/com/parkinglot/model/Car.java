@@ -11,11 +11,28 @@ import java.io.ObjectOutput;
 public class Car extends Vehicle
 {
 	
+	/**
+	 * Used by Externalizable, which restores the fields with readExternal
+	 */
+	public Car()
+	{
+	}
+	
 	public Car(String registrationNo, String color)
 	{
 		super(registrationNo, color);
 	}
 	
+	/**
+	 * @param sizeClass
+	 *            e.g. {@link SizeClass#COMPACT} for a small car or
+	 *            {@link SizeClass#OVERSIZE} for a van
+	 */
+	public Car(String registrationNo, String color, SizeClass sizeClass)
+	{
+		super(registrationNo, color, sizeClass);
+	}
+	
 	@Override
 	public void writeExternal(ObjectOutput out) throws IOException
 	{
@@ -0,0 +1,140 @@
+package com.parkinglot.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every distinct spelling of a colour a small int id, in the order the
+ * spellings are first seen, and reads it back as that spelling. Colours are
+ * matched ignoring case through the canonical id, which all spellings of a
+ * colour share: the id of its first spelling. Lookups are lock free, only a
+ * new spelling takes the lock.
+ * 
+ * No colour, a null, has the id {@link #NO_COLOR} in every dictionary.
+ * 
+ * Ids are only meaningful with the dictionary that assigned them, so anything
+ * that saves ids saves the colours of the dictionary as well.
+ * 
+ * @author Balasaheb
+ */
+public class ColorDictionary
+{
+	public static final int							NO_COLOR		= -1;
+	
+	private static final ColorDictionary			DEFAULT			= new ColorDictionary();
+	
+	// every spelling seen - id
+	private final ConcurrentHashMap<String, Integer>	ids				= new ConcurrentHashMap<>();
+	// colour (lower case) - canonical id
+	private final ConcurrentHashMap<String, Integer>	keyIds			= new ConcurrentHashMap<>();
+	// id - spelling, replaced, never changed, when a spelling is added
+	private volatile String[]						colors			= new String[0];
+	// id - canonical id, replaced along with colors
+	private volatile int[]							canonicalIds	= new int[0];
+	
+	/**
+	 * @return dictionary of the colours of the vehicles of this process
+	 */
+	public static ColorDictionary getDefault()
+	{
+		return DEFAULT;
+	}
+	
+	/**
+	 * @return id of the spelling, adding it if it is new
+	 */
+	public int getId(String color)
+	{
+		if (color == null)
+			return NO_COLOR;
+		Integer id = ids.get(color);
+		return id != null ? id : add(color);
+	}
+	
+	private synchronized int add(String color)
+	{
+		Integer id = ids.get(color);
+		if (id != null)
+			return id;
+		String[] current = colors;
+		id = current.length;
+		String key = getColourKey(color);
+		Integer canonicalId = keyIds.get(key);
+		if (canonicalId == null)
+		{
+			canonicalId = id;
+			keyIds.put(key, canonicalId);
+		}
+		int[] addedCanonicalIds = Arrays.copyOf(canonicalIds, id + 1);
+		addedCanonicalIds[id] = canonicalId;
+		String[] added = Arrays.copyOf(current, id + 1);
+		added[id] = color;
+		// The arrays are published before the id so a reader given the id finds it
+		canonicalIds = addedCanonicalIds;
+		colors = added;
+		ids.put(color, id);
+		return id;
+	}
+	
+	/**
+	 * Looks a colour up ignoring case without adding it, e.g. for a query
+	 * 
+	 * @return canonical id of the colour, {@link #NO_COLOR} if it was never
+	 *         seen
+	 */
+	public int find(String color)
+	{
+		if (color == null)
+			return NO_COLOR;
+		Integer id = ids.get(color);
+		if (id != null)
+			return getCanonicalId(id);
+		id = keyIds.get(getColourKey(color));
+		return id != null ? id : NO_COLOR;
+	}
+	
+	/**
+	 * @return id shared by every spelling of the colour of the given id,
+	 *         {@link #NO_COLOR} for no colour
+	 * @throws IllegalArgumentException
+	 *             if no colour has the id
+	 */
+	public int getCanonicalId(int id)
+	{
+		if (id == NO_COLOR)
+			return NO_COLOR;
+		int[] current = canonicalIds;
+		if (id < 0 || id >= current.length)
+			throw new IllegalArgumentException("Unknown colour id: " + id);
+		return current[id];
+	}
+	
+	/**
+	 * @return spelling of the id, null for {@link #NO_COLOR}
+	 * @throws IllegalArgumentException
+	 *             if no colour has the id
+	 */
+	public String getColor(int id)
+	{
+		if (id == NO_COLOR)
+			return null;
+		String[] current = colors;
+		if (id < 0 || id >= current.length)
+			throw new IllegalArgumentException("Unknown colour id: " + id);
+		return current[id];
+	}
+	
+	/**
+	 * @return number of spellings, which are the ids 0 to size - 1
+	 */
+	public int size()
+	{
+		return colors.length;
+	}
+	
+	private static String getColourKey(String colour)
+	{
+		return colour.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,22 @@
+package com.parkinglot.model;
+
+/**
+ * @author Balasaheb
+ *
+ */
+public class Motorcycle extends Vehicle
+{
+	
+	/**
+	 * Used by Externalizable, which restores the fields with readExternal
+	 */
+	public Motorcycle()
+	{
+		super(SizeClass.MOTORCYCLE);
+	}
+	
+	public Motorcycle(String registrationNo, String color)
+	{
+		super(registrationNo, color, SizeClass.MOTORCYCLE);
+	}
+}
@@ -0,0 +1,33 @@
+package com.parkinglot.model;
+
+/**
+ * Size of a vehicle, and of the slots it fits in, from the smallest up. A
+ * vehicle fits a slot of its own size class or of any larger one.
+ * 
+ * @author Balasaheb
+ */
+public enum SizeClass
+{
+	MOTORCYCLE, COMPACT, STANDARD, OVERSIZE;
+	
+	/**
+	 * @return true if a vehicle of the given size class fits a slot of this one
+	 */
+	public boolean fits(SizeClass vehicleSize)
+	{
+		return compareTo(vehicleSize) >= 0;
+	}
+	
+	/**
+	 * @return size class saved as its ordinal
+	 * @throws IllegalArgumentException
+	 *             if no size class has the ordinal
+	 */
+	public static SizeClass fromOrdinal(int ordinal)
+	{
+		SizeClass[] sizeClasses = values();
+		if (ordinal < 0 || ordinal >= sizeClasses.length)
+			throw new IllegalArgumentException("Unknown size class: " + ordinal);
+		return sizeClasses[ordinal];
+	}
+}
@@ -4,8 +4,9 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.time.LocalDate;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * @author Balasaheb
@@ -13,21 +14,47 @@ import java.time.LocalDateTime;
  */
 public abstract class Vehicle implements Externalizable
 {
-	private String	registrationNo	= null;
-	private String	color			= null;	
-	private LocalDateTime parkingtime = LocalDateTime.now(); 
+	private String		registrationNo	= null;
+	// id of the colour spelling in the default ColorDictionary
+	private int			colorId			= ColorDictionary.NO_COLOR;
+	// epoch milliseconds
+	private long		parkingTime;
+	// smallest slot size the vehicle fits in
+	private SizeClass	sizeClass		= SizeClass.STANDARD;
+	
+	/**
+	 * Used by Externalizable, which restores the fields with readExternal
+	 */
+	protected Vehicle()
+	{
+	}
+	
+	/**
+	 * Used by Externalizable of vehicles that are not {@link SizeClass#STANDARD}
+	 */
+	protected Vehicle(SizeClass sizeClass)
+	{
+		this.sizeClass = sizeClass;
+	}
 	
 	public Vehicle(String registrationNo, String color)
+	{
+		this(registrationNo, color, SizeClass.STANDARD);
+	}
+	
+	public Vehicle(String registrationNo, String color, SizeClass sizeClass)
 	{
 		this.registrationNo = registrationNo;
-		this.color = color;
-		this.parkingtime = LocalDateTime.now();
+		setColor(color);
+		// the lot sets the time of its own clock when the vehicle is parked
+		this.parkingTime = System.currentTimeMillis();
+		this.sizeClass = sizeClass;
 	}
 	
 	@Override
 	public String toString()
 	{
-		return "[registrationNo=" + registrationNo + ", color=" + color + " , parkingtime=" + parkingtime + "]";
+		return "[registrationNo=" + registrationNo + ", color=" + getColor() + " , parkingtime=" + getParkingtime() + "]";
 	}
 	
 	/**
@@ -38,8 +65,30 @@ public abstract class Vehicle implements Externalizable
 		return registrationNo;
 	}
 			
-	public LocalDateTime getParkingtime() {
-		return parkingtime;
+	/**
+	 * @return the parking time in the default time zone, built on every call
+	 */
+	public LocalDateTime getParkingtime()
+	{
+		return LocalDateTime.ofInstant(Instant.ofEpochMilli(parkingTime), ZoneId.systemDefault());
+	}
+	
+	/**
+	 * @return the parking time in epoch milliseconds
+	 */
+	public long getParkingTime()
+	{
+		return parkingTime;
+	}
+	
+	/**
+	 * @param parkingTime
+	 *            the parking time in epoch milliseconds, e.g. when restoring a
+	 *            saved vehicle
+	 */
+	public void setParkingTime(long parkingTime)
+	{
+		this.parkingTime = parkingTime;
 	}
 
 	/**
@@ -51,12 +100,39 @@ public abstract class Vehicle implements Externalizable
 		this.registrationNo = registrationNo;
 	}
 	
+	/**
+	 * @return the sizeClass
+	 */
+	public SizeClass getSizeClass()
+	{
+		return sizeClass;
+	}
+	
 	/**
 	 * @return the color
 	 */
 	public String getColor()
 	{
-		return color;
+		return ColorDictionary.getDefault().getColor(colorId);
+	}
+	
+	/**
+	 * @return id of the spelling of the color in
+	 *         {@link ColorDictionary#getDefault()}
+	 */
+	public int getColorId()
+	{
+		return colorId;
+	}
+	
+	/**
+	 * @return id of the color in {@link ColorDictionary#getDefault()} that is
+	 *         the same for every spelling of the color, to match colours
+	 *         ignoring case
+	 */
+	public int getCanonicalColorId()
+	{
+		return ColorDictionary.getDefault().getCanonicalId(colorId);
 	}
 	
 	/**
@@ -65,7 +141,7 @@ public abstract class Vehicle implements Externalizable
 	 */
 	public void setColor(String color)
 	{
-		this.color = color;
+		this.colorId = ColorDictionary.getDefault().getId(color);
 	}
 	
 	@Override
@@ -73,7 +149,8 @@ public abstract class Vehicle implements Externalizable
 	{
 		out.writeObject(getRegistrationNo());
 		out.writeObject(getColor());
-		out.writeObject(parkingtime);
+		out.writeLong(parkingTime);
+		out.writeByte(sizeClass.ordinal());
 	}
 	
 	@Override
@@ -81,5 +158,7 @@ public abstract class Vehicle implements Externalizable
 	{
 		setRegistrationNo((String) in.readObject());
 		setColor((String) in.readObject());
+		setParkingTime(in.readLong());
+		sizeClass = SizeClass.values()[in.readByte()];
 	}
 }
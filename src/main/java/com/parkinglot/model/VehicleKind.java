@@ -0,0 +1,60 @@
+package com.parkinglot.model;
+
+/**
+ * Subclass of a vehicle, saved with it so that it is restored as the same
+ * subclass
+ * 
+ * @author Balasaheb
+ */
+public enum VehicleKind
+{
+	CAR((byte) 1), MOTORCYCLE((byte) 2);
+	
+	// saved form, never 0 so an empty record is not a vehicle
+	private final byte code;
+	
+	private VehicleKind(byte code)
+	{
+		this.code = code;
+	}
+	
+	/**
+	 * @return the code
+	 */
+	public byte getCode()
+	{
+		return code;
+	}
+	
+	public static VehicleKind of(Vehicle vehicle)
+	{
+		return vehicle instanceof Motorcycle ? MOTORCYCLE : CAR;
+	}
+	
+	/**
+	 * @throws IllegalArgumentException
+	 *             if no kind has the code
+	 */
+	public static VehicleKind fromCode(byte code)
+	{
+		for (VehicleKind kind : values())
+		{
+			if (kind.code == code)
+				return kind;
+		}
+		throw new IllegalArgumentException("Unknown vehicle kind: " + code);
+	}
+	
+	/**
+	 * @param sizeClass
+	 *            not used for a motorcycle, which is always
+	 *            {@link SizeClass#MOTORCYCLE}
+	 * @return new vehicle of this kind
+	 */
+	public Vehicle create(String registrationNo, String color, SizeClass sizeClass)
+	{
+		if (this == MOTORCYCLE)
+			return new Motorcycle(registrationNo, color);
+		return new Car(registrationNo, color, sizeClass);
+	}
+}
@@ -0,0 +1,62 @@
+package com.parkinglot.model.result;
+
+/**
+ * Outcome of a vehicle leaving its slot
+ * 
+ * @author Balasaheb
+ */
+public class LeaveResult
+{
+	private final int		level;
+	private final int		slotNumber;
+	// false if the slot was already empty
+	private final boolean	freed;
+	private final int		parkingFees;
+	
+	public LeaveResult(int level, int slotNumber, boolean freed, int parkingFees)
+	{
+		this.level = level;
+		this.slotNumber = slotNumber;
+		this.freed = freed;
+		this.parkingFees = parkingFees;
+	}
+	
+	/**
+	 * @return the level
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	/**
+	 * @return the slotNumber
+	 */
+	public int getSlotNumber()
+	{
+		return slotNumber;
+	}
+	
+	/**
+	 * @return the freed
+	 */
+	public boolean isFreed()
+	{
+		return freed;
+	}
+	
+	/**
+	 * @return the parkingFees
+	 */
+	public int getParkingFees()
+	{
+		return parkingFees;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "[level=" + level + ", slotNumber=" + slotNumber + ", freed=" + freed + ", parkingFees="
+				+ parkingFees + "]";
+	}
+}
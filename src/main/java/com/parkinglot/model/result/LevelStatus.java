@@ -0,0 +1,36 @@
+package com.parkinglot.model.result;
+
+import java.util.List;
+
+/**
+ * Occupied slots of a level in slot order
+ * 
+ * @author Balasaheb
+ */
+public class LevelStatus
+{
+	private final int				level;
+	private final List<SlotStatus>	slots;
+	
+	public LevelStatus(int level, List<SlotStatus> slots)
+	{
+		this.level = level;
+		this.slots = slots;
+	}
+	
+	/**
+	 * @return the level
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	/**
+	 * @return the slots
+	 */
+	public List<SlotStatus> getSlots()
+	{
+		return slots;
+	}
+}
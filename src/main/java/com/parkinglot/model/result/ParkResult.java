@@ -0,0 +1,58 @@
+package com.parkinglot.model.result;
+
+import com.parkinglot.constants.Constants;
+
+/**
+ * Outcome of parking a vehicle
+ * 
+ * @author Balasaheb
+ */
+public class ParkResult
+{
+	private final int	level;
+	// allocated slot, or Constants.NOT_AVAILABLE / Constants.VEHICLE_ALREADY_EXIST
+	private final int	slotNumber;
+	
+	public ParkResult(int level, int slotNumber)
+	{
+		this.level = level;
+		this.slotNumber = slotNumber;
+	}
+	
+	/**
+	 * @return the level
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	/**
+	 * @return the slotNumber
+	 */
+	public int getSlotNumber()
+	{
+		return slotNumber;
+	}
+	
+	public boolean isParked()
+	{
+		return slotNumber > 0;
+	}
+	
+	public boolean isLotFull()
+	{
+		return slotNumber == Constants.NOT_AVAILABLE;
+	}
+	
+	public boolean isAlreadyParked()
+	{
+		return slotNumber == Constants.VEHICLE_ALREADY_EXIST;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "[level=" + level + ", slotNumber=" + slotNumber + "]";
+	}
+}
@@ -0,0 +1,83 @@
+package com.parkinglot.model.result;
+
+import com.parkinglot.constants.Constants;
+
+/**
+ * Outcome of holding a slot for a registration
+ * 
+ * @author Balasaheb
+ */
+public class Reservation
+{
+	private final int		level;
+	// held slot, or Constants.NOT_AVAILABLE / Constants.VEHICLE_ALREADY_EXIST
+	private final int		slotNumber;
+	private final String	registrationNo;
+	// epoch milliseconds the slot is held until
+	private final long		expiryTime;
+	
+	public Reservation(int level, int slotNumber, String registrationNo, long expiryTime)
+	{
+		this.level = level;
+		this.slotNumber = slotNumber;
+		this.registrationNo = registrationNo;
+		this.expiryTime = expiryTime;
+	}
+	
+	/**
+	 * @return the level
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	/**
+	 * @return the slotNumber
+	 */
+	public int getSlotNumber()
+	{
+		return slotNumber;
+	}
+	
+	/**
+	 * @return the registrationNo
+	 */
+	public String getRegistrationNo()
+	{
+		return registrationNo;
+	}
+	
+	/**
+	 * @return the expiryTime
+	 */
+	public long getExpiryTime()
+	{
+		return expiryTime;
+	}
+	
+	public boolean isHeld()
+	{
+		return slotNumber > 0;
+	}
+	
+	public boolean isLotFull()
+	{
+		return slotNumber == Constants.NOT_AVAILABLE;
+	}
+	
+	/**
+	 * @return true if the vehicle is parked or already holds a slot
+	 */
+	public boolean isAlreadyParked()
+	{
+		return slotNumber == Constants.VEHICLE_ALREADY_EXIST;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "[level=" + level + ", slotNumber=" + slotNumber + ", registrationNo=" + registrationNo
+				+ ", expiryTime=" + expiryTime + "]";
+	}
+}
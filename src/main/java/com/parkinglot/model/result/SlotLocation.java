@@ -0,0 +1,40 @@
+package com.parkinglot.model.result;
+
+/**
+ * A slot of a given level
+ * 
+ * @author Balasaheb
+ */
+public class SlotLocation
+{
+	private final int	level;
+	private final int	slotNumber;
+	
+	public SlotLocation(int level, int slotNumber)
+	{
+		this.level = level;
+		this.slotNumber = slotNumber;
+	}
+	
+	/**
+	 * @return the level
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	/**
+	 * @return the slotNumber
+	 */
+	public int getSlotNumber()
+	{
+		return slotNumber;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "[level=" + level + ", slotNumber=" + slotNumber + "]";
+	}
+}
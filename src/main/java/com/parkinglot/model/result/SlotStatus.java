@@ -0,0 +1,50 @@
+package com.parkinglot.model.result;
+
+/**
+ * One occupied slot of a level
+ * 
+ * @author Balasaheb
+ */
+public class SlotStatus
+{
+	private final int		slotNumber;
+	private final String	registrationNo;
+	private final String	color;
+	
+	public SlotStatus(int slotNumber, String registrationNo, String color)
+	{
+		this.slotNumber = slotNumber;
+		this.registrationNo = registrationNo;
+		this.color = color;
+	}
+	
+	/**
+	 * @return the slotNumber
+	 */
+	public int getSlotNumber()
+	{
+		return slotNumber;
+	}
+	
+	/**
+	 * @return the registrationNo
+	 */
+	public String getRegistrationNo()
+	{
+		return registrationNo;
+	}
+	
+	/**
+	 * @return the color
+	 */
+	public String getColor()
+	{
+		return color;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "[slotNumber=" + slotNumber + ", registrationNo=" + registrationNo + ", color=" + color + "]";
+	}
+}
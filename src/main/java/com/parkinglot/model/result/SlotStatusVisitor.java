@@ -0,0 +1,16 @@
+package com.parkinglot.model.result;
+
+/**
+ * Receives the occupied slots of a level one at a time, in slot order, without
+ * a {@link SlotStatus} or a list being built for them
+ * 
+ * @author Balasaheb
+ */
+@FunctionalInterface
+public interface SlotStatusVisitor
+{
+	/**
+	 * @return false to stop after this slot
+	 */
+	public boolean visit(int slotNumber, String registrationNo, String color);
+}
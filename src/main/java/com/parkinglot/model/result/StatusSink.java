@@ -0,0 +1,22 @@
+package com.parkinglot.model.result;
+
+import java.io.IOException;
+
+/**
+ * Output the status of a lot is streamed to, level by level in level order and
+ * slot by slot in slot order
+ * 
+ * @author Balasaheb
+ */
+public interface StatusSink
+{
+	public void beginLevel(int level) throws IOException;
+	
+	public void slot(int slotNumber, String registrationNo, String color) throws IOException;
+	
+	/**
+	 * @param slots
+	 *            number of occupied slots streamed for the level
+	 */
+	public void endLevel(int level, int slots) throws IOException;
+}
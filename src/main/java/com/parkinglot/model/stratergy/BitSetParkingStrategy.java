@@ -0,0 +1,115 @@
+/**
+ * 
+ */
+package com.parkinglot.model.stratergy;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Nearest first allocation backed by a two level bitmap instead of a TreeSet.
+ * Bit n of {@code words} is set when slot n is free, and bit i of
+ * {@code summary} is set when {@code words[i]} has at least one free slot, so
+ * the nearest free slot is found by skipping 64 empty words at a time. Free
+ * slots cost one bit each and add/remove allocate nothing once the bitmap has
+ * grown to the lot capacity.
+ * 
+ * @author Balasaheb
+ */
+public class BitSetParkingStrategy implements ParkingStrategy
+{
+	private static final int ADDRESS_BITS = 6;
+	
+	private long[]	words;
+	private long[]	summary;
+	
+	public BitSetParkingStrategy()
+	{
+		this(64);
+	}
+	
+	/**
+	 * @param capacity
+	 *            highest slot number expected, the bitmap grows beyond it if
+	 *            needed
+	 */
+	public BitSetParkingStrategy(int capacity)
+	{
+		words = new long[wordIndex(capacity) + 1];
+		summary = new long[wordIndex(words.length - 1) + 1];
+	}
+	
+	@Override
+	public void add(int i)
+	{
+		int wordIndex = wordIndex(i);
+		ensureCapacity(wordIndex);
+		words[wordIndex] |= 1L << i;
+		summary[wordIndex(wordIndex)] |= 1L << wordIndex;
+	}
+	
+	@Override
+	public int getSlot()
+	{
+		for (int s = 0; s < summary.length; s++)
+		{
+			if (summary[s] != 0)
+			{
+				int wordIndex = (s << ADDRESS_BITS) + Long.numberOfTrailingZeros(summary[s]);
+				return (wordIndex << ADDRESS_BITS) + Long.numberOfTrailingZeros(words[wordIndex]);
+			}
+		}
+		throw new NoSuchElementException();
+	}
+	
+	@Override
+	public void removeSlot(int slot)
+	{
+		int wordIndex = wordIndex(slot);
+		if (wordIndex >= words.length)
+			return;
+		words[wordIndex] &= ~(1L << slot);
+		if (words[wordIndex] == 0)
+			summary[wordIndex(wordIndex)] &= ~(1L << wordIndex);
+	}
+	
+	/**
+	 * Takes the free slots a word at a time, nearest first
+	 */
+	@Override
+	public int claimSlots(int[] slots, int count)
+	{
+		int claimed = 0;
+		for (int s = 0; s < summary.length && claimed < count; s++)
+		{
+			while (summary[s] != 0 && claimed < count)
+			{
+				int wordIndex = (s << ADDRESS_BITS) + Long.numberOfTrailingZeros(summary[s]);
+				long word = words[wordIndex];
+				while (word != 0 && claimed < count)
+				{
+					slots[claimed++] = (wordIndex << ADDRESS_BITS) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+				}
+				words[wordIndex] = word;
+				if (word == 0)
+					summary[s] &= ~(1L << wordIndex);
+			}
+		}
+		return claimed;
+	}
+	
+	private void ensureCapacity(int wordIndex)
+	{
+		if (wordIndex < words.length)
+			return;
+		int length = Math.max(words.length << 1, wordIndex + 1);
+		words = Arrays.copyOf(words, length);
+		summary = Arrays.copyOf(summary, wordIndex(length - 1) + 1);
+	}
+	
+	private static int wordIndex(int bitIndex)
+	{
+		return bitIndex >> ADDRESS_BITS;
+	}
+}
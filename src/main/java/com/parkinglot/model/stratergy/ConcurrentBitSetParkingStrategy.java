@@ -0,0 +1,200 @@
+/**
+ * 
+ */
+package com.parkinglot.model.stratergy;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe variant of {@link BitSetParkingStrategy} for a fixed capacity.
+ * A free slot is claimed by a CAS that clears its bit, so concurrent callers of
+ * {@link #claimSlot()} never receive the same slot. The summary bitmap is only
+ * a hint: a set summary bit may point at an empty word (it is cleared when
+ * seen), and a cleared summary bit is re-set whenever the word it covers
+ * turns out to be non empty.
+ * 
+ * @author Balasaheb
+ */
+public class ConcurrentBitSetParkingStrategy implements ParkingStrategy
+{
+	private static final int ADDRESS_BITS = 6;
+	
+	private final AtomicLongArray	words;
+	private final AtomicLongArray	summary;
+	
+	/**
+	 * @param capacity
+	 *            highest slot number
+	 */
+	public ConcurrentBitSetParkingStrategy(int capacity)
+	{
+		words = new AtomicLongArray(wordIndex(capacity) + 1);
+		summary = new AtomicLongArray(wordIndex(words.length() - 1) + 1);
+	}
+	
+	@Override
+	public void add(int i)
+	{
+		int wordIndex = wordIndex(i);
+		setBit(words, wordIndex, 1L << i);
+		setBit(summary, wordIndex(wordIndex), 1L << wordIndex);
+	}
+	
+	@Override
+	public int getSlot()
+	{
+		int wordIndex = firstWord();
+		if (wordIndex < 0)
+			throw new NoSuchElementException();
+		return (wordIndex << ADDRESS_BITS) + Long.numberOfTrailingZeros(words.get(wordIndex));
+	}
+	
+	@Override
+	public void removeSlot(int slot)
+	{
+		claimSlot(slot);
+	}
+	
+	/**
+	 * Claims the given slot with a CAS on its word.
+	 * 
+	 * @return true if the slot was free and is now claimed by this call
+	 */
+	public boolean claimSlot(int slot)
+	{
+		int wordIndex = wordIndex(slot);
+		long word;
+		do
+		{
+			word = words.get(wordIndex);
+			if ((word & (1L << slot)) == 0)
+				return false;
+		}
+		while (!words.compareAndSet(wordIndex, word, word & ~(1L << slot)));
+		if (word == (1L << slot))
+			clearSummary(wordIndex);
+		return true;
+	}
+	
+	/**
+	 * Claims the nearest free slot with a CAS on its word.
+	 * 
+	 * @return claimed slot
+	 * @throws NoSuchElementException
+	 *             if no slot is free
+	 */
+	@Override
+	public int claimSlot()
+	{
+		return claimSlot(false);
+	}
+	
+	/**
+	 * Claims the nearest free slot for a caller holding an availability permit,
+	 * which guarantees that a slot is free. A slot freed behind the scan is
+	 * missed by it, so the bitmap is scanned again until a slot is claimed.
+	 * 
+	 * @return claimed slot
+	 */
+	public int claimPermittedSlot()
+	{
+		return claimSlot(true);
+	}
+	
+	private int claimSlot(boolean permitted)
+	{
+		while (true)
+		{
+			int wordIndex = firstWord();
+			if (wordIndex < 0)
+			{
+				if (permitted || !isSummaryEmpty())
+					continue;
+				throw new NoSuchElementException();
+			}
+			long word = words.get(wordIndex);
+			if (word == 0)
+				continue;
+			long bit = Long.lowestOneBit(word);
+			if (words.compareAndSet(wordIndex, word, word & ~bit))
+			{
+				if (word == bit)
+					clearSummary(wordIndex);
+				return (wordIndex << ADDRESS_BITS) + Long.numberOfTrailingZeros(bit);
+			}
+		}
+	}
+	
+	/**
+	 * @return index of the first word with a free slot, -1 if there is none
+	 */
+	private int firstWord()
+	{
+		for (int s = 0; s < summary.length(); s++)
+		{
+			long summaryWord;
+			while ((summaryWord = summary.get(s)) != 0)
+			{
+				int wordIndex = (s << ADDRESS_BITS) + Long.numberOfTrailingZeros(summaryWord);
+				if (words.get(wordIndex) != 0)
+					return wordIndex;
+				clearSummary(wordIndex);
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * @return false if a slot was freed in a summary word the last scan had
+	 *         already passed
+	 */
+	private boolean isSummaryEmpty()
+	{
+		for (int s = 0; s < summary.length(); s++)
+		{
+			if (summary.get(s) != 0)
+				return false;
+		}
+		return true;
+	}
+	
+	private void clearSummary(int wordIndex)
+	{
+		int summaryIndex = wordIndex(wordIndex);
+		long bit = 1L << wordIndex;
+		clearBit(summary, summaryIndex, bit);
+		// a slot may have been freed in this word after it was seen empty
+		if (words.get(wordIndex) != 0)
+			setBit(summary, summaryIndex, bit);
+	}
+	
+	private static void setBit(AtomicLongArray array, int index, long bit)
+	{
+		long value;
+		do
+		{
+			value = array.get(index);
+			if ((value & bit) != 0)
+				return;
+		}
+		while (!array.compareAndSet(index, value, value | bit));
+	}
+	
+	private static void clearBit(AtomicLongArray array, int index, long bit)
+	{
+		long value;
+		do
+		{
+			value = array.get(index);
+			if ((value & bit) == 0)
+				return;
+		}
+		while (!array.compareAndSet(index, value, value & ~bit));
+	}
+	
+	private static int wordIndex(int bitIndex)
+	{
+		return bitIndex >> ADDRESS_BITS;
+	}
+}
@@ -35,4 +35,15 @@ public class NearestFirstParkingStrategy implements ParkingStrategy
 	{
 		freeSlots.remove(availableSlot);
 	}
+	
+	@Override
+	public int claimSlots(int[] slots, int count)
+	{
+		int claimed = 0;
+		while (claimed < count && !freeSlots.isEmpty())
+		{
+			slots[claimed++] = freeSlots.pollFirst();
+		}
+		return claimed;
+	}
 }
@@ -1,5 +1,9 @@
 package com.parkinglot.model.stratergy;
 
+import java.util.NoSuchElementException;
+
+import com.parkinglot.model.SizeClass;
+
 /**
  * @author Balasaheb
  *
@@ -11,4 +15,66 @@ public interface ParkingStrategy
 	public int getSlot();
 	
 	public void removeSlot(int slot);
+	
+	/**
+	 * Takes the next slot out of the free slots. Implementations used without
+	 * an external lock must make this atomic so that a slot is never handed
+	 * out twice.
+	 * 
+	 * @return claimed slot
+	 */
+	public default int claimSlot()
+	{
+		int slot = getSlot();
+		removeSlot(slot);
+		return slot;
+	}
+	
+	/**
+	 * Takes the next free slot a vehicle of the size class fits in. Without
+	 * size classes every vehicle fits every slot.
+	 * 
+	 * @return claimed slot, Constants.NOT_AVAILABLE if no free slot fits
+	 */
+	public default int claimSlot(SizeClass sizeClass)
+	{
+		return claimSlot();
+	}
+	
+	/**
+	 * @return true if the slots have size classes, the slots of a batch are
+	 *         then claimed vehicle by vehicle instead of with
+	 *         {@link #claimSlots(int[], int)}
+	 */
+	public default boolean hasSizeClasses()
+	{
+		return false;
+	}
+	
+	/**
+	 * Takes up to count of the next free slots out of the free slots, in the
+	 * order {@link #claimSlot()} would, for a batch of vehicles parked under
+	 * one lock
+	 * 
+	 * @param slots
+	 *            receives the claimed slots from index 0
+	 * @return number of slots claimed, less than count if fewer were free
+	 */
+	public default int claimSlots(int[] slots, int count)
+	{
+		int claimed = 0;
+		try
+		{
+			while (claimed < count)
+			{
+				slots[claimed] = claimSlot();
+				claimed++;
+			}
+		}
+		catch (NoSuchElementException e)
+		{
+			// no free slot left
+		}
+		return claimed;
+	}
 }
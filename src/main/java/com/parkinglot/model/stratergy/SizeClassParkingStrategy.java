@@ -0,0 +1,109 @@
+package com.parkinglot.model.stratergy;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+import com.parkinglot.constants.Constants;
+import com.parkinglot.model.SizeClass;
+
+/**
+ * Nearest first allocation for a level whose slots have size classes. The
+ * free slots of each size class are kept in a pool of their own, so a vehicle
+ * gets the nearest free slot of its size class, or of the next larger class
+ * with a free slot, by looking at no more than one pool per size class
+ * however fragmented the level is: O(log n).
+ * 
+ * @author Balasaheb
+ */
+public class SizeClassParkingStrategy implements ParkingStrategy
+{
+	private static final SizeClass[]		SIZE_CLASSES	= SizeClass.values();
+	// slot whose size class was not looked up yet
+	private static final byte				UNKNOWN			= -1;
+	
+	private final IntFunction<SizeClass>	slotSizes;
+	// free slots per size class
+	private final TreeSet<Integer>[]		pools;
+	// size class per slot, looked up once
+	private byte[]							slotClasses		= new byte[0];
+	
+	/**
+	 * @param slotSizes
+	 *            size class of a slot number, the same for every level, e.g.
+	 *            {@code slot -> slot <= 20 ? SizeClass.MOTORCYCLE : SizeClass.STANDARD}
+	 */
+	@SuppressWarnings("unchecked")
+	public SizeClassParkingStrategy(IntFunction<SizeClass> slotSizes)
+	{
+		this.slotSizes = slotSizes;
+		this.pools = new TreeSet[SIZE_CLASSES.length];
+		for (int i = 0; i < pools.length; i++)
+		{
+			pools[i] = new TreeSet<>();
+		}
+	}
+	
+	@Override
+	public void add(int i)
+	{
+		pools[getSizeClass(i)].add(i);
+	}
+	
+	/**
+	 * @return nearest free slot of any size class
+	 */
+	@Override
+	public int getSlot()
+	{
+		int nearest = Integer.MAX_VALUE;
+		for (TreeSet<Integer> pool : pools)
+		{
+			if (!pool.isEmpty())
+				nearest = Math.min(nearest, pool.first());
+		}
+		if (nearest == Integer.MAX_VALUE)
+			throw new NoSuchElementException();
+		return nearest;
+	}
+	
+	@Override
+	public void removeSlot(int slot)
+	{
+		pools[getSizeClass(slot)].remove(slot);
+	}
+	
+	@Override
+	public int claimSlot(SizeClass sizeClass)
+	{
+		for (int i = sizeClass.ordinal(); i < pools.length; i++)
+		{
+			if (!pools[i].isEmpty())
+				return pools[i].pollFirst();
+		}
+		return Constants.NOT_AVAILABLE;
+	}
+	
+	@Override
+	public boolean hasSizeClasses()
+	{
+		return true;
+	}
+	
+	/**
+	 * @return ordinal of the size class of the slot
+	 */
+	private int getSizeClass(int slot)
+	{
+		if (slot >= slotClasses.length)
+		{
+			int length = slotClasses.length;
+			slotClasses = Arrays.copyOf(slotClasses, Math.max(slot + 1, length * 2));
+			Arrays.fill(slotClasses, length, slotClasses.length, UNKNOWN);
+		}
+		if (slotClasses[slot] == UNKNOWN)
+			slotClasses[slot] = (byte) slotSizes.apply(slot).ordinal();
+		return slotClasses[slot];
+	}
+}
@@ -0,0 +1,27 @@
+package com.parkinglot.persistence;
+
+import java.io.IOException;
+
+import com.parkinglot.model.Vehicle;
+
+/**
+ * Receives the saved parking events, in order, when a snapshot and the
+ * journal after it are replayed
+ * 
+ * @author Balasaheb
+ */
+public interface ParkingEventHandler
+{
+	public void onCreate(int[] levels, int[] capacities) throws IOException;
+	
+	/**
+	 * @param vehicle
+	 *            restored as the subclass and size class it was parked as,
+	 *            with its parking time
+	 */
+	public void onPark(int level, int slotNumber, Vehicle vehicle) throws IOException;
+	
+	public void onLeave(int level, int slotNumber) throws IOException;
+	
+	public void onCleanup() throws IOException;
+}
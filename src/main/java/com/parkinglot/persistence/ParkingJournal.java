@@ -0,0 +1,547 @@
+package com.parkinglot.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import com.parkinglot.model.SizeClass;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.VehicleKind;
+
+/**
+ * Append only journal of the parking events, written with group commit.
+ * 
+ * Callers append a record into an in-memory buffer and get its sequence
+ * number back; a flusher thread writes everything appended so far in one write
+ * and one fsync, then wakes the callers waiting in
+ * {@link #awaitDurable(long)}. Callers append while holding the lock of the
+ * level they change, so the journal has the same order as the changes, and
+ * wait after releasing it, so the records of concurrent callers share an
+ * fsync.
+ * 
+ * The journal is split in segments named after the sequence number of their
+ * first record. {@link #rotate()} starts a new segment so that the ones before
+ * a snapshot can be deleted. Each record is
+ * {@code [int length][int crc32][payload]}; a torn record at the end of the
+ * last segment, left by a crash during a write, is dropped on replay.
+ * 
+ * @author Balasaheb
+ */
+public class ParkingJournal implements Closeable
+{
+	static final int			MAGIC			= 0x504C4A32;						// PLJ2
+	static final byte			CREATE			= 1;
+	static final byte			PARK			= 2;
+	static final byte			LEAVE			= 3;
+	static final byte			CLEANUP			= 4;
+	
+	private static final String	PREFIX			= "journal-";
+	private static final String	SUFFIX			= ".log";
+	private static final int	HEADER_SIZE		= 4;
+	private static final int	RECORD_HEADER	= 8;
+	private static final int	INITIAL_BUFFER	= 1 << 16;
+	
+	private final Path			directory;
+	private final boolean		fsync;
+	private final ReentrantLock	lock			= new ReentrantLock();
+	private final Condition		recordsPending	= lock.newCondition();
+	private final Condition		recordsFlushed	= lock.newCondition();
+	private final CRC32			crc				= new CRC32();
+	private final Thread		flusher;
+	
+	// records appended since the last flush, swapped with writing by the flusher
+	private ByteBuffer			pending			= ByteBuffer.allocate(INITIAL_BUFFER);
+	private ByteBuffer			writing			= ByteBuffer.allocate(INITIAL_BUFFER);
+	private FileChannel			channel;
+	// sequence number of the next record
+	private long				nextSequence;
+	// records before this sequence number are on disk
+	private long				durableSequence;
+	private boolean				flushing;
+	private boolean				closed;
+	private IOException			failure;
+	
+	/**
+	 * Opens a new segment starting at the given sequence number
+	 * 
+	 * @param fsync
+	 *            force each group of records to disk, otherwise they are only
+	 *            written to the file
+	 */
+	public ParkingJournal(Path directory, long nextSequence, boolean fsync) throws IOException
+	{
+		this.directory = directory;
+		this.fsync = fsync;
+		this.nextSequence = nextSequence;
+		this.durableSequence = nextSequence;
+		Files.createDirectories(directory);
+		this.channel = openSegment(nextSequence);
+		this.flusher = new Thread(this::flushLoop, "parking-journal");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+	
+	private FileChannel openSegment(long firstSequence) throws IOException
+	{
+		FileChannel segment = FileChannel.open(segmentPath(directory, firstSequence), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC);
+		header.flip();
+		while (header.hasRemaining())
+		{
+			segment.write(header);
+		}
+		return segment;
+	}
+	
+	private static Path segmentPath(Path directory, long firstSequence)
+	{
+		return directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+	}
+	
+	/**
+	 * @return sequence number of the record
+	 */
+	public long appendCreate(int[] levels, int[] capacities)
+	{
+		lock.lock();
+		try
+		{
+			int start = beginRecord(1 + 4 + 8 * levels.length);
+			pending.put(CREATE).putInt(levels.length);
+			for (int i = 0; i < levels.length; i++)
+			{
+				pending.putInt(levels[i]).putInt(capacities[i]);
+			}
+			return endRecord(start);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @param parkedAt
+	 *            parking time in epoch milliseconds
+	 * @return sequence number of the record
+	 */
+	public long appendPark(int level, int slotNumber, VehicleKind kind, SizeClass sizeClass, String registrationNo,
+			String color, long parkedAt)
+	{
+		byte[] registration = PersistenceCodec.encode(registrationNo);
+		byte[] colour = PersistenceCodec.encode(color);
+		lock.lock();
+		try
+		{
+			int start = beginRecord(
+					1 + 4 + 4 + 8 + 1 + 1 + PersistenceCodec.size(registration) + PersistenceCodec.size(colour));
+			pending.put(PARK).putInt(level).putInt(slotNumber).putLong(parkedAt);
+			pending.put(kind.getCode()).put((byte) sizeClass.ordinal());
+			PersistenceCodec.putString(pending, registration);
+			PersistenceCodec.putString(pending, colour);
+			return endRecord(start);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return sequence number of the record
+	 */
+	public long appendLeave(int level, int slotNumber)
+	{
+		lock.lock();
+		try
+		{
+			int start = beginRecord(1 + 4 + 4);
+			pending.put(LEAVE).putInt(level).putInt(slotNumber);
+			return endRecord(start);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return sequence number of the record
+	 */
+	public long appendCleanup()
+	{
+		lock.lock();
+		try
+		{
+			int start = beginRecord(1);
+			pending.put(CLEANUP);
+			return endRecord(start);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Writes the record header, the checksum is filled in by endRecord
+	 * 
+	 * @return position of the payload
+	 */
+	private int beginRecord(int payloadSize)
+	{
+		if (pending.remaining() < RECORD_HEADER + payloadSize)
+		{
+			int capacity = Math.max(pending.capacity() * 2, pending.position() + RECORD_HEADER + payloadSize);
+			ByteBuffer grown = ByteBuffer.allocate(capacity);
+			pending.flip();
+			grown.put(pending);
+			pending = grown;
+		}
+		pending.putInt(payloadSize).putInt(0);
+		return pending.position();
+	}
+	
+	private long endRecord(int start)
+	{
+		crc.reset();
+		crc.update(pending.array(), start, pending.position() - start);
+		pending.putInt(start - 4, (int) crc.getValue());
+		recordsPending.signal();
+		return nextSequence++;
+	}
+	
+	private void flushLoop()
+	{
+		while (true)
+		{
+			ByteBuffer buffer;
+			FileChannel segment;
+			long flushedSequence;
+			lock.lock();
+			try
+			{
+				while (pending.position() == 0 && !closed)
+				{
+					recordsPending.awaitUninterruptibly();
+				}
+				if (pending.position() == 0)
+					return;
+				buffer = pending;
+				pending = writing;
+				writing = buffer;
+				segment = channel;
+				flushedSequence = nextSequence;
+				flushing = true;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			IOException error = null;
+			try
+			{
+				buffer.flip();
+				while (buffer.hasRemaining())
+				{
+					segment.write(buffer);
+				}
+				if (fsync)
+					segment.force(false);
+			}
+			catch (IOException e)
+			{
+				error = e;
+			}
+			buffer.clear();
+			lock.lock();
+			try
+			{
+				flushing = false;
+				if (error != null)
+				{
+					failure = error;
+					closed = true;
+				}
+				else
+					durableSequence = flushedSequence;
+				recordsFlushed.signalAll();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			if (error != null)
+				return;
+		}
+	}
+	
+	/**
+	 * Waits until the record, and every record before it, is on disk
+	 * 
+	 * @throws IOException
+	 *             if the journal could not be written
+	 */
+	public void awaitDurable(long sequence) throws IOException
+	{
+		lock.lock();
+		try
+		{
+			while (durableSequence <= sequence && failure == null)
+			{
+				recordsFlushed.awaitUninterruptibly();
+			}
+			if (durableSequence <= sequence)
+				throw new IOException("Parking journal write failed", failure);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Flushes the current segment and starts a new one. The caller must stop
+	 * appends while rotating so that the returned sequence number splits the
+	 * events the way its snapshot does.
+	 * 
+	 * @return sequence number of the first record of the new segment
+	 */
+	public long rotate() throws IOException
+	{
+		lock.lock();
+		try
+		{
+			while ((flushing || durableSequence < nextSequence) && failure == null)
+			{
+				recordsFlushed.awaitUninterruptibly();
+			}
+			if (failure != null)
+				throw new IOException("Parking journal write failed", failure);
+			channel.close();
+			channel = openSegment(nextSequence);
+			return nextSequence;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return sequence number of the next record
+	 */
+	public long getNextSequence()
+	{
+		lock.lock();
+		try
+		{
+			return nextSequence;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Deletes the segments holding only records before the given sequence
+	 * number
+	 */
+	public void deleteSegmentsBefore(long sequence) throws IOException
+	{
+		TreeMap<Long, Path> segments = listSegments(directory);
+		for (Long firstSequence : segments.headMap(sequence).keySet())
+		{
+			// A segment ends where the next one starts
+			Long next = segments.higherKey(firstSequence);
+			if (next != null && next <= sequence)
+				Files.deleteIfExists(segments.get(firstSequence));
+		}
+	}
+	
+	/**
+	 * Flushes the pending records and closes the current segment
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		lock.lock();
+		try
+		{
+			closed = true;
+			recordsPending.signal();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		try
+		{
+			flusher.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		if (failure != null)
+			throw new IOException("Parking journal write failed", failure);
+	}
+	
+	private static TreeMap<Long, Path> listSegments(Path directory) throws IOException
+	{
+		TreeMap<Long, Path> segments = new TreeMap<>();
+		if (!Files.isDirectory(directory))
+			return segments;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX))
+		{
+			for (Path file : files)
+			{
+				String name = file.getFileName().toString();
+				segments.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), file);
+			}
+		}
+		return segments;
+	}
+	
+	/**
+	 * Replays the records from the given sequence number on. A torn record at
+	 * the end of the journal is cut off so that the file ends on a whole
+	 * record.
+	 * 
+	 * @return sequence number after the last record replayed
+	 * @throws IOException
+	 *             if a segment is missing or damaged before its end
+	 */
+	public static long replay(Path directory, long fromSequence, ParkingEventHandler handler) throws IOException
+	{
+		long sequence = fromSequence;
+		TreeMap<Long, Path> segments = listSegments(directory);
+		// Start with the segment holding fromSequence
+		Long first = segments.floorKey(fromSequence);
+		if (first != null)
+			segments = new TreeMap<>(segments.tailMap(first));
+		for (Map.Entry<Long, Path> segment : segments.entrySet())
+		{
+			long segmentSequence = segment.getKey();
+			if (segmentSequence > sequence)
+				throw new IOException("Parking journal segment missing before sequence " + segmentSequence);
+			boolean last = segmentSequence == segments.lastKey();
+			long end = replaySegment(segment.getValue(), segmentSequence, sequence, handler, last);
+			sequence = Math.max(sequence, end);
+		}
+		return sequence;
+	}
+	
+	/**
+	 * @return sequence number after the last record of the segment
+	 */
+	private static long replaySegment(Path segment, long sequence, long fromSequence, ParkingEventHandler handler,
+			boolean last) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+		// A crash right after the last segment was created may leave its header torn
+		if (buffer.remaining() < HEADER_SIZE && last)
+			return sequence;
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+			throw new IOException("Not a parking journal: " + segment);
+		CRC32 checksum = new CRC32();
+		while (buffer.hasRemaining())
+		{
+			int recordStart = buffer.position();
+			boolean whole = buffer.remaining() >= RECORD_HEADER;
+			int length = whole ? buffer.getInt() : 0;
+			int expectedCrc = whole ? buffer.getInt() : 0;
+			whole = whole && length > 0 && buffer.remaining() >= length;
+			if (whole)
+			{
+				checksum.reset();
+				checksum.update(buffer.array(), buffer.position(), length);
+				whole = (int) checksum.getValue() == expectedCrc;
+			}
+			if (!whole)
+			{
+				if (!last)
+					throw new IOException("Parking journal damaged at sequence " + sequence + ": " + segment);
+				truncate(segment, recordStart);
+				break;
+			}
+			ByteBuffer payload = (ByteBuffer) buffer.slice().limit(length);
+			buffer.position(buffer.position() + length);
+			if (sequence >= fromSequence)
+				dispatch(payload, handler, sequence);
+			sequence++;
+		}
+		return sequence;
+	}
+	
+	private static void dispatch(ByteBuffer payload, ParkingEventHandler handler, long sequence) throws IOException
+	{
+		try
+		{
+			byte type = payload.get();
+			switch (type)
+			{
+				case CREATE:
+					int count = payload.getInt();
+					int[] levels = new int[count];
+					int[] capacities = new int[count];
+					for (int i = 0; i < count; i++)
+					{
+						levels[i] = payload.getInt();
+						capacities[i] = payload.getInt();
+					}
+					handler.onCreate(levels, capacities);
+					break;
+				case PARK:
+					int level = payload.getInt();
+					int slotNumber = payload.getInt();
+					long parkedAt = payload.getLong();
+					VehicleKind kind = VehicleKind.fromCode(payload.get());
+					SizeClass sizeClass = SizeClass.fromOrdinal(payload.get());
+					String registrationNo = PersistenceCodec.getString(payload);
+					Vehicle vehicle = kind.create(registrationNo, PersistenceCodec.getString(payload), sizeClass);
+					vehicle.setParkingTime(parkedAt);
+					handler.onPark(level, slotNumber, vehicle);
+					break;
+				case LEAVE:
+					handler.onLeave(payload.getInt(), payload.getInt());
+					break;
+				case CLEANUP:
+					handler.onCleanup();
+					break;
+				default:
+					throw new IOException("Unknown parking journal record " + type + " at sequence " + sequence);
+			}
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException("Parking journal record too short at sequence " + sequence, e);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("Parking journal record damaged at sequence " + sequence, e);
+		}
+	}
+	
+	private static void truncate(Path segment, long size) throws IOException
+	{
+		try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE))
+		{
+			file.truncate(size);
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package com.parkinglot.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.VehicleKind;
+
+/**
+ * Saves the state of a parking lot in a directory as the latest snapshot plus
+ * the journal of the events after it.
+ * 
+ * <ul>
+ * <li>{@link #recover(ParkingEventHandler)} replays the latest snapshot and the
+ * journal tail, then opens a new journal segment</li>
+ * <li>every change is appended with the log methods, and the caller waits for
+ * it with {@link #awaitDurable(long)} once it has released its locks</li>
+ * <li>once {@code snapshotInterval} records were appended since the last
+ * snapshot, {@link #isSnapshotDue()} is set and the owner takes a snapshot on
+ * the background thread of {@link #scheduleSnapshot(SnapshotTask)}, a failure
+ * there is thrown by the next {@link #checkSnapshotFailure()} or
+ * {@link #close()}</li>
+ * </ul>
+ * 
+ * @author Balasaheb
+ */
+public class ParkingPersistence implements Closeable
+{
+	public static final int			DEFAULT_SNAPSHOT_INTERVAL	= 100_000;
+	
+	private static final String		SNAPSHOT_PREFIX				= "snapshot-";
+	private static final String		SNAPSHOT_SUFFIX				= ".bin";
+	
+	private final Path				directory;
+	private final boolean			fsync;
+	private final int				snapshotInterval;
+	private final AtomicBoolean		snapshotScheduled			= new AtomicBoolean();
+	// failure of a background snapshot not yet thrown to the owner
+	private final AtomicReference<Exception>	snapshotFailure	= new AtomicReference<>();
+	private final ExecutorService	snapshotExecutor;
+	private ParkingJournal			journal;
+	private volatile long			snapshotSequence;
+	
+	/**
+	 * Takes and saves a snapshot, run on the snapshot thread
+	 */
+	@FunctionalInterface
+	public interface SnapshotTask
+	{
+		void run() throws IOException;
+	}
+	
+	public ParkingPersistence(Path directory)
+	{
+		this(directory, true, DEFAULT_SNAPSHOT_INTERVAL);
+	}
+	
+	/**
+	 * @param fsync
+	 *            force the journal to disk before a change is acknowledged,
+	 *            otherwise it is only written to the file
+	 * @param snapshotInterval
+	 *            number of journal records after which a snapshot is taken
+	 */
+	public ParkingPersistence(Path directory, boolean fsync, int snapshotInterval)
+	{
+		this.directory = directory;
+		this.fsync = fsync;
+		this.snapshotInterval = snapshotInterval;
+		this.snapshotExecutor = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "parking-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Replays the saved state and opens the journal for new events. Must be
+	 * called once, before anything is logged.
+	 * 
+	 * @return number of journal records replayed after the snapshot
+	 */
+	public long recover(ParkingEventHandler handler) throws IOException
+	{
+		if (journal != null)
+			throw new IllegalStateException("Parking state already recovered");
+		Files.createDirectories(directory);
+		TreeMap<Long, Path> snapshots = listSnapshots();
+		long sequence = 0;
+		if (!snapshots.isEmpty())
+			sequence = ParkingSnapshot.read(snapshots.lastEntry().getValue(), handler);
+		snapshotSequence = sequence;
+		long nextSequence = ParkingJournal.replay(directory, sequence, handler);
+		journal = new ParkingJournal(directory, nextSequence, fsync);
+		return nextSequence - sequence;
+	}
+	
+	public long logCreate(int[] levels, int[] capacities)
+	{
+		return journal.appendCreate(levels, capacities);
+	}
+	
+	public long logPark(int level, int slotNumber, Vehicle vehicle)
+	{
+		return journal.appendPark(level, slotNumber, VehicleKind.of(vehicle), vehicle.getSizeClass(),
+				vehicle.getRegistrationNo(), vehicle.getColor(), vehicle.getParkingTime());
+	}
+	
+	public long logLeave(int level, int slotNumber)
+	{
+		return journal.appendLeave(level, slotNumber);
+	}
+	
+	public long logCleanup()
+	{
+		return journal.appendCleanup();
+	}
+	
+	/**
+	 * @see ParkingJournal#awaitDurable(long)
+	 */
+	public void awaitDurable(long sequence) throws IOException
+	{
+		journal.awaitDurable(sequence);
+	}
+	
+	public boolean isSnapshotDue()
+	{
+		return journal.getNextSequence() - snapshotSequence >= snapshotInterval;
+	}
+	
+	/**
+	 * Runs the snapshot task on the snapshot thread unless one is already
+	 * scheduled. If it fails the failure is kept for
+	 * {@link #checkSnapshotFailure()}, the journal still holds every change.
+	 */
+	public void scheduleSnapshot(SnapshotTask snapshotTask)
+	{
+		if (!snapshotScheduled.compareAndSet(false, true))
+			return;
+		snapshotExecutor.execute(() -> {
+			try
+			{
+				snapshotTask.run();
+			}
+			catch (IOException | RuntimeException e)
+			{
+				snapshotFailure.compareAndSet(null, e);
+			}
+			finally
+			{
+				snapshotScheduled.set(false);
+			}
+		});
+	}
+	
+	/**
+	 * Throws the first failure of a background snapshot since the last call
+	 * 
+	 * @throws IOException
+	 *             caused by the failure
+	 */
+	public void checkSnapshotFailure() throws IOException
+	{
+		Exception failure = snapshotFailure.getAndSet(null);
+		if (failure != null)
+			throw new IOException("Background snapshot failed", failure);
+	}
+	
+	/**
+	 * Starts a new journal segment. The caller must stop all changes until it
+	 * has captured the snapshot at the returned sequence number.
+	 * 
+	 * @return sequence number of the snapshot
+	 */
+	public long beginSnapshot() throws IOException
+	{
+		return journal.rotate();
+	}
+	
+	/**
+	 * Saves the snapshot, then deletes the older snapshots and the journal
+	 * segments it covers
+	 */
+	public void writeSnapshot(ParkingSnapshot snapshot) throws IOException
+	{
+		Path file = snapshotPath(snapshot.getSequence());
+		Path temporary = directory.resolve(file.getFileName() + ".tmp");
+		snapshot.write(temporary);
+		Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		// the new name must be on disk before what it replaces is deleted
+		forceDirectory();
+		snapshotSequence = snapshot.getSequence();
+		for (Path older : listSnapshots().headMap(snapshot.getSequence()).values())
+		{
+			Files.deleteIfExists(older);
+		}
+		journal.deleteSegmentsBefore(snapshot.getSequence());
+	}
+	
+	/**
+	 * Flushes the directory entries, e.g. a rename, to disk
+	 */
+	private void forceDirectory() throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+		{
+			channel.force(true);
+		}
+	}
+	
+	private Path snapshotPath(long sequence)
+	{
+		return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+	}
+	
+	private TreeMap<Long, Path> listSnapshots() throws IOException
+	{
+		TreeMap<Long, Path> snapshots = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+				SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX))
+		{
+			for (Path file : files)
+			{
+				String name = file.getFileName().toString();
+				snapshots.put(Long.parseLong(
+						name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())), file);
+			}
+		}
+		return snapshots;
+	}
+	
+	/**
+	 * Waits for a running snapshot and flushes the journal
+	 * 
+	 * @throws IOException
+	 *             also if a background snapshot failed and was not yet thrown
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		snapshotExecutor.shutdown();
+		try
+		{
+			snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		if (journal != null)
+			journal.close();
+		checkSnapshotFailure();
+	}
+}
@@ -0,0 +1,248 @@
+package com.parkinglot.persistence;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import com.parkinglot.model.ColorDictionary;
+import com.parkinglot.model.Vehicle;
+
+/**
+ * State of a parking lot at a journal sequence number, in the compact binary
+ * form it is saved in:
+ * 
+ * <pre>
+ * int magic, long sequence, int levels, levels x (int level, int capacity)
+ * int colours, colours x (unsigned short length, UTF-8 colour)
+ * levels x (int vehicles, vehicles x (int slot, {@link VehicleCodec} vehicle))
+ * long crc32
+ * </pre>
+ * 
+ * The colours are those of the vehicles, in the order of the ids in the
+ * {@link ColorDictionary} the vehicles are written with, so the ids read back
+ * to the same colours in another process. The vehicles are captured while the lot is locked and
+ * written after it is unlocked.
+ * 
+ * @author Balasaheb
+ */
+public class ParkingSnapshot
+{
+	static final int			MAGIC		= 0x504C5334;	// PLS4
+	
+	private static final int	BUFFER_SIZE	= 1 << 16;
+	
+	private final long			sequence;
+	private final int[]			levels;
+	private final int[]			capacities;
+	private final int[][]		slots;
+	private final Vehicle[][]	vehicles;
+	private final int[]			counts;
+	
+	/**
+	 * @param sequence
+	 *            sequence number of the first journal record not included
+	 */
+	public ParkingSnapshot(long sequence, int[] levels, int[] capacities)
+	{
+		this.sequence = sequence;
+		this.levels = levels;
+		this.capacities = capacities;
+		this.slots = new int[levels.length][];
+		this.vehicles = new Vehicle[levels.length][];
+		this.counts = new int[levels.length];
+		for (int i = 0; i < levels.length; i++)
+		{
+			slots[i] = new int[16];
+			vehicles[i] = new Vehicle[16];
+		}
+	}
+	
+	/**
+	 * @param levelIndex
+	 *            index of the level in the levels given to the constructor
+	 */
+	public void add(int levelIndex, int slotNumber, Vehicle vehicle)
+	{
+		int count = counts[levelIndex];
+		if (count == slots[levelIndex].length)
+		{
+			slots[levelIndex] = Arrays.copyOf(slots[levelIndex], count * 2);
+			vehicles[levelIndex] = Arrays.copyOf(vehicles[levelIndex], count * 2);
+		}
+		slots[levelIndex][count] = slotNumber;
+		vehicles[levelIndex][count] = vehicle;
+		counts[levelIndex] = count + 1;
+	}
+	
+	/**
+	 * @return the sequence
+	 */
+	public long getSequence()
+	{
+		return sequence;
+	}
+	
+	/**
+	 * Writes the snapshot and forces it to disk
+	 */
+	public void write(Path file) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		// Only the colours of the saved vehicles are saved
+		ColorDictionary colors = new ColorDictionary();
+		for (int i = 0; i < levels.length; i++)
+		{
+			for (int v = 0; v < counts[i]; v++)
+			{
+				colors.getId(vehicles[i][v].getColor());
+			}
+		}
+		VehicleCodec codec = new VehicleCodec(colors);
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			buffer.putInt(MAGIC);
+			buffer.putLong(sequence);
+			buffer.putInt(levels.length);
+			for (int i = 0; i < levels.length; i++)
+			{
+				buffer = ensureRemaining(channel, buffer, crc, 8);
+				buffer.putInt(levels[i]);
+				buffer.putInt(capacities[i]);
+			}
+			int colorCount = colors.size();
+			buffer = ensureRemaining(channel, buffer, crc, 4);
+			buffer.putInt(colorCount);
+			for (int id = 0; id < colorCount; id++)
+			{
+				byte[] color = PersistenceCodec.encode(colors.getColor(id));
+				buffer = ensureRemaining(channel, buffer, crc, PersistenceCodec.size(color));
+				PersistenceCodec.putString(buffer, color);
+			}
+			for (int i = 0; i < levels.length; i++)
+			{
+				buffer = ensureRemaining(channel, buffer, crc, 4);
+				buffer.putInt(counts[i]);
+				for (int v = 0; v < counts[i]; v++)
+				{
+					Vehicle vehicle = vehicles[i][v];
+					buffer = ensureRemaining(channel, buffer, crc, 4 + VehicleCodec.maxSize(vehicle));
+					buffer.putInt(slots[i][v]);
+					codec.write(vehicle, buffer);
+				}
+			}
+			flush(channel, buffer, crc);
+			// The checksum covers everything written before it
+			buffer.putLong(crc.getValue());
+			buffer.flip();
+			writeFully(channel, buffer);
+			channel.force(true);
+		}
+	}
+	
+	/**
+	 * Flushes the buffer if it has less than the given bytes left
+	 * 
+	 * @return buffer with at least the given bytes left, a larger one if a
+	 *         value does not fit in an empty buffer
+	 */
+	private static ByteBuffer ensureRemaining(FileChannel channel, ByteBuffer buffer, CRC32 crc, int bytes)
+			throws IOException
+	{
+		if (buffer.remaining() >= bytes)
+			return buffer;
+		flush(channel, buffer, crc);
+		return buffer.capacity() >= bytes ? buffer : ByteBuffer.allocate(bytes);
+	}
+	
+	private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException
+	{
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.flip();
+		writeFully(channel, buffer);
+		buffer.clear();
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+	}
+	
+	/**
+	 * Replays the snapshot as a create event followed by a park event per
+	 * vehicle
+	 * 
+	 * @return sequence number of the first journal record after the snapshot
+	 * @throws IOException
+	 *             if the file can not be read, is truncated or its checksum does
+	 *             not match
+	 */
+	public static long read(Path file, ParkingEventHandler handler) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			if (channel.size() < 8 || channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Not a parking snapshot: " + file);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int checksumPosition = buffer.limit() - 8;
+			ByteBuffer content = buffer.duplicate();
+			content.limit(checksumPosition);
+			CRC32 crc = new CRC32();
+			crc.update(content);
+			if (buffer.getLong(checksumPosition) != crc.getValue())
+				throw new IOException("Parking snapshot checksum does not match: " + file);
+			buffer.limit(checksumPosition);
+			try
+			{
+				return read(buffer, handler);
+			}
+			catch (BufferUnderflowException | IllegalArgumentException e)
+			{
+				throw new IOException("Parking snapshot is corrupt: " + file, e);
+			}
+		}
+	}
+	
+	private static long read(ByteBuffer buffer, ParkingEventHandler handler) throws IOException
+	{
+		if (buffer.getInt() != MAGIC)
+			throw new IllegalArgumentException("Unknown parking snapshot format");
+		long sequence = buffer.getLong();
+		int levelCount = buffer.getInt();
+		int[] levels = new int[levelCount];
+		int[] capacities = new int[levelCount];
+		for (int i = 0; i < levelCount; i++)
+		{
+			levels[i] = buffer.getInt();
+			capacities[i] = buffer.getInt();
+		}
+		ColorDictionary colors = new ColorDictionary();
+		int colorCount = buffer.getInt();
+		for (int id = 0; id < colorCount; id++)
+		{
+			colors.getId(PersistenceCodec.getString(buffer));
+		}
+		VehicleCodec codec = new VehicleCodec(colors);
+		handler.onCreate(levels, capacities);
+		for (int i = 0; i < levelCount; i++)
+		{
+			int count = buffer.getInt();
+			for (int v = 0; v < count; v++)
+			{
+				int slotNumber = buffer.getInt();
+				handler.onPark(levels[i], slotNumber, codec.read(buffer));
+			}
+		}
+		return sequence;
+	}
+}
@@ -0,0 +1,76 @@
+package com.parkinglot.persistence;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Field encoding shared by the journal and the snapshots
+ * 
+ * @author Balasaheb
+ */
+final class PersistenceCodec
+{
+	// length written for a null, longer than any value
+	private static final int	NULL_LENGTH	= 0xFFFF;
+	
+	private PersistenceCodec()
+	{
+	}
+	
+	/**
+	 * @return null for a null value
+	 */
+	static byte[] encode(String value)
+	{
+		if (value == null)
+			return null;
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length >= NULL_LENGTH)
+			throw new IllegalArgumentException("Value too long to save: " + value.length() + " characters");
+		return bytes;
+	}
+	
+	/**
+	 * @return bytes taken by the value written with
+	 *         {@link #putString(ByteBuffer, byte[])}
+	 */
+	static int size(byte[] value)
+	{
+		return 2 + (value != null ? value.length : 0);
+	}
+	
+	static void putString(ByteBuffer buffer, byte[] value)
+	{
+		if (value == null)
+		{
+			buffer.putShort((short) NULL_LENGTH);
+			return;
+		}
+		buffer.putShort((short) value.length);
+		buffer.put(value);
+	}
+	
+	/**
+	 * @throws BufferUnderflowException
+	 *             if the value runs past the end of the buffer
+	 */
+	static String getString(ByteBuffer buffer)
+	{
+		int length = buffer.getShort() & 0xFFFF;
+		if (length == NULL_LENGTH)
+			return null;
+		if (buffer.remaining() < length)
+			throw new BufferUnderflowException();
+		if (!buffer.hasArray())
+		{
+			byte[] value = new byte[length];
+			buffer.get(value);
+			return new String(value, StandardCharsets.UTF_8);
+		}
+		String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+				StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+}
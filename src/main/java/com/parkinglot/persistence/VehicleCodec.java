@@ -0,0 +1,185 @@
+package com.parkinglot.persistence;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.parkinglot.model.ColorDictionary;
+import com.parkinglot.model.SizeClass;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.VehicleKind;
+
+/**
+ * Compact binary form of a vehicle, written to and read from a ByteBuffer:
+ * 
+ * <pre>
+ * byte kind, byte size class, unsigned short length, length x UTF-8 registrationNo,
+ * int colour id, long parkedAt epoch milli
+ * </pre>
+ * 
+ * The kind is the code of the {@link VehicleKind} and the size class its
+ * ordinal, so a vehicle is read back as the subclass and size it was written
+ * with. The colour is saved as its id in the {@link ColorDictionary} of the codec,
+ * {@link ColorDictionary#NO_COLOR} for a vehicle with no colour.
+ * The registration number is encoded straight into the buffer,
+ * so writing allocates nothing and reading allocates only the vehicle and its
+ * registration number.
+ * 
+ * A codec keeps a scratch array for direct buffers and must not be shared
+ * between threads.
+ * 
+ * @author Balasaheb
+ */
+public class VehicleCodec
+{
+	// every field but the registration number
+	private static final int		FIXED_SIZE	= 1 + 1 + 2 + 4 + 8;
+	private static final int		MAX_LENGTH	= 0xFFFF;
+	
+	private final ColorDictionary	colors;
+	private byte[]					scratch		= new byte[32];
+	
+	public VehicleCodec()
+	{
+		this(ColorDictionary.getDefault());
+	}
+	
+	public VehicleCodec(ColorDictionary colors)
+	{
+		this.colors = colors;
+	}
+	
+	/**
+	 * @return the colors
+	 */
+	public ColorDictionary getColors()
+	{
+		return colors;
+	}
+	
+	/**
+	 * @return upper bound of the bytes written for the vehicle, without
+	 *         encoding its registration number
+	 */
+	public static int maxSize(Vehicle vehicle)
+	{
+		return FIXED_SIZE + 3 * vehicle.getRegistrationNo().length();
+	}
+	
+	/**
+	 * Writes the vehicle at the position of the buffer
+	 * 
+	 * @throws BufferOverflowException
+	 *             if the vehicle does not fit in the remaining bytes
+	 * @throws IllegalArgumentException
+	 *             if the registration number is longer than 65535 bytes; the
+	 *             position is not changed
+	 */
+	public void write(Vehicle vehicle, ByteBuffer buffer)
+	{
+		int start = buffer.position();
+		buffer.put(VehicleKind.of(vehicle).getCode());
+		buffer.put((byte) vehicle.getSizeClass().ordinal());
+		buffer.putShort((short) 0);
+		int length = putUtf8(buffer, vehicle.getRegistrationNo());
+		if (length > MAX_LENGTH)
+		{
+			buffer.position(start);
+			throw new IllegalArgumentException("Registration number too long to save: " + length + " bytes");
+		}
+		buffer.putShort(start + 2, (short) length);
+		// Vehicles already hold their id in the default dictionary
+		int colorId = colors == ColorDictionary.getDefault() ? vehicle.getColorId()
+				: colors.getId(vehicle.getColor());
+		buffer.putInt(colorId);
+		buffer.putLong(vehicle.getParkingTime());
+	}
+	
+	/**
+	 * Reads the vehicle at the position of the buffer
+	 * 
+	 * @throws BufferUnderflowException
+	 *             if the vehicle runs past the end of the buffer
+	 * @throws IllegalArgumentException
+	 *             if the kind, the size class or the colour id is unknown
+	 */
+	public Vehicle read(ByteBuffer buffer)
+	{
+		VehicleKind kind = VehicleKind.fromCode(buffer.get());
+		SizeClass sizeClass = SizeClass.fromOrdinal(buffer.get());
+		int length = buffer.getShort() & MAX_LENGTH;
+		String registrationNo = getUtf8(buffer, length);
+		Vehicle vehicle = kind.create(registrationNo, colors.getColor(buffer.getInt()), sizeClass);
+		vehicle.setParkingTime(buffer.getLong());
+		return vehicle;
+	}
+	
+	/**
+	 * Same bytes as String.getBytes(UTF_8), which writes '?' for an unpaired
+	 * surrogate
+	 * 
+	 * @return number of bytes written
+	 */
+	private static int putUtf8(ByteBuffer buffer, String value)
+	{
+		int start = buffer.position();
+		int length = value.length();
+		for (int i = 0; i < length; i++)
+		{
+			char c = value.charAt(i);
+			if (c < 0x80)
+			{
+				buffer.put((byte) c);
+			}
+			else if (c < 0x800)
+			{
+				buffer.put((byte) (0xC0 | c >> 6));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			}
+			else if (Character.isSurrogate(c))
+			{
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+				{
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					buffer.put((byte) (0xF0 | codePoint >> 18));
+					buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+					buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+					buffer.put((byte) (0x80 | codePoint & 0x3F));
+				}
+				else
+				{
+					buffer.put((byte) '?');
+				}
+			}
+			else
+			{
+				buffer.put((byte) (0xE0 | c >> 12));
+				buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			}
+		}
+		return buffer.position() - start;
+	}
+	
+	private String getUtf8(ByteBuffer buffer, int length)
+	{
+		if (buffer.remaining() < length)
+			throw new BufferUnderflowException();
+		String value;
+		if (buffer.hasArray())
+		{
+			value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+					StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		}
+		else
+		{
+			if (scratch.length < length)
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			buffer.get(scratch, 0, length);
+			value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+		return value;
+	}
+}
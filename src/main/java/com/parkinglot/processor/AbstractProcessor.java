@@ -1,6 +1,8 @@
 package com.parkinglot.processor;
 
-import com.parkinglot.constants.CommandInputMap;
+import java.io.IOException;
+import java.io.Writer;
+
 import com.parkinglot.exception.ParkingException;
 import com.parkinglot.service.AbstractService;
 
@@ -12,7 +14,31 @@ public interface AbstractProcessor
 {
 	public void setService(AbstractService service);
 	
-	public void execute(String action) throws ParkingException;
+	/**
+	 * @return result to be formatted by the caller, null for an unknown command
+	 */
+	public default CommandResult execute(String action) throws ParkingException
+	{
+		Command command = Command.parse(action);
+		return command != null ? execute(command) : null;
+	}
+	
+	/**
+	 * @return result to be formatted by the caller
+	 */
+	public CommandResult execute(Command command) throws ParkingException;
+	
+	/**
+	 * Executes a command that writes its response straight to the writer, e.g.
+	 * status, whose rows are written as they are read
+	 * 
+	 * @return false if the command does not stream its response, nothing is
+	 *         executed or written then
+	 */
+	public default boolean write(Command command, Writer writer) throws ParkingException, IOException
+	{
+		return false;
+	}
 	
 	public default boolean validate(String inputString)
 	{
@@ -20,25 +46,7 @@ public interface AbstractProcessor
 		boolean valid = true;
 		try
 		{
-			String[] inputs = inputString.split(" ");
-			int params = CommandInputMap.getCommandsParameterMap().get(inputs[0]);
-			switch (inputs.length)
-			{
-				case 1:
-					if (params != 0) // e.g status -> inputs = 1
-						valid = false;
-					break;
-				case 2:
-					if (params != 1) // create_parking_lot 6 -> inputs = 2
-						valid = false;
-					break;
-				case 3:
-					if (params != 2) // park KA-01-P-333 White -> inputs = 3
-						valid = false;
-					break;
-				default:
-					valid = false;
-			}
+			valid = Command.isValid(inputString.split(" "));
 		}
 		catch (Exception e)
 		{
@@ -0,0 +1,170 @@
+package com.parkinglot.processor;
+
+import com.parkinglot.constants.Constants;
+import com.parkinglot.exception.ParkingException;
+
+/**
+ * A command line parsed once into its typed parameters, so that executing it
+ * does not split or parse the input again
+ * 
+ * @author Balasaheb
+ */
+public class Command
+{
+	private final CommandHandler	handler;
+	private String					registrationNo;
+	private String					color;
+	private int						slotNumber;
+	private int						hours;
+	private int[]					capacities;
+	private int						level	= Constants.ANY_LEVEL;
+	
+	Command(CommandHandler handler)
+	{
+		this.handler = handler;
+	}
+	
+	/**
+	 * Parses the line with the default {@link CommandRegistry}
+	 * 
+	 * @param input
+	 *            trimmed command line
+	 * @return parsed command, null if the command is unknown or has a wrong
+	 *         number of parameters
+	 * @throws ParkingException
+	 *             if a numeric parameter is not a number
+	 */
+	public static Command parse(String input) throws ParkingException
+	{
+		return CommandRegistry.getDefault().parse(input);
+	}
+	
+	/**
+	 * @param inputs
+	 *            command line split on spaces
+	 * @return true if the command is known and has the right number of
+	 *         parameters
+	 */
+	public static boolean isValid(String[] inputs)
+	{
+		return CommandRegistry.getDefault().isValid(inputs);
+	}
+	
+	/**
+	 * @return the handler that parsed the command and executes it
+	 */
+	public CommandHandler getHandler()
+	{
+		return handler;
+	}
+	
+	/**
+	 * @return the name
+	 */
+	public String getName()
+	{
+		return handler.getName();
+	}
+	
+	/**
+	 * @return the registrationNo
+	 */
+	public String getRegistrationNo()
+	{
+		return registrationNo;
+	}
+	
+	/**
+	 * @param registrationNo
+	 *            the registrationNo to set
+	 */
+	public void setRegistrationNo(String registrationNo)
+	{
+		this.registrationNo = registrationNo;
+	}
+	
+	/**
+	 * @return the color
+	 */
+	public String getColor()
+	{
+		return color;
+	}
+	
+	/**
+	 * @param color
+	 *            the color to set
+	 */
+	public void setColor(String color)
+	{
+		this.color = color;
+	}
+	
+	/**
+	 * @return the slotNumber
+	 */
+	public int getSlotNumber()
+	{
+		return slotNumber;
+	}
+	
+	/**
+	 * @param slotNumber
+	 *            the slotNumber to set
+	 */
+	public void setSlotNumber(int slotNumber)
+	{
+		this.slotNumber = slotNumber;
+	}
+	
+	/**
+	 * @return the hours
+	 */
+	public int getHours()
+	{
+		return hours;
+	}
+	
+	/**
+	 * @param hours
+	 *            the hours to set
+	 */
+	public void setHours(int hours)
+	{
+		this.hours = hours;
+	}
+	
+	/**
+	 * @return the capacities, one per level
+	 */
+	public int[] getCapacities()
+	{
+		return capacities;
+	}
+	
+	/**
+	 * @param capacities
+	 *            the capacities to set
+	 */
+	public void setCapacities(int[] capacities)
+	{
+		this.capacities = capacities;
+	}
+	
+	/**
+	 * @return the level, Constants.ANY_LEVEL if none was given
+	 */
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	/**
+	 * @param level
+	 *            the level to set
+	 */
+	public void setLevel(int level)
+	{
+		this.level = level;
+	}
+}
@@ -0,0 +1,137 @@
+package com.parkinglot.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.parkinglot.constants.Constants;
+import com.parkinglot.exception.ErrorCode;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.service.ParkingService;
+
+/**
+ * Parses, executes and formats one command. A handler is registered once per
+ * keyword in a {@link CommandRegistry} and holds the number of parameters the
+ * command takes, so a command line is dispatched with a single lookup and a
+ * new command needs nothing but its handler.
+ * 
+ * Commands take an optional trailing level by default, handlers of commands
+ * without one override {@link #parse(CommandTokens)}.
+ * 
+ * @author Balasaheb
+ */
+public abstract class CommandHandler
+{
+	// Error messages are built once, not per failed line
+	public static final String	INVALID_CAPACITY	= invalidValueMessage("capacity");
+	public static final String	INVALID_SLOT_NUMBER	= invalidValueMessage("slot_number");
+	public static final String	INVALID_LEVEL		= invalidValueMessage("level");
+	
+	private final String		name;
+	private final int			parameterCount;
+	private final int			optionalParameterCount;
+	
+	/**
+	 * @param optionalParameterCount
+	 *            number of optional trailing parameters, e.g. the level a
+	 *            command targets
+	 */
+	protected CommandHandler(String name, int parameterCount, int optionalParameterCount)
+	{
+		this.name = name;
+		this.parameterCount = parameterCount;
+		this.optionalParameterCount = optionalParameterCount;
+	}
+	
+	private static String invalidValueMessage(String variable)
+	{
+		return ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", variable);
+	}
+	
+	/**
+	 * @param given
+	 *            number of parameters after the keyword
+	 * @return true if the command takes that many parameters
+	 */
+	public boolean accepts(int given)
+	{
+		// e.g status -> 0, create_parking_lot 6 -> 1, park KA-01-P-333 White 2 -> 2 + 1 optional
+		return given >= parameterCount && given - parameterCount <= optionalParameterCount;
+	}
+	
+	/**
+	 * @param tokens
+	 *            command line, with a number of parameters this handler accepts
+	 * @throws ParkingException
+	 *             if a numeric parameter is not a number
+	 */
+	public Command parse(CommandTokens tokens) throws ParkingException
+	{
+		// The level is the optional parameter after the mandatory ones
+		int level = Constants.ANY_LEVEL;
+		if (tokens.count() > parameterCount + 1)
+			level = tokens.getInt(parameterCount + 1, INVALID_LEVEL);
+		Command command = new Command(this);
+		command.setLevel(level);
+		parseParameters(tokens, command);
+		return command;
+	}
+	
+	/**
+	 * Sets the mandatory parameters on the command
+	 */
+	protected abstract void parseParameters(CommandTokens tokens, Command command) throws ParkingException;
+	
+	/**
+	 * @return result to be formatted by the caller
+	 */
+	public abstract Object execute(ParkingService parkingService, Command command) throws ParkingException;
+	
+	/**
+	 * @param result
+	 *            value returned by {@link #execute(ParkingService, Command)}
+	 * @param multiLevel
+	 *            true if slots are reported with their level
+	 * @return output lines of the command, without a trailing line separator
+	 */
+	public String format(Object result, boolean multiLevel)
+	{
+		return String.valueOf(result);
+	}
+	
+	/**
+	 * Executes the command and writes its response straight to the writer, for
+	 * commands with responses too large to build in memory
+	 * 
+	 * @return false if the command does not stream its response, nothing is
+	 *         executed or written then
+	 */
+	public boolean write(ParkingService parkingService, Command command, Writer writer)
+			throws ParkingException, IOException
+	{
+		return false;
+	}
+	
+	/**
+	 * @return the command keyword
+	 */
+	public String getName()
+	{
+		return name;
+	}
+	
+	/**
+	 * @return the parameterCount
+	 */
+	public int getParameterCount()
+	{
+		return parameterCount;
+	}
+	
+	/**
+	 * @return the optionalParameterCount
+	 */
+	public int getOptionalParameterCount()
+	{
+		return optionalParameterCount;
+	}
+}
@@ -0,0 +1,275 @@
+package com.parkinglot.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Optional;
+
+import com.parkinglot.ResponseFormatter;
+import com.parkinglot.constants.CommandInputMap;
+import com.parkinglot.constants.Constants;
+import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.result.LeaveResult;
+import com.parkinglot.model.result.LevelStatus;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.result.SlotLocation;
+import com.parkinglot.service.ParkingService;
+
+/**
+ * Handlers of the parking lot commands, registered in the default
+ * {@link CommandRegistry}. The number of parameters of each command is taken
+ * from {@link CommandInputMap}.
+ * 
+ * @author Balasaheb
+ */
+final class CommandHandlers
+{
+	private CommandHandlers()
+	{
+	}
+	
+	static void registerAll(CommandRegistry registry)
+	{
+		registry.register(new CreateParkingLotHandler());
+		registry.register(new ParkHandler());
+		registry.register(new LeaveHandler());
+		registry.register(new StatusHandler());
+		registry.register(new RegistrationNumbersForColourHandler());
+		registry.register(new SlotNumbersForColourHandler());
+		registry.register(new SlotNumberForRegistrationNumberHandler());
+	}
+	
+	private static int parameterCount(String name)
+	{
+		return CommandInputMap.getCommandsParameterMap().get(name);
+	}
+	
+	private static int optionalParameterCount(String name)
+	{
+		return CommandInputMap.getCommandsOptionalParameterMap().getOrDefault(name, 0);
+	}
+	
+	/**
+	 * create_parking_lot {capacity of level 1} {capacity of level 2} ...
+	 */
+	static class CreateParkingLotHandler extends CommandHandler
+	{
+		CreateParkingLotHandler()
+		{
+			super(Constants.CREATE_PARKING_LOT, parameterCount(Constants.CREATE_PARKING_LOT),
+					optionalParameterCount(Constants.CREATE_PARKING_LOT));
+		}
+		
+		@Override
+		public Command parse(CommandTokens tokens) throws ParkingException
+		{
+			// Every parameter is a level capacity, there is no trailing level
+			Command command = new Command(this);
+			parseParameters(tokens, command);
+			return command;
+		}
+		
+		@Override
+		protected void parseParameters(CommandTokens tokens, Command command) throws ParkingException
+		{
+			int[] capacities = new int[tokens.count() - 1];
+			for (int i = 1; i < tokens.count(); i++)
+			{
+				capacities[i - 1] = tokens.getInt(i, INVALID_CAPACITY);
+			}
+			command.setCapacities(capacities);
+		}
+		
+		@Override
+		public Object execute(ParkingService parkingService, Command command) throws ParkingException
+		{
+			int[] capacities = command.getCapacities();
+			if (capacities.length == 1)
+				parkingService.createParkingLot(1, capacities[0]);
+			else
+				parkingService.createParkingLot(capacities);
+			return capacities;
+		}
+		
+		@Override
+		public String format(Object result, boolean multiLevel)
+		{
+			return ResponseFormatter.formatCreate((int[]) result);
+		}
+	}
+	
+	static class ParkHandler extends CommandHandler
+	{
+		ParkHandler()
+		{
+			super(Constants.PARK, parameterCount(Constants.PARK), optionalParameterCount(Constants.PARK));
+		}
+		
+		@Override
+		protected void parseParameters(CommandTokens tokens, Command command)
+		{
+			command.setRegistrationNo(tokens.getString(1));
+			command.setColor(tokens.getString(2));
+		}
+		
+		@Override
+		public Object execute(ParkingService parkingService, Command command) throws ParkingException
+		{
+			return parkingService.park(command.getLevel(), new Car(command.getRegistrationNo(), command.getColor()));
+		}
+		
+		@Override
+		public String format(Object result, boolean multiLevel)
+		{
+			return ResponseFormatter.formatPark((ParkResult) result, multiLevel);
+		}
+	}
+	
+	static class LeaveHandler extends CommandHandler
+	{
+		LeaveHandler()
+		{
+			super(Constants.LEAVE, parameterCount(Constants.LEAVE), optionalParameterCount(Constants.LEAVE));
+		}
+		
+		@Override
+		protected void parseParameters(CommandTokens tokens, Command command) throws ParkingException
+		{
+			command.setSlotNumber(tokens.getInt(1, INVALID_SLOT_NUMBER));
+			command.setHours(tokens.getInt(2, INVALID_SLOT_NUMBER));
+		}
+		
+		@Override
+		public Object execute(ParkingService parkingService, Command command) throws ParkingException
+		{
+			return parkingService.unPark(command.getLevel(), command.getSlotNumber(), command.getHours());
+		}
+		
+		@Override
+		public String format(Object result, boolean multiLevel)
+		{
+			return ResponseFormatter.formatLeave((LeaveResult) result, multiLevel);
+		}
+	}
+	
+	static class StatusHandler extends CommandHandler
+	{
+		StatusHandler()
+		{
+			super(Constants.STATUS, parameterCount(Constants.STATUS), optionalParameterCount(Constants.STATUS));
+		}
+		
+		@Override
+		protected void parseParameters(CommandTokens tokens, Command command)
+		{
+		}
+		
+		@Override
+		public Object execute(ParkingService parkingService, Command command) throws ParkingException
+		{
+			return parkingService.getStatus(command.getLevel());
+		}
+		
+		@Override
+		public boolean write(ParkingService parkingService, Command command, Writer writer)
+				throws ParkingException, IOException
+		{
+			boolean multiLevel = parkingService.getLevelCount() > 1;
+			parkingService.streamStatus(command.getLevel(), ResponseFormatter.statusWriter(writer, multiLevel));
+			return true;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public String format(Object result, boolean multiLevel)
+		{
+			return ResponseFormatter.formatStatus((List<LevelStatus>) result, multiLevel);
+		}
+	}
+	
+	static class RegistrationNumbersForColourHandler extends CommandHandler
+	{
+		RegistrationNumbersForColourHandler()
+		{
+			super(Constants.REG_NUMBER_FOR_CARS_WITH_COLOR, parameterCount(Constants.REG_NUMBER_FOR_CARS_WITH_COLOR),
+					optionalParameterCount(Constants.REG_NUMBER_FOR_CARS_WITH_COLOR));
+		}
+		
+		@Override
+		protected void parseParameters(CommandTokens tokens, Command command)
+		{
+			command.setColor(tokens.getString(1));
+		}
+		
+		@Override
+		public Object execute(ParkingService parkingService, Command command) throws ParkingException
+		{
+			return parkingService.getRegNumberForColor(command.getLevel(), command.getColor());
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public String format(Object result, boolean multiLevel)
+		{
+			return ResponseFormatter.formatRegistrations((List<String>) result);
+		}
+	}
+	
+	static class SlotNumbersForColourHandler extends CommandHandler
+	{
+		SlotNumbersForColourHandler()
+		{
+			super(Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR,
+					parameterCount(Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR),
+					optionalParameterCount(Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR));
+		}
+		
+		@Override
+		protected void parseParameters(CommandTokens tokens, Command command)
+		{
+			command.setColor(tokens.getString(1));
+		}
+		
+		@Override
+		public Object execute(ParkingService parkingService, Command command) throws ParkingException
+		{
+			return parkingService.getSlotNumbersFromColor(command.getLevel(), command.getColor());
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public String format(Object result, boolean multiLevel)
+		{
+			return ResponseFormatter.formatSlots((List<SlotLocation>) result, multiLevel);
+		}
+	}
+	
+	static class SlotNumberForRegistrationNumberHandler extends CommandHandler
+	{
+		SlotNumberForRegistrationNumberHandler()
+		{
+			super(Constants.SLOTS_NUMBER_FOR_REG_NUMBER, parameterCount(Constants.SLOTS_NUMBER_FOR_REG_NUMBER),
+					optionalParameterCount(Constants.SLOTS_NUMBER_FOR_REG_NUMBER));
+		}
+		
+		@Override
+		protected void parseParameters(CommandTokens tokens, Command command)
+		{
+			command.setRegistrationNo(tokens.getString(1));
+		}
+		
+		@Override
+		public Object execute(ParkingService parkingService, Command command) throws ParkingException
+		{
+			return parkingService.getSlotNoFromRegistrationNo(command.getLevel(), command.getRegistrationNo());
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public String format(Object result, boolean multiLevel)
+		{
+			return ResponseFormatter.formatSlot((Optional<SlotLocation>) result, multiLevel);
+		}
+	}
+}
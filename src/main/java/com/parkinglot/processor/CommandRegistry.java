@@ -0,0 +1,92 @@
+package com.parkinglot.processor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.parkinglot.exception.ParkingException;
+
+/**
+ * Maps each command keyword to its {@link CommandHandler}. Lookups read an
+ * immutable map, registering a command replaces it, so commands are expected
+ * to be registered at start up.
+ * 
+ * @author Balasaheb
+ */
+public class CommandRegistry
+{
+	private static final CommandRegistry	DEFAULT_REGISTRY	= createDefault();
+	
+	private volatile Map<String, CommandHandler> handlers = Collections.emptyMap();
+	
+	/**
+	 * @return registry with the parking lot commands, used by
+	 *         {@link Command#parse(String)}
+	 */
+	public static CommandRegistry getDefault()
+	{
+		return DEFAULT_REGISTRY;
+	}
+	
+	/**
+	 * @return new registry with the parking lot commands
+	 */
+	public static CommandRegistry createDefault()
+	{
+		CommandRegistry registry = new CommandRegistry();
+		CommandHandlers.registerAll(registry);
+		return registry;
+	}
+	
+	/**
+	 * Adds a command, or replaces the handler of an existing one
+	 */
+	public synchronized void register(CommandHandler handler)
+	{
+		Map<String, CommandHandler> updated = new HashMap<>(handlers);
+		updated.put(handler.getName(), handler);
+		handlers = updated;
+	}
+	
+	/**
+	 * @return handler of the keyword, null if the command is unknown
+	 */
+	public CommandHandler get(String keyword)
+	{
+		return handlers.get(keyword);
+	}
+	
+	public Collection<CommandHandler> getHandlers()
+	{
+		return new ArrayList<>(handlers.values());
+	}
+	
+	/**
+	 * @param input
+	 *            trimmed command line
+	 * @return parsed command, null if the command is unknown or has a wrong
+	 *         number of parameters
+	 * @throws ParkingException
+	 *             if a numeric parameter is not a number
+	 */
+	public Command parse(String input) throws ParkingException
+	{
+		String[] inputs = input.split(" ");
+		CommandHandler handler = handlers.get(inputs[0]);
+		if (handler == null || !handler.accepts(inputs.length - 1))
+			return null;
+		return handler.parse(new SplitCommandTokens(inputs));
+	}
+	
+	/**
+	 * @return true if the command is known and has the right number of
+	 *         parameters
+	 */
+	public boolean isValid(String[] inputs)
+	{
+		CommandHandler handler = handlers.get(inputs[0]);
+		return handler != null && handler.accepts(inputs.length - 1);
+	}
+}
@@ -0,0 +1,64 @@
+package com.parkinglot.processor;
+
+/**
+ * Result of one executed command, handed to the CLI for formatting
+ * 
+ * @author Balasaheb
+ */
+public class CommandResult
+{
+	// handler that executed the command and formats its result
+	private final CommandHandler	handler;
+	// service result, its type depends on the command
+	private final Object			result;
+	// slots are reported with their level when the lot has several levels
+	private final boolean			multiLevel;
+	
+	public CommandResult(CommandHandler handler, Object result, boolean multiLevel)
+	{
+		this.handler = handler;
+		this.result = result;
+		this.multiLevel = multiLevel;
+	}
+	
+	/**
+	 * @return the command keyword
+	 */
+	public String getCommand()
+	{
+		return handler.getName();
+	}
+	
+	/**
+	 * @return the handler
+	 */
+	public CommandHandler getHandler()
+	{
+		return handler;
+	}
+	
+	/**
+	 * @return the result
+	 */
+	public Object getResult()
+	{
+		return result;
+	}
+	
+	/**
+	 * @return the multiLevel
+	 */
+	public boolean isMultiLevel()
+	{
+		return multiLevel;
+	}
+	
+	/**
+	 * @return output lines of the command, formatted by its handler, without
+	 *         a trailing line separator
+	 */
+	public String format()
+	{
+		return handler.format(result, multiLevel);
+	}
+}
@@ -0,0 +1,28 @@
+package com.parkinglot.processor;
+
+import com.parkinglot.exception.ParkingException;
+
+/**
+ * Tokens of one command line, the keyword being token 0. Lets a
+ * {@link CommandHandler} parse its parameters the same way whether the line was
+ * split into Strings or is tokenised from bytes.
+ * 
+ * @author Balasaheb
+ */
+public interface CommandTokens
+{
+	/**
+	 * @return number of tokens, including the keyword
+	 */
+	public int count();
+	
+	public String getString(int index);
+	
+	/**
+	 * @param errorMessage
+	 *            message of the exception thrown if the token is not a number
+	 * @throws ParkingException
+	 *             if the token is not a number
+	 */
+	public int getInt(int index, String errorMessage) throws ParkingException;
+}
@@ -1,9 +1,9 @@
 package com.parkinglot.processor;
 
-import com.parkinglot.constants.Constants;
-import com.parkinglot.exception.ErrorCode;
+import java.io.IOException;
+import java.io.Writer;
+
 import com.parkinglot.exception.ParkingException;
-import com.parkinglot.model.Car;
 import com.parkinglot.service.AbstractService;
 import com.parkinglot.service.ParkingService;
 
@@ -21,55 +21,16 @@ public class RequestProcessor implements AbstractProcessor
 	}
 	
 	@Override
-	public void execute(String input) throws ParkingException
+	public CommandResult execute(Command command) throws ParkingException
+	{
+		Object result = command.getHandler().execute(parkingService, command);
+		return new CommandResult(command.getHandler(), result, parkingService.getLevelCount() > 1);
+	}
+	
+	@Override
+	public boolean write(Command command, Writer writer) throws ParkingException, IOException
 	{
-		int level = 1;
-		String[] inputs = input.split(" ");
-		String key = inputs[0];
-		switch (key)
-		{
-			case Constants.CREATE_PARKING_LOT:
-				try
-				{
-					int capacity = Integer.parseInt(inputs[1]);
-					parkingService.createParkingLot(level, capacity);
-				}
-				catch (NumberFormatException e)
-				{
-					throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "capacity"));
-				}
-				break;
-			case Constants.PARK:
-				parkingService.park(level, new Car(inputs[1], inputs[2]));
-				break;
-			case Constants.LEAVE:
-				try
-				{
-					int slotNumber = Integer.parseInt(inputs[1]);
-					int hours = Integer.parseInt(inputs[2]);					
-					parkingService.unPark(level, slotNumber,hours);
-				}
-				catch (NumberFormatException e)
-				{
-					throw new ParkingException(
-							ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "slot_number"));
-				}
-				break;
-			case Constants.STATUS:
-				parkingService.getStatus(level);
-				break;
-			case Constants.REG_NUMBER_FOR_CARS_WITH_COLOR:
-				parkingService.getRegNumberForColor(level, inputs[1]);
-				break;
-			case Constants.SLOTS_NUMBER_FOR_CARS_WITH_COLOR:
-				parkingService.getSlotNumbersFromColor(level, inputs[1]);
-				break;
-			case Constants.SLOTS_NUMBER_FOR_REG_NUMBER:
-				parkingService.getSlotNoFromRegistrationNo(level, inputs[1]);
-				break;
-			default:
-				break;
-		}
+		return command.getHandler().write(parkingService, command, writer);
 	}
 	
 	@Override
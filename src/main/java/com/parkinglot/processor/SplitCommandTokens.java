@@ -0,0 +1,43 @@
+package com.parkinglot.processor;
+
+import com.parkinglot.exception.ParkingException;
+
+/**
+ * Tokens of a command line split on spaces
+ * 
+ * @author Balasaheb
+ */
+public class SplitCommandTokens implements CommandTokens
+{
+	private final String[] inputs;
+	
+	public SplitCommandTokens(String[] inputs)
+	{
+		this.inputs = inputs;
+	}
+	
+	@Override
+	public int count()
+	{
+		return inputs.length;
+	}
+	
+	@Override
+	public String getString(int index)
+	{
+		return inputs[index];
+	}
+	
+	@Override
+	public int getInt(int index, String errorMessage) throws ParkingException
+	{
+		try
+		{
+			return Integer.parseInt(inputs[index]);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new ParkingException(errorMessage);
+		}
+	}
+}
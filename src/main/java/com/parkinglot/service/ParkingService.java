@@ -1,32 +1,121 @@
 package com.parkinglot.service;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.SizeClass;
 import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.result.LeaveResult;
+import com.parkinglot.model.result.LevelStatus;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.result.Reservation;
+import com.parkinglot.model.result.SlotLocation;
+import com.parkinglot.model.result.StatusSink;
 
 /**
+ * Results are returned to the caller, the service itself does no output.
+ * 
  * @author Balasaheb
  *
  */
 public interface ParkingService extends AbstractService
 {
 	/* ---- Actions ----- */
+	/* level can be Constants.ANY_LEVEL: park then uses the lowest level with
+	 * a free slot and queries cover every level */
 	public void createParkingLot(int level, int capacity) throws ParkingException;
 	
-	public Optional<Integer> park(int level, Vehicle vehicle) throws ParkingException;
+	/**
+	 * Creates a lot with one level per capacity, numbered from 1
+	 */
+	public void createParkingLot(int[] capacities) throws ParkingException;
 	
-	public void unPark(int level, int slotNumber, int hours) throws ParkingException;
+	/**
+	 * A vehicle holding a slot is parked in it, whatever level is given
+	 */
+	public ParkResult park(int level, Vehicle vehicle) throws ParkingException;
 	
-	public void getStatus(int level) throws ParkingException;
+	/**
+	 * Holds the next free slot for the registration until the hold time has
+	 * passed; the slot is given back to the free slots if the vehicle is not
+	 * parked by then. A registration holds at most one slot and a parked one
+	 * none. Holds are not journaled.
+	 */
+	public Reservation reserve(int level, String registrationNo, Duration holdTime) throws ParkingException;
+	
+	/**
+	 * Same as {@link #reserve(int, String, Duration)}, which holds a slot for a
+	 * {@link SizeClass#STANDARD} vehicle, for a vehicle of the size class. A
+	 * larger vehicle does not take the held slot.
+	 */
+	public Reservation reserve(int level, String registrationNo, SizeClass sizeClass, Duration holdTime)
+			throws ParkingException;
+	
+	/**
+	 * @return false if the registration held no slot
+	 */
+	public boolean cancelReservation(String registrationNo) throws ParkingException;
+	
+	/**
+	 * @param hours
+	 *            hours the stay is charged for, as given by the operator
+	 */
+	public LeaveResult unPark(int level, int slotNumber, int hours) throws ParkingException;
+	
+	/**
+	 * Charges the hours since the vehicle was parked
+	 */
+	public LeaveResult unPark(int level, int slotNumber) throws ParkingException;
+	
+	/**
+	 * Parks the vehicles under one lock per level. The results are in the order
+	 * of the vehicles and the same as parking them one by one, except that every
+	 * vehicle gets the same park time.
+	 */
+	public List<ParkResult> parkAll(int level, List<Vehicle> vehicles) throws ParkingException;
+	
+	/**
+	 * Frees the slots of a level under one lock, charging the hours since each
+	 * vehicle was parked
+	 * 
+	 * @throws ParkingException
+	 *             if a slot does not exist, no slot is freed then
+	 */
+	public List<LeaveResult> leaveAll(int level, int[] slotNumbers) throws ParkingException;
+	
+	public List<LevelStatus> getStatus(int level) throws ParkingException;
+	
+	/**
+	 * Same rows as {@link #getStatus(int)}, written to the sink as they are read
+	 * instead of collected in a list. Each level is read in chunks of slots, so
+	 * the rows of a chunk are consistent with each other but a change between
+	 * two chunks may show in the later one only.
+	 * 
+	 * @throws IOException
+	 *             if the sink fails, the rows written before stay written
+	 */
+	public void streamStatus(int level, StatusSink sink) throws ParkingException, IOException;
+	
+	/**
+	 * @return number of parked vehicles per colour, for the colours with
+	 *         vehicles
+	 */
+	public Map<String, Integer> getColorCounts(int level) throws ParkingException;
 	
 	public Optional<Integer> getAvailableSlotsCount(int level) throws ParkingException;
 	
-	public void getRegNumberForColor(int level, String color) throws ParkingException;
+	public List<String> getRegNumberForColor(int level, String color) throws ParkingException;
+	
+	public List<SlotLocation> getSlotNumbersFromColor(int level, String colour) throws ParkingException;
 	
-	public void getSlotNumbersFromColor(int level, String colour) throws ParkingException;
+	public Optional<SlotLocation> getSlotNoFromRegistrationNo(int level, String registrationNo)
+			throws ParkingException;
 	
-	public int getSlotNoFromRegistrationNo(int level, String registrationNo) throws ParkingException;
+	public int getLevelCount() throws ParkingException;
 	
 	public void doCleanup();
 }
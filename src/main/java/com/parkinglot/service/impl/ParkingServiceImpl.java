@@ -1,65 +1,297 @@
 package com.parkinglot.service.impl;
 
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.StringJoiner;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
+import com.parkinglot.billing.Tariff;
+import com.parkinglot.billing.TariffSchedule;
+import com.parkinglot.constants.ConcurrencyMode;
 import com.parkinglot.constants.Constants;
 import com.parkinglot.dao.ParkingDataManager;
+import com.parkinglot.dao.SlotStoreType;
 import com.parkinglot.dao.impl.ParkingManager;
 import com.parkinglot.exception.ErrorCode;
 import com.parkinglot.exception.ParkingException;
+import com.parkinglot.model.SizeClass;
 import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.result.LeaveResult;
+import com.parkinglot.model.result.LevelStatus;
+import com.parkinglot.model.result.ParkResult;
+import com.parkinglot.model.result.Reservation;
+import com.parkinglot.model.result.SlotLocation;
+import com.parkinglot.model.result.SlotStatusVisitor;
+import com.parkinglot.model.result.StatusSink;
 import com.parkinglot.model.stratergy.NearestFirstParkingStrategy;
 import com.parkinglot.model.stratergy.ParkingStrategy;
+import com.parkinglot.persistence.ParkingEventHandler;
+import com.parkinglot.persistence.ParkingPersistence;
+import com.parkinglot.persistence.ParkingSnapshot;
 import com.parkinglot.service.ParkingService;
+import com.parkinglot.service.impl.SlotHolds.Hold;
 
 /**
  * 
- * This class has to be made singleton and used as service to be injected in
- * RequestProcessor
+ * Parking service injected in RequestProcessor. Each service owns its own
+ * parking lot, a lot may have several levels numbered from 1.
  * 
  * @author Balasaheb
  *
  */
 public class ParkingServiceImpl implements ParkingService
 {
-	private ParkingDataManager<Vehicle> dataManager = null;
+	// sequence number of a change that was not journaled
+	private static final long NOT_LOGGED = -1L;
 	
-	private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	// hours of a leave that are taken from the park time
+	private static final int BILLED_HOURS = Integer.MIN_VALUE;
+	
+	private static final long MILLIS_PER_MINUTE = 60_000L;
+	
+	// slots read per level lock taken by streamStatus
+	static final int STATUS_CHUNK_SIZE = 1024;
+	
+	private volatile ParkingDataManager<Vehicle> dataManager = null;
+	
+	// one lock per level so that different levels never wait on each other
+	private final Map<Integer, StampedLock> levelLocks = new ConcurrentHashMap<>();
+	
+	private final SlotStoreType slotStoreType;
+	
+	private final Supplier<ParkingStrategy> parkingStrategyFactory;
+	
+	private final ConcurrencyMode concurrencyMode;
+	
+	// null if the parking state is kept in memory only
+	private final ParkingPersistence persistence;
+	
+	private volatile Tariff tariff = TariffSchedule.DEFAULT;
+	
+	private volatile Clock clock = Clock.systemDefaultZone();
+	
+	// slots held for registrations, not journaled
+	private final SlotHolds holds = new SlotHolds(clock.millis());
+	
+	public ParkingServiceImpl()
+	{
+		this(SlotStoreType.MAP);
+	}
+	
+	/**
+	 * @param concurrencyMode
+	 *            {@link ConcurrencyMode#LOCK_FREE} lets park/unPark run in
+	 *            parallel without the write lock
+	 */
+	public ParkingServiceImpl(ConcurrencyMode concurrencyMode)
+	{
+		this(SlotStoreType.MAP, NearestFirstParkingStrategy::new, concurrencyMode);
+	}
+	
+	/**
+	 * @param slotStoreType
+	 *            store used to hold the vehicles of each level
+	 */
+	public ParkingServiceImpl(SlotStoreType slotStoreType)
+	{
+		this(slotStoreType, NearestFirstParkingStrategy::new);
+	}
+	
+	/**
+	 * @param slotStoreType
+	 *            store used to hold the vehicles of each level
+	 * @param parkingStrategyFactory
+	 *            creates the allocation strategy of each level
+	 */
+	public ParkingServiceImpl(SlotStoreType slotStoreType, Supplier<ParkingStrategy> parkingStrategyFactory)
+	{
+		this(slotStoreType, parkingStrategyFactory, ConcurrencyMode.LOCKED);
+	}
+	
+	/**
+	 * @param slotStoreType
+	 *            store used to hold the vehicles of each level
+	 * @param parkingStrategyFactory
+	 *            creates the allocation strategy of each level
+	 * @param concurrencyMode
+	 *            how park/unPark are guarded against each other
+	 */
+	public ParkingServiceImpl(SlotStoreType slotStoreType, Supplier<ParkingStrategy> parkingStrategyFactory,
+			ConcurrencyMode concurrencyMode)
+	{
+		this.slotStoreType = slotStoreType;
+		this.parkingStrategyFactory = parkingStrategyFactory;
+		this.concurrencyMode = concurrencyMode;
+		this.persistence = null;
+	}
+	
+	/**
+	 * Restores the parking lot saved by the persistence and journals every
+	 * change from then on. A change returns once its journal record is on disk.
+	 * 
+	 * @param slotStoreType
+	 *            store used to hold the vehicles of each level
+	 * @param parkingStrategyFactory
+	 *            creates the allocation strategy of each level
+	 * @param concurrencyMode
+	 *            how park/unPark are guarded against each other, the journal
+	 *            needs the write lock so {@link ConcurrencyMode#LOCK_FREE} is
+	 *            not supported
+	 * @param persistence
+	 *            not yet recovered persistence, closed by the caller
+	 * @throws ParkingException
+	 *             if the saved state can not be read
+	 */
+	public ParkingServiceImpl(SlotStoreType slotStoreType, Supplier<ParkingStrategy> parkingStrategyFactory,
+			ConcurrencyMode concurrencyMode, ParkingPersistence persistence) throws ParkingException
+	{
+		if (concurrencyMode == ConcurrencyMode.LOCK_FREE)
+			throw new IllegalArgumentException("Journaling needs the level write lock, use LOCKED or OPTIMISTIC_READ");
+		this.slotStoreType = slotStoreType;
+		this.parkingStrategyFactory = parkingStrategyFactory;
+		this.concurrencyMode = concurrencyMode;
+		this.persistence = persistence;
+		try
+		{
+			persistence.recover(new StateRestorer());
+		}
+		catch (IOException e)
+		{
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * @param tariff
+	 *            fees charged from the next leave on, {@link TariffSchedule#DEFAULT}
+	 *            until set
+	 */
+	public void setTariff(Tariff tariff)
+	{
+		this.tariff = tariff;
+	}
+	
+	/**
+	 * @param clock
+	 *            clock vehicles are parked and billed by, e.g. a
+	 *            {@link com.parkinglot.time.ManualClock} for replays
+	 */
+	public void setClock(Clock clock)
+	{
+		this.clock = clock;
+	}
 	
 	@Override
 	public void createParkingLot(int level, int capacity) throws ParkingException
 	{
-		if (dataManager != null)
-			throw new ParkingException(ErrorCode.PARKING_ALREADY_EXIST.getMessage());
+		createParkingLot(Collections.singletonList(level), Collections.singletonList(capacity));
+	}
+	
+	@Override
+	public void createParkingLot(int[] capacities) throws ParkingException
+	{
 		List<Integer> parkingLevels = new ArrayList<>();
 		List<Integer> capacityList = new ArrayList<>();
+		for (int i = 0; i < capacities.length; i++)
+		{
+			parkingLevels.add(i + 1);
+			capacityList.add(capacities[i]);
+		}
+		createParkingLot(parkingLevels, capacityList);
+	}
+	
+	private void createParkingLot(List<Integer> parkingLevels, List<Integer> capacityList)
+			throws ParkingException
+	{
+		long sequence;
+		synchronized (this)
+		{
+			if (dataManager != null)
+				throw new ParkingException(ErrorCode.PARKING_ALREADY_EXIST.getMessage());
+			createDataManager(parkingLevels, capacityList);
+			sequence = persistence != null ? persistence.logCreate(toArray(parkingLevels), toArray(capacityList))
+					: NOT_LOGGED;
+		}
+		awaitDurable(sequence);
+	}
+	
+	private void createDataManager(List<Integer> parkingLevels, List<Integer> capacityList)
+	{
 		List<ParkingStrategy> parkingStrategies = new ArrayList<>();
-		parkingLevels.add(level);
-		capacityList.add(capacity);
-		parkingStrategies.add(new NearestFirstParkingStrategy());
-		this.dataManager = ParkingManager.getInstance(parkingLevels, capacityList, parkingStrategies);
-		System.out.println("Created parking lot with " + capacity + " slots");
+		for (int i = 0; i < parkingLevels.size(); i++)
+		{
+			parkingStrategies.add(parkingStrategyFactory.get());
+		}
+		this.dataManager = new ParkingManager<>(parkingLevels, capacityList, parkingStrategies, slotStoreType,
+				concurrencyMode);
+	}
+	
+	@Override
+	public int getLevelCount() throws ParkingException
+	{
+		validateParkingLot();
+		return dataManager.getLevelCount();
 	}
 	
 	@Override
-	public Optional<Integer> park(int level, Vehicle vehicle) throws ParkingException
+	public ParkResult park(int level, Vehicle vehicle) throws ParkingException
 	{
-		Optional<Integer> value = Optional.empty();
-		lock.writeLock().lock();
 		validateParkingLot();
+		vehicle.setParkingTime(clock.millis());
+		boolean anyLevel = level == Constants.ANY_LEVEL && isMultiLevel();
+		if (!anyLevel)
+			level = resolveLevel(level);
+		ParkResult held = parkHeld(vehicle);
+		if (held != null)
+			return held;
+		if (!anyLevel)
+			return parkOnLevel(level, vehicle);
+		return parkOnAnyLevel(vehicle);
+	}
+	
+	/**
+	 * No level given, spills over to the lowest level with a free slot the
+	 * vehicle fits in
+	 */
+	private ParkResult parkOnAnyLevel(Vehicle vehicle) throws ParkingException
+	{
+		// one map lookup; parkCar claims the registration again, so a vehicle
+		// parked concurrently on another level still loses
+		if (dataManager.getLevelFromRegistrationNo(vehicle.getRegistrationNo()) != Constants.NOT_FOUND)
+			return new ParkResult(Constants.ANY_LEVEL, Constants.VEHICLE_ALREADY_EXIST);
+		int freeLevel = Constants.ANY_LEVEL;
+		while ((freeLevel = dataManager.getLevelWithAvailability(freeLevel + 1)) != Constants.NOT_AVAILABLE)
+		{
+			ParkResult result = parkOnLevel(freeLevel, vehicle);
+			if (!result.isLotFull())
+				return result;
+		}
+		return new ParkResult(Constants.ANY_LEVEL, Constants.NOT_AVAILABLE);
+	}
+	
+	private ParkResult parkOnLevel(int level, Vehicle vehicle) throws ParkingException
+	{
+		StampedLock levelLock = getLevelLock(level);
+		long stamp = lockForWrite(levelLock);
+		ParkResult result;
+		long sequence = NOT_LOGGED;
 		try
 		{
-			value = Optional.of(dataManager.parkCar(level, vehicle));
-			if (value.get() == Constants.NOT_AVAILABLE)
-				System.out.println("Sorry, parking lot is full");
-			else if (value.get() == Constants.VEHICLE_ALREADY_EXIST)
-				System.out.println("Sorry, vehicle is already parked.");
-			else
-				System.out.println("Allocated slot number: " + value.get());
+			result = new ParkResult(level, dataManager.parkCar(level, vehicle));
+			if (persistence != null && result.isParked())
+				sequence = persistence.logPark(level, result.getSlotNumber(), vehicle);
 		}
 		catch (Exception e)
 		{
@@ -67,9 +299,317 @@ public class ParkingServiceImpl implements ParkingService
 		}
 		finally
 		{
-			lock.writeLock().unlock();
+			unlockForWrite(levelLock, stamp);
+		}
+		awaitDurable(sequence);
+		return result;
+	}
+	
+	@Override
+	public List<ParkResult> parkAll(int level, List<Vehicle> vehicles) throws ParkingException
+	{
+		validateParkingLot();
+		boolean anyLevel = level == Constants.ANY_LEVEL && isMultiLevel();
+		if (!anyLevel)
+			level = resolveLevel(level);
+		long parkingTime = clock.millis();
+		ParkResult[] results = new ParkResult[vehicles.size()];
+		// the vehicles without a held slot, with their index in vehicles
+		List<Vehicle> pending = new ArrayList<>(vehicles.size());
+		int[] pendingIndex = new int[vehicles.size()];
+		for (int i = 0; i < results.length; i++)
+		{
+			Vehicle vehicle = vehicles.get(i);
+			vehicle.setParkingTime(parkingTime);
+			results[i] = parkHeld(vehicle);
+			if (results[i] == null)
+			{
+				pendingIndex[pending.size()] = i;
+				pending.add(vehicle);
+			}
+		}
+		if (!anyLevel)
+		{
+			int[] slots = parkAllOnLevel(level, pending);
+			for (int i = 0; i < slots.length; i++)
+			{
+				results[pendingIndex[i]] = new ParkResult(level, slots[i]);
+			}
+			return Arrays.asList(results);
+		}
+		if (hasRepeatedRegistration(pending))
+		{
+			// a vehicle left over on a level, too large for its free slots, must
+			// not lose its registration to a later one parked there
+			for (int i = 0; i < pending.size(); i++)
+			{
+				results[pendingIndex[i]] = parkOnAnyLevel(pending.get(i));
+			}
+			return Arrays.asList(results);
+		}
+		// No level given, the vehicles left over on a level spill over to the
+		// next one with free slots
+		int freeLevel = Constants.ANY_LEVEL;
+		while (!pending.isEmpty())
+		{
+			// A vehicle parked on the level before is not parked again here
+			int remaining = 0;
+			for (int i = 0; i < pending.size(); i++)
+			{
+				Vehicle vehicle = pending.get(i);
+				if (dataManager.getLevelFromRegistrationNo(vehicle.getRegistrationNo()) != Constants.NOT_FOUND)
+				{
+					results[pendingIndex[i]] = new ParkResult(Constants.ANY_LEVEL, Constants.VEHICLE_ALREADY_EXIST);
+					continue;
+				}
+				pendingIndex[remaining] = pendingIndex[i];
+				pending.set(remaining++, vehicle);
+			}
+			pending.subList(remaining, pending.size()).clear();
+			if (pending.isEmpty()
+					|| (freeLevel = dataManager.getLevelWithAvailability(freeLevel + 1)) == Constants.NOT_AVAILABLE)
+				break;
+			int[] slots = parkAllOnLevel(freeLevel, pending);
+			remaining = 0;
+			for (int i = 0; i < slots.length; i++)
+			{
+				if (slots[i] == Constants.NOT_AVAILABLE)
+				{
+					pendingIndex[remaining] = pendingIndex[i];
+					pending.set(remaining++, pending.get(i));
+					continue;
+				}
+				results[pendingIndex[i]] = new ParkResult(
+						slots[i] == Constants.VEHICLE_ALREADY_EXIST ? Constants.ANY_LEVEL : freeLevel, slots[i]);
+			}
+			pending.subList(remaining, pending.size()).clear();
+		}
+		for (int i = 0; i < pending.size(); i++)
+		{
+			results[pendingIndex[i]] = new ParkResult(Constants.ANY_LEVEL, Constants.NOT_AVAILABLE);
+		}
+		return Arrays.asList(results);
+	}
+	
+	private static boolean hasRepeatedRegistration(List<Vehicle> vehicles)
+	{
+		Set<String> registrationKeys = new HashSet<>();
+		for (Vehicle vehicle : vehicles)
+		{
+			if (!registrationKeys.add(vehicle.getRegistrationNo().toUpperCase(Locale.ROOT)))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Parks the vehicles under one write lock of the level and waits once for
+	 * their journal records
+	 * 
+	 * @return slot of each vehicle, or the reason it was not parked
+	 */
+	private int[] parkAllOnLevel(int level, List<Vehicle> vehicles) throws ParkingException
+	{
+		StampedLock levelLock = getLevelLock(level);
+		long stamp = lockForWrite(levelLock);
+		int[] slots;
+		long sequence = NOT_LOGGED;
+		try
+		{
+			slots = dataManager.parkCars(level, vehicles);
+			if (persistence != null)
+			{
+				for (int i = 0; i < slots.length; i++)
+				{
+					if (slots[i] > 0)
+						sequence = persistence.logPark(level, slots[i], vehicles.get(i));
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+		}
+		finally
+		{
+			unlockForWrite(levelLock, stamp);
+		}
+		awaitDurable(sequence);
+		return slots;
+	}
+	
+	/**
+	 * Parks the vehicle in the slot held for it, after giving back the expired
+	 * holds
+	 * 
+	 * @return null if the vehicle holds no slot
+	 */
+	private ParkResult parkHeld(Vehicle vehicle) throws ParkingException
+	{
+		if (holds.isEmpty())
+			return null;
+		releaseHolds(holds.takeExpired(vehicle.getParkingTime()));
+		Hold hold = holds.take(vehicle.getRegistrationNo());
+		if (hold == null)
+			return null;
+		// held for a smaller vehicle, parked like one without a hold
+		if (!hold.sizeClass.fits(vehicle.getSizeClass()))
+		{
+			releaseHold(hold);
+			return null;
+		}
+		StampedLock levelLock = getLevelLock(hold.level);
+		long stamp = lockForWrite(levelLock);
+		boolean parked;
+		long sequence = NOT_LOGGED;
+		try
+		{
+			parked = dataManager.parkHeld(hold.level, hold.slotNumber, vehicle);
+			if (persistence != null && parked)
+				sequence = persistence.logPark(hold.level, hold.slotNumber, vehicle);
+		}
+		catch (Exception e)
+		{
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+		}
+		finally
+		{
+			unlockForWrite(levelLock, stamp);
+		}
+		awaitDurable(sequence);
+		if (parked)
+			return new ParkResult(hold.level, hold.slotNumber);
+		releaseHold(hold);
+		return new ParkResult(hold.level, Constants.VEHICLE_ALREADY_EXIST);
+	}
+	
+	@Override
+	public Reservation reserve(int level, String registrationNo, Duration holdTime) throws ParkingException
+	{
+		return reserve(level, registrationNo, SizeClass.STANDARD, holdTime);
+	}
+	
+	@Override
+	public Reservation reserve(int level, String registrationNo, SizeClass sizeClass, Duration holdTime)
+			throws ParkingException
+	{
+		validateParkingLot();
+		if (holdTime.isNegative() || holdTime.isZero())
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "hold_time"));
+		long now = clock.millis();
+		// not skipped when there are no holds, the wheel follows the clock
+		releaseHolds(holds.takeExpired(now));
+		long expiryTime = now + holdTime.toMillis();
+		if (level != Constants.ANY_LEVEL || !isMultiLevel())
+			return holdOnLevel(resolveLevel(level), registrationNo, sizeClass, expiryTime);
+		if (dataManager.getLevelFromRegistrationNo(registrationNo) != Constants.NOT_FOUND
+				|| holds.contains(registrationNo))
+			return new Reservation(Constants.ANY_LEVEL, Constants.VEHICLE_ALREADY_EXIST, registrationNo, expiryTime);
+		int freeLevel = Constants.ANY_LEVEL;
+		while ((freeLevel = dataManager.getLevelWithAvailability(freeLevel + 1)) != Constants.NOT_AVAILABLE)
+		{
+			Reservation reservation = holdOnLevel(freeLevel, registrationNo, sizeClass, expiryTime);
+			if (!reservation.isLotFull())
+				return reservation;
+		}
+		return new Reservation(Constants.ANY_LEVEL, Constants.NOT_AVAILABLE, registrationNo, expiryTime);
+	}
+	
+	private Reservation holdOnLevel(int level, String registrationNo, SizeClass sizeClass, long expiryTime)
+			throws ParkingException
+	{
+		// a vehicle parked on any level can not hold a slot
+		if (dataManager.getLevelFromRegistrationNo(registrationNo) != Constants.NOT_FOUND
+				|| holds.contains(registrationNo))
+			return new Reservation(level, Constants.VEHICLE_ALREADY_EXIST, registrationNo, expiryTime);
+		StampedLock levelLock = getLevelLock(level);
+		long stamp = lockForWrite(levelLock);
+		int slotNumber;
+		try
+		{
+			slotNumber = dataManager.holdSlot(level, sizeClass);
+		}
+		finally
+		{
+			unlockForWrite(levelLock, stamp);
+		}
+		if (slotNumber == Constants.NOT_AVAILABLE)
+			return new Reservation(level, Constants.NOT_AVAILABLE, registrationNo, expiryTime);
+		Hold hold = new Hold(registrationNo, sizeClass, level, slotNumber, expiryTime);
+		if (!holds.add(hold))
+		{
+			// held by a concurrent reserve of the same registration
+			releaseHold(hold);
+			return new Reservation(level, Constants.VEHICLE_ALREADY_EXIST, registrationNo, expiryTime);
+		}
+		return new Reservation(level, slotNumber, registrationNo, expiryTime);
+	}
+	
+	@Override
+	public boolean cancelReservation(String registrationNo) throws ParkingException
+	{
+		validateParkingLot();
+		Hold hold = holds.take(registrationNo);
+		if (hold == null)
+			return false;
+		releaseHold(hold);
+		return true;
+	}
+	
+	private void releaseExpiredHolds()
+	{
+		if (!holds.isEmpty())
+			releaseHolds(holds.takeExpired(clock.millis()));
+	}
+	
+	private void releaseHolds(List<Hold> expired)
+	{
+		for (Hold hold : expired)
+		{
+			releaseHold(hold);
 		}
-		return value;
+	}
+	
+	/**
+	 * Gives the slot of a hold taken out of {@link #holds} back to the free
+	 * slots
+	 */
+	private void releaseHold(Hold hold)
+	{
+		StampedLock levelLock = getLevelLock(hold.level);
+		long stamp = lockForWrite(levelLock);
+		try
+		{
+			dataManager.releaseHeld(hold.level, hold.slotNumber);
+		}
+		finally
+		{
+			unlockForWrite(levelLock, stamp);
+		}
+	}
+	
+	private StampedLock getLevelLock(int level)
+	{
+		return levelLocks.computeIfAbsent(level, key -> new StampedLock());
+	}
+	
+	/**
+	 * Actions on a level are serialised by its write lock unless the levels are
+	 * lock free
+	 * 
+	 * @return stamp to unlock with, 0 if no lock was taken
+	 */
+	private long lockForWrite(StampedLock levelLock)
+	{
+		if (concurrencyMode == ConcurrencyMode.LOCK_FREE)
+			return 0L;
+		return levelLock.writeLock();
+	}
+	
+	private void unlockForWrite(StampedLock levelLock, long stamp)
+	{
+		if (stamp != 0L)
+			levelLock.unlockWrite(stamp);
 	}
 	
 	/**
@@ -83,19 +623,68 @@ public class ParkingServiceImpl implements ParkingService
 		}
 	}
 	
+	private boolean isMultiLevel()
+	{
+		return dataManager.getLevelCount() > 1;
+	}
+	
+	/**
+	 * A lot with a single level does not need the level to be given
+	 * 
+	 * @return level to work on
+	 * @throws ParkingException
+	 *             if the level does not exist or is needed but not given
+	 */
+	private int resolveLevel(int level) throws ParkingException
+	{
+		if (level == Constants.ANY_LEVEL && !isMultiLevel())
+			return dataManager.getLevels().get(0);
+		if (!dataManager.hasLevel(level))
+			throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "level"));
+		return level;
+	}
+	
+	/**
+	 * @return levels a query is answered from
+	 */
+	private List<Integer> getQueryLevels(int level) throws ParkingException
+	{
+		if (level == Constants.ANY_LEVEL)
+			return dataManager.getLevels();
+		return Collections.singletonList(resolveLevel(level));
+	}
+	
 	@Override
-	public void unPark(int level, int slotNumber, int hours) throws ParkingException
+	public LeaveResult unPark(int level, int slotNumber, int hours) throws ParkingException
+	{
+		return leave(level, slotNumber, hours);
+	}
+	
+	@Override
+	public LeaveResult unPark(int level, int slotNumber) throws ParkingException
+	{
+		return leave(level, slotNumber, BILLED_HOURS);
+	}
+	
+	/**
+	 * @param hours
+	 *            hours to charge, {@link #BILLED_HOURS} to charge the hours
+	 *            since the vehicle was parked
+	 */
+	private LeaveResult leave(int level, int slotNumber, int hours) throws ParkingException
 	{
-		lock.writeLock().lock();
 		validateParkingLot();
-		int parkingFees  = calculateParkingFees(hours);
+		level = resolveLevel(level);
+		releaseExpiredHolds();
+		StampedLock levelLock = getLevelLock(level);
+		long stamp = lockForWrite(levelLock);
+		long parkingTime;
+		long sequence = NOT_LOGGED;
 		try
 		{
-			
-			if (dataManager.leaveCar(level, slotNumber))
-				System.out.println("Slot number " + slotNumber + " is free with charge " + parkingFees);
-			else
-				System.out.println("Slot number is Empty Already.");
+			parkingTime = dataManager.removeCar(level, slotNumber);
+			if (persistence != null && parkingTime != Constants.NOT_PARKED)
+				sequence = persistence.logLeave(level, slotNumber);
 		}
 		catch (Exception e)
 		{
@@ -103,26 +692,43 @@ public class ParkingServiceImpl implements ParkingService
 		}
 		finally
 		{
-			lock.writeLock().unlock();
+			unlockForWrite(levelLock, stamp);
 		}
+		awaitDurable(sequence);
+		if (parkingTime == Constants.NOT_PARKED)
+			return new LeaveResult(level, slotNumber, false, 0);
+		if (hours == BILLED_HOURS)
+			hours = getStartedHours(parkingTime, clock.millis());
+		return new LeaveResult(level, slotNumber, true, tariff.getFee(level, parkingTime, hours));
 	}
 	
 	@Override
-	public void getStatus(int level) throws ParkingException
+	public List<LeaveResult> leaveAll(int level, int[] slotNumbers) throws ParkingException
 	{
-		lock.readLock().lock();
 		validateParkingLot();
+		level = resolveLevel(level);
+		// Checked up front so that a bad slot fails the batch before any vehicle
+		// leaves
+		int capacity = dataManager.getCapacity(level);
+		for (int slotNumber : slotNumbers)
+		{
+			if (slotNumber < 1 || slotNumber > capacity)
+				throw new ParkingException(ErrorCode.INVALID_VALUE.getMessage().replace("{variable}", "slot_number"));
+		}
+		releaseExpiredHolds();
+		StampedLock levelLock = getLevelLock(level);
+		long stamp = lockForWrite(levelLock);
+		long[] parkingTimes;
+		long sequence = NOT_LOGGED;
 		try
 		{
-			System.out.println("Slot No.\tRegistration No.\tColor");
-			List<String> statusList = dataManager.getStatus(level);
-			if (statusList.size() == 0)
-				System.out.println("Sorry, parking lot is empty.");
-			else
+			parkingTimes = dataManager.removeCars(level, slotNumbers);
+			if (persistence != null)
 			{
-				for (String statusSting : statusList)
+				for (int i = 0; i < slotNumbers.length; i++)
 				{
-					System.out.println(statusSting);
+					if (parkingTimes[i] != Constants.NOT_PARKED)
+						sequence = persistence.logLeave(level, slotNumbers[i]);
 				}
 			}
 		}
@@ -132,90 +738,331 @@ public class ParkingServiceImpl implements ParkingService
 		}
 		finally
 		{
-			lock.readLock().unlock();
+			unlockForWrite(levelLock, stamp);
+		}
+		awaitDurable(sequence);
+		long leaveTime = clock.millis();
+		Tariff tariff = this.tariff;
+		List<LeaveResult> results = new ArrayList<>(slotNumbers.length);
+		for (int i = 0; i < slotNumbers.length; i++)
+		{
+			long parkingTime = parkingTimes[i];
+			if (parkingTime == Constants.NOT_PARKED)
+				results.add(new LeaveResult(level, slotNumbers[i], false, 0));
+			else
+				results.add(new LeaveResult(level, slotNumbers[i], true,
+						tariff.getFee(level, parkingTime, getStartedHours(parkingTime, leaveTime))));
 		}
+		return results;
 	}
 	
-	public Optional<Integer> getAvailableSlotsCount(int level) throws ParkingException
+	/**
+	 * @return hours between the times, in epoch milliseconds, where a started
+	 *         hour counts as a whole one
+	 */
+	static int getStartedHours(long parkingTime, long leaveTime)
 	{
-		lock.readLock().lock();
-		Optional<Integer> value = Optional.empty();
-		validateParkingLot();
+		long minutes = Math.max((leaveTime - parkingTime) / MILLIS_PER_MINUTE, 0);
+		return (int) Math.min((minutes + 59) / 60, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Waits for the journal record of a change, called once the level lock is
+	 * released so that concurrent changes share the fsync
+	 */
+	private void awaitDurable(long sequence) throws ParkingException
+	{
+		if (sequence == NOT_LOGGED)
+			return;
 		try
 		{
-			value = Optional.of(dataManager.getAvailableSlotsCount(level));
+			persistence.awaitDurable(sequence);
 		}
-		catch (Exception e)
+		catch (IOException e)
 		{
 			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
 		}
-		finally
-		{
-			lock.readLock().unlock();
-		}
-		return value;
+		if (persistence.isSnapshotDue())
+			persistence.scheduleSnapshot(this::saveSnapshot);
 	}
 	
-	@Override
-	public void getRegNumberForColor(int level, String color) throws ParkingException
+	/**
+	 * Saves a snapshot of the lot so that the journal before it can be
+	 * deleted. Every level is locked while the vehicles are captured, the file
+	 * is written after the locks are released.
+	 * 
+	 * @throws ParkingException
+	 *             if the lot is not journaled, a background snapshot failed
+	 *             since the last call or the snapshot can not be saved
+	 */
+	public void snapshot() throws ParkingException
 	{
-		lock.readLock().lock();
-		validateParkingLot();
+		if (persistence == null)
+			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage() + ": parking lot is not journaled");
 		try
 		{
-			List<String> registrationList = dataManager.getRegNumberForColor(level, color);
-			if (registrationList.size() == 0)
-				System.out.println("Not Found");
-			else
-				System.out.println(String.join(",", registrationList));
+			persistence.checkSnapshotFailure();
+			saveSnapshot();
 		}
-		catch (Exception e)
+		catch (IOException e)
 		{
 			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
 		}
+	}
+	
+	private void saveSnapshot() throws IOException
+	{
+		ParkingSnapshot snapshot;
+		synchronized (this)
+		{
+			snapshot = captureSnapshot();
+		}
+		persistence.writeSnapshot(snapshot);
+	}
+	
+	/**
+	 * Called with the lot creation lock held
+	 */
+	private ParkingSnapshot captureSnapshot() throws IOException
+	{
+		ParkingDataManager<Vehicle> manager = dataManager;
+		if (manager == null)
+			return new ParkingSnapshot(persistence.beginSnapshot(), new int[0], new int[0]);
+		List<Integer> levels = manager.getLevels();
+		StampedLock[] locks = new StampedLock[levels.size()];
+		long[] stamps = new long[levels.size()];
+		// levels are always locked one at a time elsewhere, ascending order here
+		for (int i = 0; i < locks.length; i++)
+		{
+			locks[i] = getLevelLock(levels.get(i));
+			stamps[i] = locks[i].writeLock();
+		}
+		try
+		{
+			int[] levelArray = toArray(levels);
+			int[] capacities = new int[levelArray.length];
+			for (int i = 0; i < levelArray.length; i++)
+			{
+				capacities[i] = manager.getCapacity(levelArray[i]);
+			}
+			ParkingSnapshot snapshot = new ParkingSnapshot(persistence.beginSnapshot(), levelArray, capacities);
+			for (int i = 0; i < levelArray.length; i++)
+			{
+				for (int slot = 1; slot <= capacities[i]; slot++)
+				{
+					Vehicle vehicle = manager.getVehicle(levelArray[i], slot);
+					if (vehicle != null)
+						snapshot.add(i, slot, vehicle);
+				}
+			}
+			return snapshot;
+		}
 		finally
 		{
-			lock.readLock().unlock();
+			for (int i = locks.length - 1; i >= 0; i--)
+			{
+				locks[i].unlockWrite(stamps[i]);
+			}
+		}
+	}
+	
+	private static int[] toArray(List<Integer> values)
+	{
+		int[] array = new int[values.size()];
+		for (int i = 0; i < array.length; i++)
+		{
+			array[i] = values.get(i);
 		}
+		return array;
 	}
 	
 	@Override
-	public void getSlotNumbersFromColor(int level, String color) throws ParkingException
+	public List<LevelStatus> getStatus(int level) throws ParkingException
 	{
-		lock.readLock().lock();
 		validateParkingLot();
-		try
+		List<LevelStatus> statusList = new ArrayList<>();
+		for (int queryLevel : getQueryLevels(level))
+		{
+			statusList.add(new LevelStatus(queryLevel, readLevel(queryLevel, () -> dataManager.getStatus(queryLevel))));
+		}
+		return statusList;
+	}
+	
+	@Override
+	public void streamStatus(int level, StatusSink sink) throws ParkingException, IOException
+	{
+		validateParkingLot();
+		List<Integer> queryLevels = getQueryLevels(level);
+		StatusChunk chunk = new StatusChunk(STATUS_CHUNK_SIZE);
+		for (int queryLevel : queryLevels)
 		{
-			List<Integer> slotList = dataManager.getSlotNumbersFromColor(level, color);
-			if (slotList.size() == 0)
-				System.out.println("Not Found");
-			StringJoiner joiner = new StringJoiner(",");
-			for (Integer slot : slotList)
+			sink.beginLevel(queryLevel);
+			int slots = 0;
+			int fromSlot = 1;
+			do
 			{
-				joiner.add(slot + "");
+				// the lock is held while the chunk is read, not while it is written
+				int resumeSlot = fromSlot;
+				fromSlot = readLevel(queryLevel, () -> {
+					chunk.clear();
+					return dataManager.visitStatus(queryLevel, resumeSlot, chunk);
+				});
+				chunk.writeTo(sink);
+				slots += chunk.size;
 			}
-			System.out.println(joiner.toString());
+			while (fromSlot != 0);
+			sink.endLevel(queryLevel, slots);
 		}
-		catch (Exception e)
+	}
+	
+	/**
+	 * Rows of up to a fixed number of slots, reused for every chunk of a status
+	 */
+	private static final class StatusChunk implements SlotStatusVisitor
+	{
+		private final int[]		slotNumbers;
+		private final String[]	registrationNos;
+		private final String[]	colors;
+		private int				size;
+		
+		private StatusChunk(int capacity)
 		{
-			throw new ParkingException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+			slotNumbers = new int[capacity];
+			registrationNos = new String[capacity];
+			colors = new String[capacity];
 		}
-		finally
+		
+		private void clear()
+		{
+			size = 0;
+		}
+		
+		@Override
+		public boolean visit(int slotNumber, String registrationNo, String color)
+		{
+			slotNumbers[size] = slotNumber;
+			registrationNos[size] = registrationNo;
+			colors[size++] = color;
+			return size < slotNumbers.length;
+		}
+		
+		private void writeTo(StatusSink sink) throws IOException
+		{
+			for (int i = 0; i < size; i++)
+			{
+				sink.slot(slotNumbers[i], registrationNos[i], colors[i]);
+				registrationNos[i] = null;
+				colors[i] = null;
+			}
+		}
+	}
+	
+	@Override
+	public Map<String, Integer> getColorCounts(int level) throws ParkingException
+	{
+		validateParkingLot();
+		Map<String, Integer> colorCounts = new TreeMap<>();
+		for (int queryLevel : getQueryLevels(level))
+		{
+			readLevel(queryLevel, () -> dataManager.getColourCounts(queryLevel))
+					.forEach((color, count) -> colorCounts.merge(color, count, Integer::sum));
+		}
+		return colorCounts;
+	}
+	
+	public Optional<Integer> getAvailableSlotsCount(int level) throws ParkingException
+	{
+		validateParkingLot();
+		// expired holds are given back by the next write, counted free until then
+		long now = clock.millis();
+		int count = 0;
+		for (int queryLevel : getQueryLevels(level))
+		{
+			count += readLevel(queryLevel, () -> dataManager.getAvailableSlotsCount(queryLevel));
+			if (!holds.isEmpty())
+				count += holds.countExpired(queryLevel, now);
+		}
+		return Optional.of(count);
+	}
+	
+	@Override
+	public List<String> getRegNumberForColor(int level, String color) throws ParkingException
+	{
+		validateParkingLot();
+		List<String> registrationList = new ArrayList<>();
+		for (int queryLevel : getQueryLevels(level))
+		{
+			registrationList.addAll(readLevel(queryLevel, () -> dataManager.getRegNumberForColor(queryLevel, color)));
+		}
+		return registrationList;
+	}
+	
+	@Override
+	public List<SlotLocation> getSlotNumbersFromColor(int level, String color) throws ParkingException
+	{
+		validateParkingLot();
+		List<SlotLocation> slotList = new ArrayList<>();
+		for (int queryLevel : getQueryLevels(level))
 		{
-			lock.readLock().unlock();
+			for (Integer slot : readLevel(queryLevel, () -> dataManager.getSlotNumbersFromColor(queryLevel, color)))
+			{
+				slotList.add(new SlotLocation(queryLevel, slot));
+			}
 		}
+		return slotList;
 	}
 	
 	@Override
-	public int getSlotNoFromRegistrationNo(int level, String registrationNo) throws ParkingException
+	public Optional<SlotLocation> getSlotNoFromRegistrationNo(int level, String registrationNo)
+			throws ParkingException
 	{
-		int value = -1;
-		lock.readLock().lock();
 		validateParkingLot();
+		if (level == Constants.ANY_LEVEL && isMultiLevel())
+		{
+			level = dataManager.getLevelFromRegistrationNo(registrationNo);
+			if (level == Constants.NOT_FOUND)
+				return Optional.empty();
+		}
+		int queryLevel = resolveLevel(level);
+		int value = readLevel(queryLevel, () -> dataManager.getSlotNoFromRegistrationNo(queryLevel, registrationNo));
+		return value != Constants.NOT_FOUND ? Optional.of(new SlotLocation(queryLevel, value)) : Optional.empty();
+	}
+	
+	/**
+	 * Runs a read only query against a level. In
+	 * {@link ConcurrencyMode#OPTIMISTIC_READ} the query first runs without
+	 * taking the lock and its result is kept if no write happened meanwhile;
+	 * otherwise, or if the unlocked run failed on data changing under it, the
+	 * query runs again under the read lock. The levels keep what the queries
+	 * walk in concurrent maps and sets, so an unlocked run cannot loop on them.
+	 * 
+	 * @return query result
+	 * @throws ParkingException
+	 */
+	private <R> R readLevel(int level, Supplier<R> query) throws ParkingException
+	{
+		StampedLock levelLock = getLevelLock(level);
+		if (concurrencyMode == ConcurrencyMode.OPTIMISTIC_READ)
+		{
+			long stamp = levelLock.tryOptimisticRead();
+			if (stamp != 0L)
+			{
+				try
+				{
+					R result = query.get();
+					if (levelLock.validate(stamp))
+						return result;
+				}
+				catch (RuntimeException e)
+				{
+					// a write changed the level while reading, retry under the lock
+				}
+			}
+		}
+		long stamp = levelLock.readLock();
 		try
 		{
-			value = dataManager.getSlotNoFromRegistrationNo(level, registrationNo);
-			System.out.println(value != -1 ? value : "Not Found");
+			return query.get();
 		}
 		catch (Exception e)
 		{
@@ -223,25 +1070,80 @@ public class ParkingServiceImpl implements ParkingService
 		}
 		finally
 		{
-			lock.readLock().unlock();
+			levelLock.unlockRead(stamp);
 		}
-		return value;
 	}
 	
-	private int calculateParkingFees(int hours) {
-		int parkingFees = 0;
-		if(hours <= 2) {
-			parkingFees = 10;
-		} else {
-			parkingFees = (hours * 10) - 10;
+	@Override
+	public void doCleanup()
+	{
+		synchronized (this)
+		{
+			if (dataManager != null)
+				dataManager.doCleanup();
+			dataManager = null;
+			levelLocks.clear();
+			holds.clear();
+			if (persistence != null)
+			{
+				long sequence = persistence.logCleanup();
+				try
+				{
+					persistence.awaitDurable(sequence);
+				}
+				catch (IOException e)
+				{
+					throw new IllegalStateException(ErrorCode.PROCESSING_ERROR.getMessage(), e);
+				}
+			}
 		}
-		return parkingFees;
 	}
 	
-	@Override
-	public void doCleanup()
+	/**
+	 * Applies the saved events straight to the data manager, without
+	 * journaling them again
+	 */
+	private class StateRestorer implements ParkingEventHandler
 	{
-		if (dataManager != null)
-			dataManager.doCleanup();
+		@Override
+		public void onCreate(int[] levels, int[] capacities)
+		{
+			if (levels.length == 0)
+				return;
+			List<Integer> parkingLevels = new ArrayList<>();
+			List<Integer> capacityList = new ArrayList<>();
+			for (int i = 0; i < levels.length; i++)
+			{
+				parkingLevels.add(levels[i]);
+				capacityList.add(capacities[i]);
+			}
+			createDataManager(parkingLevels, capacityList);
+		}
+		
+		@Override
+		public void onPark(int level, int slotNumber, Vehicle vehicle) throws IOException
+		{
+			if (dataManager == null || !dataManager.hasLevel(level)
+					|| !dataManager.parkCarAt(level, slotNumber, vehicle))
+				throw new IOException("Saved parking state does not match: can not park "
+						+ vehicle.getRegistrationNo() + " in slot " + slotNumber + " on level " + level);
+		}
+		
+		@Override
+		public void onLeave(int level, int slotNumber) throws IOException
+		{
+			if (dataManager == null || !dataManager.hasLevel(level) || !dataManager.leaveCar(level, slotNumber))
+				throw new IOException(
+						"Saved parking state does not match: slot " + slotNumber + " on level " + level + " is empty");
+		}
+		
+		@Override
+		public void onCleanup()
+		{
+			if (dataManager != null)
+				dataManager.doCleanup();
+			dataManager = null;
+			levelLocks.clear();
+		}
 	}
 }
@@ -0,0 +1,141 @@
+package com.parkinglot.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.parkinglot.model.SizeClass;
+import com.parkinglot.time.TimerWheel;
+
+/**
+ * Slots held for registrations, with their expiries on a {@link TimerWheel}.
+ * A hold belongs to whoever takes it out of the map, the park of its vehicle,
+ * its cancel or its expiry, and only that one may park in or give back its
+ * slot. The wheel is guarded by its own monitor, never held together with a
+ * level lock.
+ * 
+ * @author Balasaheb
+ */
+final class SlotHolds
+{
+	// expiries to the millisecond, the wheel skips the empty ticks
+	static final long						TICK_MILLIS	= 1L;
+	
+	// registration no (upper case) - hold
+	private final Map<String, Hold>			holds		= new ConcurrentHashMap<>();
+	private final TimerWheel<Hold>			expiries;
+	
+	static final class Hold
+	{
+		final String					registrationKey;
+		// largest vehicle the slot was held for
+		final SizeClass					sizeClass;
+		final int						level;
+		final int						slotNumber;
+		final long						expiryTime;
+		// guarded by the wheel
+		private TimerWheel.Timer<Hold>	timer;
+		
+		Hold(String registrationNo, SizeClass sizeClass, int level, int slotNumber, long expiryTime)
+		{
+			this.registrationKey = getRegistrationKey(registrationNo);
+			this.sizeClass = sizeClass;
+			this.level = level;
+			this.slotNumber = slotNumber;
+			this.expiryTime = expiryTime;
+		}
+	}
+	
+	SlotHolds(long startMillis)
+	{
+		expiries = new TimerWheel<>(TICK_MILLIS, startMillis);
+	}
+	
+	boolean isEmpty()
+	{
+		return holds.isEmpty();
+	}
+	
+	boolean contains(String registrationNo)
+	{
+		return holds.containsKey(getRegistrationKey(registrationNo));
+	}
+	
+	/**
+	 * @return false if the registration already holds a slot
+	 */
+	boolean add(Hold hold)
+	{
+		if (holds.putIfAbsent(hold.registrationKey, hold) != null)
+			return false;
+		synchronized (expiries)
+		{
+			hold.timer = expiries.schedule(hold.expiryTime, hold);
+		}
+		return true;
+	}
+	
+	/**
+	 * @return hold of the registration, taken out, null if none
+	 */
+	Hold take(String registrationNo)
+	{
+		Hold hold = holds.remove(getRegistrationKey(registrationNo));
+		if (hold != null)
+		{
+			synchronized (expiries)
+			{
+				// not yet scheduled if add is still running, its timer then finds
+				// the hold gone
+				if (hold.timer != null)
+					expiries.cancel(hold.timer);
+			}
+		}
+		return hold;
+	}
+	
+	/**
+	 * @return holds expired by the time, taken out
+	 */
+	List<Hold> takeExpired(long nowMillis)
+	{
+		List<Hold> expired = new ArrayList<>();
+		synchronized (expiries)
+		{
+			expiries.advance(nowMillis, expired::add);
+		}
+		expired.removeIf(hold -> !holds.remove(hold.registrationKey, hold));
+		return expired;
+	}
+	
+	/**
+	 * Counts, without taking them, the holds on the level expired by the time
+	 * but not yet given back, for queries that must not take a level lock
+	 */
+	int countExpired(int level, long nowMillis)
+	{
+		int count = 0;
+		for (Hold hold : holds.values())
+		{
+			if (hold.level == level && hold.expiryTime <= nowMillis)
+				count++;
+		}
+		return count;
+	}
+	
+	void clear()
+	{
+		holds.clear();
+		synchronized (expiries)
+		{
+			expiries.clear();
+		}
+	}
+	
+	private static String getRegistrationKey(String registrationNo)
+	{
+		return registrationNo.toUpperCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,77 @@
+package com.parkinglot.time;
+
+import java.io.Serializable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock that only moves when it is told to, for replays and benchmarks that
+ * fast forward through hours of parking in no time and always bill the same
+ * fees. It is safe to read and advance from several threads.
+ * 
+ * @author Balasaheb
+ */
+public class ManualClock extends Clock implements Serializable
+{
+	private static final long	serialVersionUID	= 1L;
+	
+	// epoch milliseconds, shared by the clocks of other zones made from this one
+	private final AtomicLong	millis;
+	private final ZoneId		zone;
+	
+	public ManualClock(Instant start, ZoneId zone)
+	{
+		this(new AtomicLong(start.toEpochMilli()), zone);
+	}
+	
+	private ManualClock(AtomicLong millis, ZoneId zone)
+	{
+		this.millis = millis;
+		this.zone = zone;
+	}
+	
+	@Override
+	public long millis()
+	{
+		return millis.get();
+	}
+	
+	@Override
+	public Instant instant()
+	{
+		return Instant.ofEpochMilli(millis());
+	}
+	
+	@Override
+	public ZoneId getZone()
+	{
+		return zone;
+	}
+	
+	/**
+	 * @return clock of the given zone that moves with this one
+	 */
+	@Override
+	public Clock withZone(ZoneId zone)
+	{
+		return new ManualClock(millis, zone);
+	}
+	
+	public void setInstant(Instant instant)
+	{
+		millis.set(instant.toEpochMilli());
+	}
+	
+	public void advance(Duration duration)
+	{
+		advanceMillis(duration.toMillis());
+	}
+	
+	public void advanceMillis(long delta)
+	{
+		millis.addAndGet(delta);
+	}
+}
@@ -0,0 +1,298 @@
+package com.parkinglot.time;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel: {@link #LEVELS} wheels of {@link #BUCKETS}
+ * buckets, each bucket of a wheel spanning a whole turn of the wheel below.
+ * A timer is put in the bucket of the lowest wheel that still tells its tick
+ * apart from the current one, and is moved down a wheel each time the time
+ * reaches its bucket, so scheduling and cancelling are O(1) and every timer is
+ * moved at most {@link #LEVELS} times before it expires.
+ * 
+ * {@link #advance(long, Consumer)} jumps from one non-empty bucket to the next
+ * using a bitmap of the non-empty buckets per wheel, so a long idle gap costs
+ * nothing. Timers fire on the first tick at or after their deadline.
+ * 
+ * Not thread safe, the owner synchronises.
+ * 
+ * @author Balasaheb
+ * @param <T>
+ *            payload handed back when a timer expires
+ */
+public class TimerWheel<T>
+{
+	static final int			WHEEL_BITS	= 6;
+	static final int			BUCKETS		= 1 << WHEEL_BITS;
+	static final int			LEVELS		= 6;
+	// timers further away than the wheels reach wait here for a turn of the top wheel
+	private static final int	OVERFLOW	= LEVELS;
+	
+	private final long			tickMillis;
+	// bucket heads per wheel, plus the overflow list
+	private final Timer<T>[][]	buckets;
+	// bit per non-empty bucket, per wheel
+	private final long[]		occupied	= new long[LEVELS];
+	private Timer<T>			overflow;
+	private long				currentTick;
+	private int					size;
+	
+	/**
+	 * A scheduled timer, to cancel it with
+	 */
+	public static final class Timer<T>
+	{
+		private final long	deadlineTick;
+		private final T		payload;
+		private Timer<T>	prev;
+		private Timer<T>	next;
+		// wheel and bucket the timer is in, wheel is -1 once expired or cancelled
+		private int			wheel	= -1;
+		private int			bucket;
+		
+		private Timer(long deadlineTick, T payload)
+		{
+			this.deadlineTick = deadlineTick;
+			this.payload = payload;
+		}
+		
+		public T getPayload()
+		{
+			return payload;
+		}
+	}
+	
+	/**
+	 * @param tickMillis
+	 *            resolution of the deadlines
+	 * @param startMillis
+	 *            current time, in epoch milliseconds
+	 */
+	@SuppressWarnings("unchecked")
+	public TimerWheel(long tickMillis, long startMillis)
+	{
+		if (tickMillis <= 0)
+			throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+		this.tickMillis = tickMillis;
+		this.buckets = new Timer[LEVELS][BUCKETS];
+		this.currentTick = Math.floorDiv(startMillis, tickMillis);
+	}
+	
+	/**
+	 * @param deadlineMillis
+	 *            epoch milliseconds, a deadline already passed fires on the next
+	 *            tick
+	 */
+	public Timer<T> schedule(long deadlineMillis, T payload)
+	{
+		// rounded up so that a timer never fires before its deadline
+		long deadlineTick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick + 1);
+		Timer<T> timer = new Timer<>(deadlineTick, payload);
+		insert(timer);
+		size++;
+		return timer;
+	}
+	
+	/**
+	 * @return false if the timer had already expired or was cancelled
+	 */
+	public boolean cancel(Timer<T> timer)
+	{
+		if (timer.wheel < 0)
+			return false;
+		unlink(timer);
+		size--;
+		return true;
+	}
+	
+	/**
+	 * Moves the time forward, handing the payload of every timer that expires
+	 * to the consumer, tick by tick
+	 * 
+	 * @param nowMillis
+	 *            epoch milliseconds, a time before the current one is ignored
+	 *            while timers are scheduled
+	 */
+	public void advance(long nowMillis, Consumer<? super T> onExpiry)
+	{
+		long targetTick = Math.floorDiv(nowMillis, tickMillis);
+		while (size > 0)
+		{
+			long tick = nextTick();
+			if (tick > targetTick)
+				break;
+			currentTick = tick;
+			cascade(tick);
+			expire(tick, onExpiry);
+		}
+		// an empty wheel follows a clock that was set back
+		currentTick = size == 0 ? targetTick : Math.max(currentTick, targetTick);
+	}
+	
+	/**
+	 * @return number of scheduled timers
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Cancels every timer
+	 */
+	public void clear()
+	{
+		for (int wheel = 0; wheel < LEVELS; wheel++)
+		{
+			while (occupied[wheel] != 0)
+			{
+				int bucket = Long.numberOfTrailingZeros(occupied[wheel]);
+				detach(wheel, bucket);
+			}
+		}
+		while (overflow != null)
+		{
+			cancel(overflow);
+		}
+		size = 0;
+	}
+	
+	private void insert(Timer<T> timer)
+	{
+		long differentBits = timer.deadlineTick ^ currentTick;
+		int wheel = differentBits == 0 ? 0 : (63 - Long.numberOfLeadingZeros(differentBits)) / WHEEL_BITS;
+		if (wheel >= LEVELS)
+		{
+			timer.wheel = OVERFLOW;
+			timer.next = overflow;
+			if (overflow != null)
+				overflow.prev = timer;
+			overflow = timer;
+			return;
+		}
+		int bucket = (int) (timer.deadlineTick >>> (wheel * WHEEL_BITS)) & (BUCKETS - 1);
+		Timer<T> head = buckets[wheel][bucket];
+		timer.wheel = wheel;
+		timer.bucket = bucket;
+		timer.next = head;
+		if (head != null)
+			head.prev = timer;
+		buckets[wheel][bucket] = timer;
+		occupied[wheel] |= 1L << bucket;
+	}
+	
+	private void unlink(Timer<T> timer)
+	{
+		if (timer.next != null)
+			timer.next.prev = timer.prev;
+		if (timer.prev != null)
+			timer.prev.next = timer.next;
+		else if (timer.wheel == OVERFLOW)
+			overflow = timer.next;
+		else
+		{
+			buckets[timer.wheel][timer.bucket] = timer.next;
+			if (timer.next == null)
+				occupied[timer.wheel] &= ~(1L << timer.bucket);
+		}
+		timer.prev = null;
+		timer.next = null;
+		timer.wheel = -1;
+	}
+	
+	/**
+	 * Empties a bucket
+	 * 
+	 * @return the timers that were in it
+	 */
+	private Timer<T> detach(int wheel, int bucket)
+	{
+		Timer<T> head = buckets[wheel][bucket];
+		buckets[wheel][bucket] = null;
+		occupied[wheel] &= ~(1L << bucket);
+		for (Timer<T> timer = head; timer != null; timer = timer.next)
+		{
+			timer.wheel = -1;
+		}
+		return head;
+	}
+	
+	/**
+	 * @return next tick at which a bucket is due, Long.MAX_VALUE if none
+	 */
+	private long nextTick()
+	{
+		long next = Long.MAX_VALUE;
+		for (int wheel = 0; wheel < LEVELS; wheel++)
+		{
+			int shift = wheel * WHEEL_BITS;
+			int current = (int) (currentTick >>> shift) & (BUCKETS - 1);
+			// buckets of this turn of the wheel still to come
+			long ahead = occupied[wheel] & (-2L << current);
+			if (ahead != 0)
+			{
+				long turnStart = (currentTick >>> (shift + WHEEL_BITS)) << (shift + WHEEL_BITS);
+				next = Math.min(next, turnStart | ((long) Long.numberOfTrailingZeros(ahead) << shift));
+			}
+		}
+		if (overflow != null)
+		{
+			int topShift = LEVELS * WHEEL_BITS;
+			next = Math.min(next, ((currentTick >>> topShift) + 1) << topShift);
+		}
+		return next;
+	}
+	
+	/**
+	 * Moves the timers of the buckets starting at the tick down the wheels,
+	 * from the top wheel down so that a timer can drop several wheels at once
+	 */
+	private void cascade(long tick)
+	{
+		int topShift = LEVELS * WHEEL_BITS;
+		if ((tick & ((1L << topShift) - 1)) == 0 && overflow != null)
+		{
+			Timer<T> timer = overflow;
+			overflow = null;
+			reinsert(timer);
+		}
+		for (int wheel = LEVELS - 1; wheel > 0; wheel--)
+		{
+			int shift = wheel * WHEEL_BITS;
+			if ((tick & ((1L << shift) - 1)) != 0)
+				continue;
+			int bucket = (int) (tick >>> shift) & (BUCKETS - 1);
+			if ((occupied[wheel] & (1L << bucket)) != 0)
+				reinsert(detach(wheel, bucket));
+		}
+	}
+	
+	private void reinsert(Timer<T> timer)
+	{
+		while (timer != null)
+		{
+			Timer<T> next = timer.next;
+			timer.prev = null;
+			timer.next = null;
+			insert(timer);
+			timer = next;
+		}
+	}
+	
+	private void expire(long tick, Consumer<? super T> onExpiry)
+	{
+		int bucket = (int) tick & (BUCKETS - 1);
+		if ((occupied[0] & (1L << bucket)) == 0)
+			return;
+		Timer<T> timer = detach(0, bucket);
+		while (timer != null)
+		{
+			Timer<T> next = timer.next;
+			timer.prev = null;
+			timer.next = null;
+			size--;
+			onExpiry.accept(timer.payload);
+			timer = next;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.parkinglot.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import com.parkinglot.constants.Constants;
+import com.parkinglot.model.Car;
+import com.parkinglot.model.Vehicle;
+
+/**
+ * Gates parking and leaving on one lock free level at the same time
+ * 
+ * @author Balasaheb
+ */
+public class ConcurrentParkingLevelManagerTest
+{
+	private static final int	GATES		= 8;
+	private static final int	OPERATIONS	= 100_000;
+	// more than 4096 slots, so a scan of the free slots crosses summary words
+	private static final int	CAPACITY	= 10_000;
+	
+	@Test
+	public void gatesNeverShareASlotAndAvailabilityAddsUp() throws Exception
+	{
+		ConcurrentParkingLevelManager<Vehicle> level = new ConcurrentParkingLevelManager<>(1, CAPACITY);
+		// gate owning each slot, 0 for none
+		AtomicIntegerArray owners = new AtomicIntegerArray(CAPACITY + 1);
+		List<List<Integer>> ownedSlots = new ArrayList<>();
+		for (int gate = 1; gate <= GATES; gate++)
+		{
+			ownedSlots.add(new ArrayList<>());
+		}
+		// a full level, each gate owning a share of it, so parks race for the
+		// few slots the gates free
+		for (int i = 0; i < CAPACITY; i++)
+		{
+			int slot = level.parkCar(new Car("FILL-" + i, "White"));
+			int gate = i % GATES + 1;
+			owners.set(slot, gate);
+			ownedSlots.get(gate - 1).add(slot);
+		}
+		CyclicBarrier start = new CyclicBarrier(GATES);
+		ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+		List<Thread> gates = new ArrayList<>();
+		for (int gate = 1; gate <= GATES; gate++)
+		{
+			int gateNo = gate;
+			List<Integer> slots = ownedSlots.get(gate - 1);
+			Thread thread = new Thread(() -> {
+				SplittableRandom random = new SplittableRandom(gateNo);
+				try
+				{
+					start.await();
+					for (int i = 0; i < OPERATIONS; i++)
+					{
+						if (!slots.isEmpty() && random.nextBoolean())
+						{
+							int slot = slots.remove(random.nextInt(slots.size()));
+							owners.set(slot, 0);
+							if (!level.leaveCar(slot))
+								failures.add("Slot " + slot + " was empty on leave");
+							continue;
+						}
+						// registrations shared by the gates, so the same vehicle
+						// is parked by several gates at once
+						int slot = level.parkCar(new Car("KA-" + random.nextInt(2 * CAPACITY), "Red"));
+						if (slot == Constants.NOT_AVAILABLE || slot == Constants.VEHICLE_ALREADY_EXIST)
+							continue;
+						if (!owners.compareAndSet(slot, 0, gateNo))
+							failures.add("Slot " + slot + " given to gate " + gateNo + " and " + owners.get(slot));
+						slots.add(slot);
+					}
+				}
+				catch (Exception e)
+				{
+					failures.add(e.toString());
+				}
+			});
+			gates.add(thread);
+			thread.start();
+		}
+		for (Thread thread : gates)
+		{
+			thread.join();
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+		
+		int parked = 0;
+		Set<String> registrations = new HashSet<>();
+		for (int slot = 1; slot <= CAPACITY; slot++)
+		{
+			Vehicle vehicle = level.getVehicle(slot);
+			assertEquals("Owner of slot " + slot, vehicle != null, owners.get(slot) != 0);
+			if (vehicle == null)
+				continue;
+			parked++;
+			assertTrue("Parked twice: " + vehicle.getRegistrationNo(), registrations.add(vehicle.getRegistrationNo()));
+			assertEquals(slot, level.getSlotNoFromRegistrationNo(vehicle.getRegistrationNo()));
+		}
+		assertEquals(CAPACITY - parked, level.getAvailableSlotsCount());
+		assertEquals(parked, level.registrationSlotMap.size());
+		assertFalse(level.registrationSlotMap.containsValue(ConcurrentParkingLevelManager.RESERVED));
+	}
+}
@@ -0,0 +1,126 @@
+package com.parkinglot.model.stratergy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ * {@link BitSetParkingStrategy} against the TreeSet of
+ * {@link NearestFirstParkingStrategy}: the same operations must hand out the
+ * same slots in the same order
+ * 
+ * @author Balasaheb
+ */
+public class BitSetParkingStrategyTest
+{
+	private static final int	OPERATIONS	= 200_000;
+	// slots around the end of a word and of a summary word
+	private static final int[]	BOUNDARIES	= { 1, 63, 64, 65, 127, 128, 4095, 4096, 4097, 8191, 8192, 8193 };
+	
+	@Test
+	public void sameOrderAsTreeSetWhileGrowing()
+	{
+		// starts with one word and grows as higher slots are added
+		assertSameOrder(new BitSetParkingStrategy(), 10_000, 1);
+	}
+	
+	@Test
+	public void sameOrderAsTreeSetAtCapacity()
+	{
+		assertSameOrder(new BitSetParkingStrategy(10_000), 10_000, 2);
+	}
+	
+	@Test
+	public void sameOrderAsTreeSetWhenNearlyFull()
+	{
+		// mostly claims, so the nearest free slot is far from the start
+		BitSetParkingStrategy bitSet = new BitSetParkingStrategy(10_000);
+		NearestFirstParkingStrategy treeSet = new NearestFirstParkingStrategy();
+		for (int slot = 1; slot <= 10_000; slot++)
+		{
+			bitSet.add(slot);
+			treeSet.add(slot);
+		}
+		int[] bitSetSlots = new int[9_990];
+		int[] treeSetSlots = new int[9_990];
+		assertEquals(treeSet.claimSlots(treeSetSlots, 9_990), bitSet.claimSlots(bitSetSlots, 9_990));
+		assertArrayEquals(treeSetSlots, bitSetSlots);
+		assertSameOrder(bitSet, treeSet, 10_000, 3);
+	}
+	
+	private static void assertSameOrder(BitSetParkingStrategy bitSet, int maxSlot, long seed)
+	{
+		assertSameOrder(bitSet, new NearestFirstParkingStrategy(), maxSlot, seed);
+	}
+	
+	private static void assertSameOrder(BitSetParkingStrategy bitSet, NearestFirstParkingStrategy treeSet,
+			int maxSlot, long seed)
+	{
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < OPERATIONS; i++)
+		{
+			// the free slots pile up and drain in turns
+			int adds = i / 20_000 % 2 == 0 ? 9 : 3;
+			int operation = random.nextInt(12);
+			if (operation < adds)
+			{
+				int slot = randomSlot(random, maxSlot);
+				bitSet.add(slot);
+				treeSet.add(slot);
+			}
+			else if (operation < adds + 1)
+			{
+				int slot = randomSlot(random, maxSlot);
+				bitSet.removeSlot(slot);
+				treeSet.removeSlot(slot);
+			}
+			else if (operation < 11)
+			{
+				assertEquals("Operation " + i, claim(treeSet), claim(bitSet));
+			}
+			else
+			{
+				int count = random.nextInt(8);
+				int[] bitSetSlots = new int[count];
+				int[] treeSetSlots = new int[count];
+				assertEquals("Operation " + i, treeSet.claimSlots(treeSetSlots, count),
+						bitSet.claimSlots(bitSetSlots, count));
+				assertArrayEquals("Operation " + i, treeSetSlots, bitSetSlots);
+			}
+		}
+		// what is left comes out in the same order too
+		int[] bitSetSlots = new int[maxSlot];
+		int[] treeSetSlots = new int[maxSlot];
+		int left = treeSet.claimSlots(treeSetSlots, maxSlot);
+		assertEquals(left, bitSet.claimSlots(bitSetSlots, maxSlot));
+		assertArrayEquals(Arrays.copyOf(treeSetSlots, left), Arrays.copyOf(bitSetSlots, left));
+		assertEquals(-1, claim(bitSet));
+	}
+	
+	private static int randomSlot(SplittableRandom random, int maxSlot)
+	{
+		if (random.nextInt(4) == 0)
+			return BOUNDARIES[random.nextInt(BOUNDARIES.length)];
+		return random.nextInt(maxSlot) + 1;
+	}
+	
+	/**
+	 * @return claimed slot, -1 if none is free
+	 */
+	private static int claim(ParkingStrategy parkingStrategy)
+	{
+		try
+		{
+			return parkingStrategy.claimSlot();
+		}
+		catch (NoSuchElementException e)
+		{
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,304 @@
+package com.parkinglot.persistence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.parkinglot.model.SizeClass;
+import com.parkinglot.model.Vehicle;
+import com.parkinglot.model.VehicleKind;
+
+/**
+ * A million park and leave events saved as a snapshot plus the journal after
+ * it, recovered to the state the lot had when it was closed, also when the
+ * last journal record was torn by a crash
+ * 
+ * @author Balasaheb
+ */
+public class ParkingPersistenceRecoveryTest
+{
+	private static final int[]	LEVELS		= { 1, 2 };
+	private static final int[]	CAPACITIES	= { 50_000, 30_000 };
+	private static final int	EVENTS		= 1_000_000;
+	// events after the snapshot, fewer than the snapshot interval
+	private static final int	TAIL_EVENTS	= 50_000;
+	
+	private Path				directory;
+	private Path				copy;
+	// "kind size class registration colour parking time" per slot of each
+	// level, index 0 unused
+	private String[][]			live;
+	private long				clock;
+	private SplittableRandom	random;
+	
+	@Before
+	public void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory("parking-recovery");
+		copy = Files.createTempDirectory("parking-recovery-torn");
+		live = new String[LEVELS.length][];
+		for (int i = 0; i < LEVELS.length; i++)
+		{
+			live[i] = new String[CAPACITIES[i] + 1];
+		}
+		clock = 1_600_000_000_000L;
+		random = new SplittableRandom(15);
+	}
+	
+	@After
+	public void tearDown() throws IOException
+	{
+		delete(directory);
+		delete(copy);
+	}
+	
+	@Test
+	public void recoversSnapshotAndJournalTail() throws IOException
+	{
+		long segmentSizeBeforeTorn;
+		String[][] beforeTorn;
+		try (ParkingPersistence persistence = new ParkingPersistence(directory, false, Integer.MAX_VALUE))
+		{
+			assertEquals(0, persistence.recover(new LotState()));
+			persistence.logCreate(LEVELS, CAPACITIES);
+			long sequence = logEvents(persistence, EVENTS - TAIL_EVENTS);
+			persistence.awaitDurable(sequence);
+			ParkingSnapshot snapshot = new ParkingSnapshot(persistence.beginSnapshot(), LEVELS, CAPACITIES);
+			for (int i = 0; i < LEVELS.length; i++)
+			{
+				for (int slot = 1; slot <= CAPACITIES[i]; slot++)
+				{
+					if (live[i][slot] != null)
+						snapshot.add(i, slot, toVehicle(live[i][slot]));
+				}
+			}
+			persistence.writeSnapshot(snapshot);
+			persistence.awaitDurable(logEvents(persistence, TAIL_EVENTS));
+			segmentSizeBeforeTorn = Files.size(lastSegment(directory));
+			beforeTorn = copyOf(live);
+			// the last record, a park on the first free slot of level 1
+			int slot = Arrays.asList(live[0]).subList(1, live[0].length).indexOf(null) + 1;
+			persistence.awaitDurable(park(persistence, 0, slot));
+		}
+		copyDirectory(directory, copy);
+		
+		LotState recovered = new LotState();
+		try (ParkingPersistence persistence = new ParkingPersistence(directory))
+		{
+			// the snapshot holds all but the tail
+			assertEquals(TAIL_EVENTS + 1, persistence.recover(recovered));
+		}
+		assertLot(live, recovered);
+		
+		// a crash in the middle of writing the last record
+		Path tornSegment = lastSegment(copy);
+		truncate(tornSegment, Files.size(tornSegment) - 3);
+		LotState afterCrash = new LotState();
+		try (ParkingPersistence persistence = new ParkingPersistence(copy))
+		{
+			assertEquals(TAIL_EVENTS, persistence.recover(afterCrash));
+		}
+		assertLot(beforeTorn, afterCrash);
+		assertEquals("Torn record cut off", segmentSizeBeforeTorn, Files.size(tornSegment));
+		
+		// the cut segment now ends on a whole record
+		LotState again = new LotState();
+		try (ParkingPersistence persistence = new ParkingPersistence(copy))
+		{
+			persistence.recover(again);
+		}
+		assertLot(beforeTorn, again);
+	}
+	
+	/**
+	 * Parks on a random free slot or frees a random occupied one, keeping the
+	 * lot about half full
+	 * 
+	 * @return sequence number of the last event
+	 */
+	private long logEvents(ParkingPersistence persistence, int events)
+	{
+		int[][] occupied = new int[LEVELS.length][];
+		int[] occupiedCount = new int[LEVELS.length];
+		int[][] free = new int[LEVELS.length][];
+		int[] freeCount = new int[LEVELS.length];
+		for (int i = 0; i < LEVELS.length; i++)
+		{
+			occupied[i] = new int[CAPACITIES[i]];
+			free[i] = new int[CAPACITIES[i]];
+			for (int slot = 1; slot <= CAPACITIES[i]; slot++)
+			{
+				if (live[i][slot] != null)
+					occupied[i][occupiedCount[i]++] = slot;
+				else
+					free[i][freeCount[i]++] = slot;
+			}
+		}
+		long sequence = 0;
+		for (int event = 0; event < events; event++)
+		{
+			int i = random.nextInt(LEVELS.length);
+			boolean park = freeCount[i] > 0 && (occupiedCount[i] == 0 || random.nextInt(CAPACITIES[i]) < freeCount[i]);
+			if (park)
+			{
+				int index = random.nextInt(freeCount[i]);
+				int slot = free[i][index];
+				free[i][index] = free[i][--freeCount[i]];
+				occupied[i][occupiedCount[i]++] = slot;
+				sequence = park(persistence, i, slot);
+			}
+			else
+			{
+				int index = random.nextInt(occupiedCount[i]);
+				int slot = occupied[i][index];
+				occupied[i][index] = occupied[i][--occupiedCount[i]];
+				free[i][freeCount[i]++] = slot;
+				live[i][slot] = null;
+				sequence = persistence.logLeave(LEVELS[i], slot);
+			}
+		}
+		return sequence;
+	}
+	
+	private long park(ParkingPersistence persistence, int levelIndex, int slot)
+	{
+		VehicleKind kind = random.nextInt(4) == 0 ? VehicleKind.MOTORCYCLE : VehicleKind.CAR;
+		SizeClass sizeClass = SizeClass.values()[1 + random.nextInt(SizeClass.values().length - 1)];
+		Vehicle vehicle = kind.create("KA-" + random.nextInt(1_000_000), random.nextBoolean() ? "White" : "Red",
+				sizeClass);
+		vehicle.setParkingTime(clock++);
+		live[levelIndex][slot] = toState(vehicle);
+		return persistence.logPark(LEVELS[levelIndex], slot, vehicle);
+	}
+	
+	private static String toState(Vehicle vehicle)
+	{
+		return VehicleKind.of(vehicle) + " " + vehicle.getSizeClass() + " " + vehicle.getRegistrationNo() + " "
+				+ vehicle.getColor() + " " + vehicle.getParkingTime();
+	}
+	
+	private static Vehicle toVehicle(String state)
+	{
+		String[] fields = state.split(" ");
+		Vehicle vehicle = VehicleKind.valueOf(fields[0]).create(fields[2], fields[3], SizeClass.valueOf(fields[1]));
+		vehicle.setParkingTime(Long.parseLong(fields[4]));
+		return vehicle;
+	}
+	
+	private static String[][] copyOf(String[][] lot)
+	{
+		String[][] copy = new String[lot.length][];
+		for (int i = 0; i < lot.length; i++)
+		{
+			copy[i] = lot[i].clone();
+		}
+		return copy;
+	}
+	
+	private static void assertLot(String[][] expected, LotState recovered)
+	{
+		assertTrue("Lot not created", recovered.slots != null);
+		for (int i = 0; i < LEVELS.length; i++)
+		{
+			assertArrayEquals("Level " + LEVELS[i], expected[i], recovered.slots[i]);
+		}
+	}
+	
+	/**
+	 * The lot rebuilt from the replayed events
+	 */
+	private static class LotState implements ParkingEventHandler
+	{
+		private String[][] slots;
+		
+		@Override
+		public void onCreate(int[] levels, int[] capacities)
+		{
+			assertArrayEquals(LEVELS, levels);
+			assertArrayEquals(CAPACITIES, capacities);
+			slots = new String[levels.length][];
+			for (int i = 0; i < levels.length; i++)
+			{
+				slots[i] = new String[capacities[i] + 1];
+			}
+		}
+		
+		@Override
+		public void onPark(int level, int slotNumber, Vehicle vehicle)
+		{
+			assertEquals("Slot " + slotNumber + " on level " + level, null, slots[level - 1][slotNumber]);
+			slots[level - 1][slotNumber] = toState(vehicle);
+		}
+		
+		@Override
+		public void onLeave(int level, int slotNumber)
+		{
+			assertTrue("Slot " + slotNumber + " on level " + level, slots[level - 1][slotNumber] != null);
+			slots[level - 1][slotNumber] = null;
+		}
+		
+		@Override
+		public void onCleanup()
+		{
+			slots = null;
+		}
+	}
+	
+	private static Path lastSegment(Path directory) throws IOException
+	{
+		TreeMap<String, Path> segments = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log"))
+		{
+			for (Path file : files)
+			{
+				segments.put(file.getFileName().toString(), file);
+			}
+		}
+		return segments.lastEntry().getValue();
+	}
+	
+	private static void truncate(Path file, long size) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+		{
+			channel.truncate(size);
+		}
+	}
+	
+	private static void copyDirectory(Path from, Path to) throws IOException
+	{
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(from))
+		{
+			for (Path file : files)
+			{
+				Files.copy(file, to.resolve(file.getFileName()));
+			}
+		}
+	}
+	
+	private static void delete(Path directory) throws IOException
+	{
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory))
+		{
+			for (Path file : files)
+			{
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+}
@@ -0,0 +1,257 @@
+package com.parkinglot.time;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * {@link TimerWheel} against a queue of the deadlines sorted by time: the same
+ * schedules, cancels and clock moves must expire the same timers, on the
+ * same advance and in deadline order
+ * 
+ * @author Balasaheb
+ */
+public class TimerWheelTest
+{
+	private static final int	OPERATIONS	= 200_000;
+	// ticks the wheels reach, later timers wait in the overflow list
+	private static final long	WHEEL_SPAN	= 1L << (TimerWheel.LEVELS * TimerWheel.WHEEL_BITS);
+	
+	@Test
+	public void sameExpiriesAsPriorityQueue()
+	{
+		assertSameExpiries(1, 0, 1);
+	}
+	
+	@Test
+	public void sameExpiriesWithCoarseTicks()
+	{
+		// deadlines rounded up to the tick, from a start before the epoch
+		assertSameExpiries(7, -1_000_003, 2);
+	}
+	
+	@Test
+	public void sameExpiriesFromALateStart()
+	{
+		// the wheels start part way through a turn of every wheel
+		assertSameExpiries(1, 3 * WHEEL_SPAN + WHEEL_SPAN / 3 + 12_345, 3);
+	}
+	
+	private static void assertSameExpiries(long tickMillis, long startMillis, long seed)
+	{
+		SplittableRandom random = new SplittableRandom(seed);
+		TimerWheel<Long> wheel = new TimerWheel<>(tickMillis, startMillis);
+		Model model = new Model(tickMillis, startMillis);
+		List<TimerWheel.Timer<Long>> timers = new ArrayList<>();
+		long now = startMillis;
+		for (int i = 0; i < OPERATIONS; i++)
+		{
+			int operation = random.nextInt(20);
+			if (operation < 9)
+			{
+				long deadline = now + deadlineOffset(random, tickMillis);
+				long id = timers.size();
+				timers.add(wheel.schedule(deadline, id));
+				model.schedule(deadline, id);
+			}
+			else if (operation < 12)
+			{
+				// live, expired and cancelled timers alike
+				if (timers.isEmpty())
+					continue;
+				int id = random.nextInt(timers.size());
+				assertEquals("Operation " + i, model.cancel(id), wheel.cancel(timers.get(id)));
+			}
+			else
+			{
+				now += clockStep(random, tickMillis);
+				List<long[]> expired = new ArrayList<>();
+				wheel.advance(now, id -> expired.add(new long[] { model.deadlineTick(id), id }));
+				for (int e = 1; e < expired.size(); e++)
+				{
+					assertTrue("Operation " + i + " expired out of order", expired.get(e - 1)[0] <= expired.get(e)[0]);
+				}
+				expired.sort(Model.ORDER);
+				assertExpired("Operation " + i, model.advance(now), expired);
+			}
+			assertEquals("Operation " + i, model.size(), wheel.size());
+		}
+		// what is left expires once the clock passes every deadline
+		now = Math.max(now, model.lastDeadlineTick() * tickMillis);
+		List<long[]> expired = new ArrayList<>();
+		wheel.advance(now, id -> expired.add(new long[] { model.deadlineTick(id), id }));
+		expired.sort(Model.ORDER);
+		assertExpired("Last advance", model.advance(now), expired);
+		assertEquals(0, wheel.size());
+	}
+	
+	/**
+	 * @return milliseconds from now to a deadline, mostly within the lowest
+	 *         wheels, some on the higher wheels, some in the overflow list and
+	 *         some already passed
+	 */
+	private static long deadlineOffset(SplittableRandom random, long tickMillis)
+	{
+		int range = random.nextInt(10);
+		if (range < 5)
+			return random.nextLong(200 * tickMillis);
+		if (range < 7)
+			return random.nextLong(1L << 24) * tickMillis;
+		if (range < 8)
+			return (WHEEL_SPAN + random.nextLong(2 * WHEEL_SPAN)) * tickMillis;
+		if (range < 9)
+			return random.nextLong(WHEEL_SPAN) * tickMillis;
+		return -random.nextLong(100 * tickMillis);
+	}
+	
+	/**
+	 * @return milliseconds the clock moves, mostly a few ticks forward, at times
+	 *         a jump across the wheels or back
+	 */
+	private static long clockStep(SplittableRandom random, long tickMillis)
+	{
+		int step = random.nextInt(40);
+		if (step < 30)
+			return random.nextLong(30 * tickMillis);
+		if (step < 34)
+			return random.nextLong(1L << 20) * tickMillis;
+		if (step < 36)
+			return random.nextLong(2 * WHEEL_SPAN) * tickMillis;
+		// set back, e.g. by a clock correction
+		return -random.nextLong(1L << random.nextInt(40));
+	}
+	
+	private static void assertExpired(String message, List<long[]> expected, List<long[]> actual)
+	{
+		assertEquals(message + " expired", expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			assertEquals(message + " deadline", expected.get(i)[0], actual.get(i)[0]);
+			assertEquals(message + " timer", expected.get(i)[1], actual.get(i)[1]);
+		}
+	}
+	
+	@Test
+	public void clockSetBackWithTimersKeepsTheirDeadlines()
+	{
+		TimerWheel<String> wheel = new TimerWheel<>(1, 1_000);
+		wheel.schedule(1_010, "a");
+		List<String> expired = new ArrayList<>();
+		// ignored while a timer is scheduled, it still fires at 1010
+		wheel.advance(500, expired::add);
+		wheel.advance(1_009, expired::add);
+		assertTrue(expired.isEmpty());
+		wheel.advance(1_010, expired::add);
+		assertEquals(1, expired.size());
+		// an empty wheel follows the clock back
+		wheel.advance(200, expired::add);
+		wheel.schedule(205, "b");
+		wheel.advance(204, expired::add);
+		assertEquals(1, expired.size());
+		wheel.advance(205, expired::add);
+		assertEquals("b", expired.get(1));
+	}
+	
+	@Test
+	public void clearCancelsEveryTimer()
+	{
+		TimerWheel<Integer> wheel = new TimerWheel<>(1, 0);
+		List<TimerWheel.Timer<Integer>> timers = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++)
+		{
+			timers.add(wheel.schedule(i * (WHEEL_SPAN / 300), i));
+		}
+		wheel.clear();
+		assertEquals(0, wheel.size());
+		for (TimerWheel.Timer<Integer> timer : timers)
+		{
+			assertFalse(wheel.cancel(timer));
+		}
+		List<Integer> expired = new ArrayList<>();
+		wheel.advance(10 * WHEEL_SPAN, expired::add);
+		assertTrue(expired.isEmpty());
+	}
+	
+	/**
+	 * Deadlines in a sorted set, expired by walking it from the earliest
+	 */
+	private static final class Model
+	{
+		// deadline tick, then id
+		private static final Comparator<long[]>	ORDER		= Comparator.<long[]> comparingLong(t -> t[0])
+				.thenComparingLong(t -> t[1]);
+		private static final long				EXPIRED		= Long.MIN_VALUE;
+		
+		private final long						tickMillis;
+		private final TreeSet<long[]>			scheduled	= new TreeSet<>(ORDER);
+		// id - deadline tick, EXPIRED once expired or cancelled
+		private final List<Long>				deadlines	= new ArrayList<>();
+		private long							currentTick;
+		
+		private Model(long tickMillis, long startMillis)
+		{
+			this.tickMillis = tickMillis;
+			this.currentTick = Math.floorDiv(startMillis, tickMillis);
+		}
+		
+		private void schedule(long deadlineMillis, long id)
+		{
+			long deadlineTick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick + 1);
+			scheduled.add(new long[] { deadlineTick, id });
+			deadlines.add(deadlineTick);
+		}
+		
+		private boolean cancel(int id)
+		{
+			long deadlineTick = deadlines.get(id);
+			if (deadlineTick == EXPIRED)
+				return false;
+			scheduled.remove(new long[] { deadlineTick, id });
+			deadlines.set(id, EXPIRED);
+			return true;
+		}
+		
+		private long deadlineTick(long id)
+		{
+			return deadlines.get((int) id);
+		}
+		
+		/**
+		 * @return timers expired, in deadline order
+		 */
+		private List<long[]> advance(long nowMillis)
+		{
+			long targetTick = Math.floorDiv(nowMillis, tickMillis);
+			List<long[]> expired = new ArrayList<>();
+			while (!scheduled.isEmpty() && scheduled.first()[0] <= targetTick)
+			{
+				long[] timer = scheduled.pollFirst();
+				deadlines.set((int) timer[1], EXPIRED);
+				expired.add(timer);
+			}
+			currentTick = scheduled.isEmpty() ? targetTick : Math.max(currentTick, targetTick);
+			return expired;
+		}
+		
+		private int size()
+		{
+			return scheduled.size();
+		}
+		
+		/**
+		 * @return latest deadline scheduled, Long.MIN_VALUE if none
+		 */
+		private long lastDeadlineTick()
+		{
+			return scheduled.isEmpty() ? Long.MIN_VALUE : scheduled.last()[0];
+		}
+	}
+}